@@ -41,6 +41,12 @@ public class ClassFileFactory implements OutputFileCollection {
     private final Map<FqName, PackageCodegen> package2codegen = new HashMap<FqName, PackageCodegen>();
     private final Map<String, ClassBuilderAndSourceFileList> generators = new LinkedHashMap<String, ClassBuilderAndSourceFileList>();
 
+    // Classes created by a package generated in parallel codegen mode, see generateDeferred()
+    private final ThreadLocal<Map<String, ClassBuilderAndSourceFileList>> deferredGenerators =
+            new ThreadLocal<Map<String, ClassBuilderAndSourceFileList>>();
+    // Deferred classes which are complete and may be read by other packages before they are committed
+    private final Map<String, ClassBuilderAndSourceFileList> publishedGenerators = new HashMap<String, ClassBuilderAndSourceFileList>();
+
     private boolean isDone = false;
 
     public ClassFileFactory(@NotNull GenerationState state, @NotNull ClassBuilderFactory builderFactory) {
@@ -63,15 +69,55 @@ public class ClassFileFactory implements OutputFileCollection {
             @NotNull Collection<? extends PsiFile> sourceFiles) {
         String outputFilePath = asmType.getInternalName() + ".class";
         List<File> ioSourceFiles = toIoFilesIgnoringNonPhysical(sourceFiles);
-        state.getProgress().reportOutput(ioSourceFiles, new File(outputFilePath));
         ClassBuilder answer = builderFactory.newClassBuilder(origin);
-        generators.put(outputFilePath, new ClassBuilderAndSourceFileList(answer, ioSourceFiles));
+        ClassBuilderAndSourceFileList generator = new ClassBuilderAndSourceFileList(answer, ioSourceFiles);
+
+        Map<String, ClassBuilderAndSourceFileList> deferred = deferredGenerators.get();
+        if (deferred != null) {
+            deferred.put(outputFilePath, generator);
+            return answer;
+        }
+
+        synchronized (this) {
+            state.getProgress().reportOutput(ioSourceFiles, new File(outputFilePath));
+            generators.put(outputFilePath, generator);
+        }
         return answer;
     }
 
-    void done() {
+    /**
+     * Runs the generation keeping all classes it creates aside, so that concurrently generated packages can be committed
+     * to this factory in a fixed order, making the output independent of the thread scheduling.
+     */
+    @NotNull
+    DeferredOutputs generateDeferred(@NotNull Runnable generation) {
+        assert deferredGenerators.get() == null : "Nested deferred generation";
+        Map<String, ClassBuilderAndSourceFileList> deferred = new LinkedHashMap<String, ClassBuilderAndSourceFileList>();
+        deferredGenerators.set(deferred);
+        try {
+            generation.run();
+        }
+        finally {
+            deferredGenerators.remove();
+        }
+        return new DeferredOutputs(deferred);
+    }
+
+    synchronized void publish(@NotNull DeferredOutputs outputs) {
+        publishedGenerators.putAll(outputs.generators);
+    }
+
+    synchronized void commit(@NotNull DeferredOutputs outputs) {
+        for (Map.Entry<String, ClassBuilderAndSourceFileList> entry : outputs.generators.entrySet()) {
+            state.getProgress().reportOutput(entry.getValue().sourceFiles, new File(entry.getKey()));
+            generators.put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized void done() {
         if (!isDone) {
             isDone = true;
+            publishedGenerators.clear();
             for (PackageCodegen codegen : package2codegen.values()) {
                 codegen.done();
             }
@@ -80,12 +126,12 @@ public class ClassFileFactory implements OutputFileCollection {
 
     @NotNull
     @Override
-    public List<OutputFile> asList() {
+    public synchronized List<OutputFile> asList() {
         done();
         return ContainerUtil.map(generators.keySet(), new Function<String, OutputFile>() {
             @Override
             public OutputFile fun(String relativeClassFilePath) {
-                return new OutputClassFile(relativeClassFilePath);
+                return new OutputClassFile(relativeClassFilePath, generators);
             }
         });
     }
@@ -93,7 +139,16 @@ public class ClassFileFactory implements OutputFileCollection {
     @Override
     @Nullable
     public OutputFile get(@NotNull String relativePath) {
-        return generators.containsKey(relativePath) ? new OutputClassFile(relativePath) : null;
+        Map<String, ClassBuilderAndSourceFileList> deferred = deferredGenerators.get();
+        if (deferred != null && deferred.containsKey(relativePath)) {
+            return new OutputClassFile(relativePath, deferred);
+        }
+        synchronized (this) {
+            if (publishedGenerators.containsKey(relativePath) && !generators.containsKey(relativePath)) {
+                return new OutputClassFile(relativePath, publishedGenerators);
+            }
+            return generators.containsKey(relativePath) ? new OutputClassFile(relativePath, generators) : null;
+        }
     }
 
     @NotNull
@@ -110,7 +165,7 @@ public class ClassFileFactory implements OutputFileCollection {
     }
 
     @NotNull
-    public PackageCodegen forPackage(@NotNull FqName fqName, @NotNull Collection<JetFile> files) {
+    public synchronized PackageCodegen forPackage(@NotNull FqName fqName, @NotNull Collection<JetFile> files) {
         assert !isDone : "Already done!";
         PackageCodegen codegen = package2codegen.get(fqName);
         if (codegen == null) {
@@ -137,9 +192,11 @@ public class ClassFileFactory implements OutputFileCollection {
 
     private class OutputClassFile implements OutputFile {
         private final String relativeClassFilePath;
+        private final Map<String, ClassBuilderAndSourceFileList> generators;
 
-        public OutputClassFile(String relativeClassFilePath) {
+        public OutputClassFile(String relativeClassFilePath, Map<String, ClassBuilderAndSourceFileList> generators) {
             this.relativeClassFilePath = relativeClassFilePath;
+            this.generators = generators;
         }
 
         @NotNull
@@ -151,24 +208,31 @@ public class ClassFileFactory implements OutputFileCollection {
         @NotNull
         @Override
         public List<File> getSourceFiles() {
-            ClassBuilderAndSourceFileList pair = generators.get(relativeClassFilePath);
-            if (pair == null) {
-                throw new IllegalStateException("No record for binary file " + relativeClassFilePath);
-            }
-
-            return pair.sourceFiles;
+            return getGenerator().sourceFiles;
         }
 
         @NotNull
         @Override
         public byte[] asByteArray() {
-            return builderFactory.asBytes(generators.get(relativeClassFilePath).classBuilder);
+            return builderFactory.asBytes(getGenerator().classBuilder);
         }
 
         @NotNull
         @Override
         public String asText() {
-            return builderFactory.asText(generators.get(relativeClassFilePath).classBuilder);
+            return builderFactory.asText(getGenerator().classBuilder);
+        }
+
+        @NotNull
+        private ClassBuilderAndSourceFileList getGenerator() {
+            ClassBuilderAndSourceFileList pair;
+            synchronized (ClassFileFactory.this) {
+                pair = generators.get(relativeClassFilePath);
+            }
+            if (pair == null) {
+                throw new IllegalStateException("No record for binary file " + relativeClassFilePath);
+            }
+            return pair;
         }
 
         @NotNull
@@ -188,8 +252,20 @@ public class ClassFileFactory implements OutputFileCollection {
         }
     }
 
-    public void removeInlinedClasses(Set<String> classNamesToRemove) {
+    static final class DeferredOutputs {
+        private final Map<String, ClassBuilderAndSourceFileList> generators;
+
+        private DeferredOutputs(@NotNull Map<String, ClassBuilderAndSourceFileList> generators) {
+            this.generators = generators;
+        }
+    }
+
+    public synchronized void removeInlinedClasses(Set<String> classNamesToRemove) {
+        Map<String, ClassBuilderAndSourceFileList> deferred = deferredGenerators.get();
         for (String classInternalName : classNamesToRemove) {
+            if (deferred != null) {
+                deferred.remove(classInternalName + ".class");
+            }
             generators.remove(classInternalName + ".class");
         }
     }
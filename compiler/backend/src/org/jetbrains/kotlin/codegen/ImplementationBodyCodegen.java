@@ -62,7 +62,6 @@ import org.jetbrains.kotlin.resolve.jvm.jvmSignature.JvmMethodSignature;
 import org.jetbrains.kotlin.serialization.ClassData;
 import org.jetbrains.kotlin.serialization.DescriptorSerializer;
 import org.jetbrains.kotlin.serialization.ProtoBuf;
-import org.jetbrains.kotlin.serialization.jvm.BitEncoding;
 import org.jetbrains.kotlin.types.JetType;
 import org.jetbrains.kotlin.types.checker.JetTypeChecker;
 import org.jetbrains.org.objectweb.asm.*;
@@ -249,11 +248,7 @@ public class ImplementationBodyCodegen extends ClassBodyCodegen {
                 Type.getObjectType(KotlinClass.KIND_INTERNAL_NAME).getDescriptor(),
                 kind.toString()
         );
-        AnnotationVisitor array = av.visitArray(JvmAnnotationNames.DATA_FIELD_NAME);
-        for (String string : BitEncoding.encodeBytes(data.toBytes())) {
-            array.visit(null, string);
-        }
-        array.visitEnd();
+        writeAnnotationData(av, data.toBytes());
         av.visitEnd();
     }
 
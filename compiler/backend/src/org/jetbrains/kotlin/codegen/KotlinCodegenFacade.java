@@ -17,18 +17,26 @@
 package org.jetbrains.kotlin.codegen;
 
 import com.google.common.collect.Sets;
+import com.intellij.psi.util.PsiTreeUtil;
 import com.intellij.util.containers.MultiMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.codegen.state.GenerationState;
+import org.jetbrains.kotlin.descriptors.SimpleFunctionDescriptor;
 import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.psi.JetFile;
+import org.jetbrains.kotlin.psi.JetNamedFunction;
 import org.jetbrains.kotlin.psi.JetScript;
+import org.jetbrains.kotlin.resolve.BindingContext;
 import org.jetbrains.kotlin.resolve.ScriptNameUtil;
+import org.jetbrains.kotlin.utils.UtilsPackage;
 import org.jetbrains.org.objectweb.asm.Type;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.*;
 
 import static org.jetbrains.kotlin.codegen.binding.CodegenBinding.registerClassNameForScript;
 
@@ -63,13 +71,113 @@ public class KotlinCodegenFacade {
         }
 
         Set<FqName> packagesWithObsoleteParts = new HashSet<FqName>(state.getPackagesWithObsoleteParts());
-        for (FqName fqName : Sets.union(packagesWithObsoleteParts, packageFqNameToFiles.keySet())) {
-            generatePackage(state, fqName, packageFqNameToFiles.get(fqName), errorHandler);
+        Set<FqName> packages = Sets.union(packagesWithObsoleteParts, packageFqNameToFiles.keySet());
+        if (state.isParallelCodegenEnabled() && packages.size() > 1) {
+            generatePackagesInParallel(state, packages, packageFqNameToFiles, errorHandler);
+        }
+        else {
+            for (FqName fqName : packages) {
+                generatePackage(state, fqName, packageFqNameToFiles.get(fqName), errorHandler);
+            }
         }
 
         state.getFactory().done();
     }
 
+    private static void generatePackagesInParallel(
+            @NotNull GenerationState state,
+            @NotNull Set<FqName> packages,
+            @NotNull MultiMap<FqName, JetFile> packageFqNameToFiles,
+            @NotNull CompilationErrorHandler errorHandler
+    ) {
+        ClassFileFactory factory = state.getFactory();
+
+        List<PackageCodegen> codegens = new ArrayList<PackageCodegen>(packages.size());
+        List<Boolean> hasInlineFunctions = new ArrayList<Boolean>(packages.size());
+        for (FqName fqName : packages) {
+            Collection<JetFile> files = packageFqNameToFiles.get(fqName);
+            codegens.add(factory.forPackage(fqName, files));
+            hasInlineFunctions.add(containsInlineFunctions(state, files));
+        }
+
+        // Bodies of inline functions are read back from the generated bytecode at their call sites, so packages declaring them
+        // are generated first, on this thread, and published before any other package starts
+        ClassFileFactory.DeferredOutputs[] outputs = new ClassFileFactory.DeferredOutputs[codegens.size()];
+        for (int i = 0; i < codegens.size(); i++) {
+            if (hasInlineFunctions.get(i)) {
+                outputs[i] = factory.generateDeferred(asRunnable(codegens.get(i), errorHandler));
+                factory.publish(outputs[i]);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(codegens.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<ClassFileFactory.DeferredOutputs>> futures = new ArrayList<Future<ClassFileFactory.DeferredOutputs>>(codegens.size());
+            for (int i = 0; i < codegens.size(); i++) {
+                futures.add(outputs[i] != null
+                            ? null
+                            : executor.submit(new DeferredPackageGeneration(factory, asRunnable(codegens.get(i), errorHandler))));
+            }
+
+            // Commit in the order of the sequential mode, so that the output does not depend on thread scheduling
+            for (int i = 0; i < codegens.size(); i++) {
+                Future<ClassFileFactory.DeferredOutputs> future = futures.get(i);
+                factory.commit(future != null ? getResult(future) : outputs[i]);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @NotNull
+    private static Runnable asRunnable(@NotNull final PackageCodegen codegen, @NotNull final CompilationErrorHandler errorHandler) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                codegen.generate(errorHandler);
+            }
+        };
+    }
+
+    private static class DeferredPackageGeneration implements Callable<ClassFileFactory.DeferredOutputs> {
+        private final ClassFileFactory factory;
+        private final Runnable generation;
+
+        public DeferredPackageGeneration(@NotNull ClassFileFactory factory, @NotNull Runnable generation) {
+            this.factory = factory;
+            this.generation = generation;
+        }
+
+        @Override
+        public ClassFileFactory.DeferredOutputs call() {
+            return factory.generateDeferred(generation);
+        }
+    }
+
+    @NotNull
+    private static <T> T getResult(@NotNull Future<T> future) {
+        try {
+            return future.get();
+        }
+        catch (InterruptedException e) {
+            throw UtilsPackage.rethrow(e);
+        }
+        catch (ExecutionException e) {
+            throw UtilsPackage.rethrow(e.getCause());
+        }
+    }
+
+    private static boolean containsInlineFunctions(@NotNull GenerationState state, @NotNull Collection<JetFile> files) {
+        for (JetFile file : files) {
+            for (JetNamedFunction function : PsiTreeUtil.findChildrenOfType(file, JetNamedFunction.class)) {
+                SimpleFunctionDescriptor descriptor = state.getBindingContext().get(BindingContext.FUNCTION, function);
+                if (descriptor != null && descriptor.getInlineStrategy().isInline()) return true;
+            }
+        }
+        return false;
+    }
+
     public static void generatePackage(
             @NotNull GenerationState state,
             @NotNull FqName fqName,
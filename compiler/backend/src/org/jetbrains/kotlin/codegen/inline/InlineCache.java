@@ -0,0 +1,172 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.inline;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bodies of compiled inline functions and contents of compiled class files from dependencies, read during one code generation.
+ *
+ * Stdlib inline functions like 'let' or 'map' are inlined at lots of call sites, and without the cache the whole container class
+ * would be read and parsed for each of them. Cached method nodes are templates: {@link MethodInliner} transforms the node it is given,
+ * so each call to {@link #getMethodNode} returns a fresh copy of the template.
+ *
+ * Both parts of the cache are bounded, least recently used entries are evicted first: method templates by their number
+ * ({@link #MAX_METHODS_PROPERTY}), class files by their total size in bytes ({@link #MAX_CLASS_BYTES_PROPERTY}).
+ * Zero disables the corresponding part.
+ */
+public class InlineCache {
+    public static final String MAX_METHODS_PROPERTY = "kotlin.inline.cache.methods";
+    public static final String MAX_CLASS_BYTES_PROPERTY = "kotlin.inline.cache.class.bytes";
+
+    private static final int DEFAULT_MAX_METHODS = 1024;
+    private static final int DEFAULT_MAX_CLASS_BYTES = 16 * 1024 * 1024;
+
+    private static class Template {
+        private final MethodNode node;
+        private final SMAP smap;
+
+        private Template(@NotNull MethodNode node, @NotNull SMAP smap) {
+            this.node = node;
+            this.smap = smap;
+        }
+    }
+
+    private final int maxMethods;
+    private final int maxClassBytes;
+
+    // Guarded by this
+    private final Map<String, Template> templates;
+    private final LinkedHashMap<VirtualFile, byte[]> classBytes = new LinkedHashMap<VirtualFile, byte[]>(16, 0.75f, true);
+    private int classBytesSize;
+    private int hitCount;
+    private int missCount;
+
+    public InlineCache() {
+        this(Integer.getInteger(MAX_METHODS_PROPERTY, DEFAULT_MAX_METHODS),
+             Integer.getInteger(MAX_CLASS_BYTES_PROPERTY, DEFAULT_MAX_CLASS_BYTES));
+    }
+
+    public InlineCache(final int maxMethods, int maxClassBytes) {
+        this.maxMethods = maxMethods;
+        this.maxClassBytes = maxClassBytes;
+        this.templates = new LinkedHashMap<String, Template>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                return size() > maxMethods;
+            }
+        };
+    }
+
+    @NotNull
+    public static String methodKey(@NotNull String owner, @NotNull String name, @NotNull String desc) {
+        return owner + "." + name + desc;
+    }
+
+    /**
+     * @return a copy of the cached method node, which can be freely modified by the caller, or null if there's no such node in the cache
+     */
+    @Nullable
+    public SMAPAndMethodNode getMethodNode(@NotNull String key) {
+        Template template;
+        synchronized (this) {
+            template = templates.get(key);
+            if (template == null) {
+                missCount++;
+                return null;
+            }
+            hitCount++;
+        }
+        return new SMAPAndMethodNode(copy(template.node), template.smap);
+    }
+
+    /**
+     * Caches a copy of the given node, so that the node itself can still be modified by the caller
+     */
+    public void putMethodNode(@NotNull String key, @NotNull SMAPAndMethodNode nodeAndSmap) {
+        if (maxMethods <= 0) return;
+
+        Template template = new Template(copy(nodeAndSmap.getNode()), nodeAndSmap.getClassSMAP());
+        synchronized (this) {
+            templates.put(key, template);
+        }
+    }
+
+    @NotNull
+    public byte[] getClassBytes(@NotNull VirtualFile file) throws IOException {
+        synchronized (this) {
+            byte[] cached = classBytes.get(file);
+            if (cached != null) return cached;
+        }
+
+        byte[] bytes = file.contentsToByteArray();
+        if (bytes.length > maxClassBytes) return bytes;
+
+        synchronized (this) {
+            byte[] previous = classBytes.put(file, bytes);
+            classBytesSize += bytes.length - (previous != null ? previous.length : 0);
+
+            Iterator<byte[]> iterator = classBytes.values().iterator();
+            while (classBytesSize > maxClassBytes && iterator.hasNext()) {
+                classBytesSize -= iterator.next().length;
+                iterator.remove();
+            }
+        }
+        return bytes;
+    }
+
+    @NotNull
+    private static MethodNode copy(@NotNull MethodNode node) {
+        MethodNode result = new MethodNode(InlineCodegenUtil.API, node.access, node.name, node.desc, node.signature,
+                                           ArrayUtil.toStringArray(node.exceptions));
+        // Labels of the template are recreated on each copy, otherwise the copies would share label nodes
+        synchronized (node) {
+            node.instructions.resetLabels();
+            node.accept(result);
+        }
+        return result;
+    }
+
+    public synchronized int getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized int getMissCount() {
+        return missCount;
+    }
+
+    public synchronized void clear() {
+        templates.clear();
+        classBytes.clear();
+        classBytesSize = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Inline cache: " + templates.size() + " methods, " + classBytes.size() + " class files (" + classBytesSize + " bytes), " +
+               hitCount + " hits, " + missCount + " misses";
+    }
+}
@@ -174,17 +174,24 @@ public class InlineCodegen extends CallGenerator {
                     (DeserializedSimpleFunctionDescriptor) functionDescriptor);
 
             VirtualFile file = InlineCodegenUtil.getVirtualFileForCallable(containerClassId, state);
+            String cacheKey = InlineCache.methodKey(containerClassId.toString(), asmMethod.getName(), asmMethod.getDescriptor());
             if (functionDescriptor.getContainingDeclaration() instanceof PackageFragmentDescriptor) {
                 /*use facade class*/
                 containerClassId = PackageClassUtils.getPackageClassId(containerClassId.getPackageFqName());
             }
-            nodeAndSMAP = InlineCodegenUtil.getMethodNode(file.contentsToByteArray(),
-                                                          asmMethod.getName(),
-                                                          asmMethod.getDescriptor(),
-                                                          containerClassId);
 
+            InlineCache inlineCache = state.getInlineCache();
+            nodeAndSMAP = inlineCache.getMethodNode(cacheKey);
             if (nodeAndSMAP == null) {
-                throw new RuntimeException("Couldn't obtain compiled function body for " + descriptorName(functionDescriptor));
+                nodeAndSMAP = InlineCodegenUtil.getMethodNode(inlineCache.getClassBytes(file),
+                                                              asmMethod.getName(),
+                                                              asmMethod.getDescriptor(),
+                                                              containerClassId);
+
+                if (nodeAndSMAP == null) {
+                    throw new RuntimeException("Couldn't obtain compiled function body for " + descriptorName(functionDescriptor));
+                }
+                inlineCache.putMethodNode(cacheKey, nodeAndSMAP);
             }
         }
         else {
@@ -127,6 +127,10 @@ public class InlineCodegenUtil {
             }
         }, ClassReader.SKIP_FRAMES | (GENERATE_SMAP ? 0 : ClassReader.SKIP_DEBUG));
 
+        if (node[0] == null) {
+            return null;
+        }
+
         SMAP smap = SMAPParser.parseOrCreateDefault(debugInfo[1], debugInfo[0], classId.toString(), lines[0], lines[1]);
         return new SMAPAndMethodNode(node[0], smap);
     }
@@ -407,7 +411,7 @@ public class InlineCodegenUtil {
                 if (file == null) {
                     throw new RuntimeException("Couldn't find virtual file for " + internalName);
                 }
-                return new ClassReader(file.contentsToByteArray());
+                return new ClassReader(state.getInlineCache().getClassBytes(file));
             }
         }
         catch (IOException e) {
@@ -31,11 +31,11 @@ public class NameGenerator {
         this.ownerMethod = onwerMethod;
     }
 
-    public String genLambdaClassName() {
+    public synchronized String genLambdaClassName() {
         return ownerMethod + "$" + nextIndex++;
     }
 
-    public NameGenerator subGenerator(String inliningMethod) {
+    public synchronized NameGenerator subGenerator(String inliningMethod) {
         NameGenerator generator = subGenerators.get(inliningMethod);
         if (generator == null) {
             generator = new NameGenerator(ownerMethod+ "$" + inliningMethod);
@@ -16,22 +16,28 @@
 
 package org.jetbrains.kotlin.codegen.optimization
 
-import org.jetbrains.org.objectweb.asm.tree.MethodNode
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
-import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
 
 public class DeadCodeEliminationMethodTransformer : MethodTransformer() {
-    override fun transform(internalClassName: String, methodNode: MethodNode) {
-        val frames = MethodTransformer.analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
-        val insnList = methodNode.instructions
+    // Unreachable instructions are those without a frame, but they can be found by the control flow graph alone
+    override fun needsFrames() = false
+
+    override fun transform(context: MethodAnalysisContext) {
+        val reachable = context.getControlFlowGraph().getReachableInstructions()
+        val insnList = context.getNode().instructions
         val insnsArray = insnList.toArray()
 
         // Do not remove not meaningful nodes (labels/linenumbers) because they can be referred
         // by try/catch blocks or local variables table
         // We remove unneeded ones further after all optimizations by calling CommonPackage.prepareForEmitting(methodNode)
-        insnsArray.zip(frames).filter {
-            it.second == null && it.first.isMeaningful
-        }.forEach { insnList.remove(it.first) }
+        val insnsToRemove = insnsArray.indices.filter {
+            !reachable[it] && insnsArray[it].isMeaningful
+        }
+        if (insnsToRemove.isEmpty()) return
+
+        insnsToRemove.forEach { insnList.remove(insnsArray[it]) }
+        context.instructionsChanged()
     }
 }
@@ -21,7 +21,9 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil;
 import org.jetbrains.kotlin.codegen.optimization.boxing.RedundantBoxingMethodTransformer;
 import org.jetbrains.kotlin.codegen.optimization.boxing.RedundantNullCheckMethodTransformer;
+import org.jetbrains.kotlin.codegen.optimization.captured.CapturedVarsOptimizationMethodTransformer;
 import org.jetbrains.kotlin.codegen.optimization.common.CommonPackage;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext;
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer;
 import org.jetbrains.org.objectweb.asm.MethodVisitor;
 import org.jetbrains.org.objectweb.asm.Opcodes;
@@ -34,8 +36,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class OptimizationMethodVisitor extends MethodVisitor {
-    private static final int MEMORY_LIMIT_BY_METHOD_MB = 50;
     private static final MethodTransformer[] TRANSFORMERS = new MethodTransformer[]{
+            new CapturedVarsOptimizationMethodTransformer(),
             new RedundantNullCheckMethodTransformer(),
             new RedundantBoxingMethodTransformer(),
             new DeadCodeEliminationMethodTransformer(),
@@ -70,9 +72,13 @@ public class OptimizationMethodVisitor extends MethodVisitor {
 
         super.visitEnd();
 
-        if (canBeAnalyzed(methodNode)) {
+        if (methodNode.instructions.size() > 0) {
+            MethodAnalysisContext context = new MethodAnalysisContext("fake", methodNode);
+            boolean canAnalyzeFrames = context.canAnalyzeFrames();
             for (MethodTransformer transformer : TRANSFORMERS) {
-                transformer.transform("fake", methodNode);
+                if (canAnalyzeFrames || !transformer.needsFrames()) {
+                    transformer.transform(context);
+                }
             }
             CommonPackage.prepareForEmitting(methodNode);
         }
@@ -120,12 +126,4 @@ public class OptimizationMethodVisitor extends MethodVisitor {
 
         return traceMethodVisitor;
     }
-
-    private static boolean canBeAnalyzed(@NotNull MethodNode node) {
-        int totalFramesSizeMb = node.instructions.size() *
-                              (node.maxLocals + node.maxStack) / (1024 * 1024);
-
-        return node.instructions.size() > 0 &&
-               totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB;
-    }
 }
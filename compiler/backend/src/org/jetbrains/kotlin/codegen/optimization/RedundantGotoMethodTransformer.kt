@@ -17,7 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
-import org.jetbrains.org.objectweb.asm.tree.MethodNode
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
 import org.jetbrains.org.objectweb.asm.tree.LabelNode
 import org.jetbrains.org.objectweb.asm.Opcodes
@@ -25,10 +25,13 @@ import org.jetbrains.org.objectweb.asm.tree.JumpInsnNode
 import org.jetbrains.kotlin.codegen.optimization.common.isMeaningful
 
 public class RedundantGotoMethodTransformer : MethodTransformer() {
+    override fun needsFrames() = false
+
     /**
      * Removes redundant GOTO's, i.e. to subsequent labels
      */
-    override fun transform(internalClassName: String, methodNode: MethodNode) {
+    override fun transform(context: MethodAnalysisContext) {
+        val methodNode = context.getNode()
         val insns = methodNode.instructions.toArray()
         val insnsToRemove = arrayListOf<AbstractInsnNode>()
 
@@ -49,8 +52,11 @@ public class RedundantGotoMethodTransformer : MethodTransformer() {
             }
         }
 
+        if (insnsToRemove.isEmpty()) return
+
         for (insnToRemove in insnsToRemove) {
             methodNode.instructions.remove(insnToRemove)
         }
+        context.instructionsChanged()
     }
 }
@@ -17,7 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization
 
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer
-import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext
 import org.jetbrains.kotlin.codegen.inline.InlineCodegenUtil
 import org.jetbrains.org.objectweb.asm.tree.MethodNode
 import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode
@@ -30,14 +30,18 @@ import org.jetbrains.org.objectweb.asm.Type
 import com.intellij.util.containers.Stack
 
 class StoreStackBeforeInlineMethodTransformer : MethodTransformer() {
-    override fun transform(internalClassName: String, methodNode: MethodNode) {
-        val frames = MethodTransformer.analyze(internalClassName, methodNode, OptimizationBasicInterpreter())
+    override fun transform(context: MethodAnalysisContext) {
+        val methodNode = context.getNode()
+        if (methodNode.instructions.toArray().none { isInlineMarker(it) }) return
+
+        val frames = context.getBasicFrames()
         if (needToProcess(methodNode, frames)) {
             process(methodNode, frames)
         }
         else {
             removeInlineMarkers(methodNode)
         }
+        context.instructionsChanged()
     }
 }
 
@@ -20,6 +20,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
 import com.intellij.openapi.util.Pair;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext;
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer;
 import org.jetbrains.org.objectweb.asm.Opcodes;
 import org.jetbrains.org.objectweb.asm.Type;
@@ -33,11 +34,10 @@ import java.util.*;
 public class RedundantBoxingMethodTransformer extends MethodTransformer {
 
     @Override
-    public void transform(@NotNull String internalClassName, @NotNull MethodNode node) {
+    public void transform(@NotNull MethodAnalysisContext context) {
+        MethodNode node = context.getNode();
         RedundantBoxingInterpreter interpreter = new RedundantBoxingInterpreter(node.instructions);
-        Frame<BasicValue>[] frames = analyze(
-                internalClassName, node, interpreter
-        );
+        Frame<BasicValue>[] frames = context.analyze(interpreter);
         interpretPopInstructionsForBoxedValues(interpreter, node, frames);
 
         RedundantBoxedValuesCollection valuesToOptimize = interpreter.getCandidatesBoxedValues();
@@ -51,6 +51,8 @@ public class RedundantBoxingMethodTransformer extends MethodTransformer {
             applyVariablesRemapping(node, buildVariablesRemapping(valuesToOptimize, node));
 
             adaptInstructionsForBoxedValues(node, valuesToOptimize);
+
+            context.instructionsChanged();
         }
     }
 
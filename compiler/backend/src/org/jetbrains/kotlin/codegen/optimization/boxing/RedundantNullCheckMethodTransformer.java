@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.codegen.optimization.boxing;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext;
 import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer;
 import org.jetbrains.org.objectweb.asm.Opcodes;
 import org.jetbrains.org.objectweb.asm.tree.*;
@@ -29,18 +30,15 @@ import java.util.List;
 public class RedundantNullCheckMethodTransformer extends MethodTransformer {
 
     @Override
-    public void transform(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
-        while (removeRedundantNullCheckPass(internalClassName, methodNode)) {
-            //do nothing
+    public void transform(@NotNull MethodAnalysisContext context) {
+        while (removeRedundantNullCheckPass(context)) {
+            context.instructionsChanged();
         }
     }
 
-    private static boolean removeRedundantNullCheckPass(@NotNull String internalClassName, @NotNull MethodNode methodNode) {
-        InsnList insnList = methodNode.instructions;
-        Frame<BasicValue>[] frames = analyze(
-                internalClassName, methodNode,
-                new NullabilityInterpreter(insnList)
-        );
+    private static boolean removeRedundantNullCheckPass(@NotNull MethodAnalysisContext context) {
+        InsnList insnList = context.getNode().instructions;
+        Frame<BasicValue>[] frames = context.analyze(new NullabilityInterpreter(insnList));
 
         List<AbstractInsnNode> insnsToOptimize = new ArrayList<AbstractInsnNode>();
 
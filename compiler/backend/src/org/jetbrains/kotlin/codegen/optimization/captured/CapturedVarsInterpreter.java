@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.captured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.Type;
+import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.FieldInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.MethodInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.TypeInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.analysis.AnalyzerException;
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue;
+
+import java.util.*;
+
+import static org.jetbrains.kotlin.resolve.jvm.AsmTypes.OBJECT_TYPE;
+
+class CapturedVarsInterpreter extends OptimizationBasicInterpreter {
+    private final Map<AbstractInsnNode, RefBasicValue> values = new LinkedHashMap<AbstractInsnNode, RefBasicValue>();
+
+    @Override
+    public BasicValue newOperation(@NotNull AbstractInsnNode insn) throws AnalyzerException {
+        if (insn.getOpcode() == Opcodes.NEW) {
+            Type elementType = CapturedVarsOptimizationMethodTransformer.getRefElementType(((TypeInsnNode) insn).desc);
+            if (elementType != null) {
+                RefBasicValue value = values.get(insn);
+                if (value == null) {
+                    value = new RefBasicValue((TypeInsnNode) insn, elementType);
+                    values.put(insn, value);
+                }
+                return value;
+            }
+        }
+
+        return super.newOperation(insn);
+    }
+
+    @NotNull
+    @Override
+    public BasicValue copyOperation(@NotNull AbstractInsnNode insn, @NotNull BasicValue value) throws AnalyzerException {
+        int opcode = insn.getOpcode();
+        if (value instanceof RefBasicValue && (opcode == Opcodes.ALOAD || opcode == Opcodes.ASTORE || opcode == Opcodes.DUP)) {
+            ((RefBasicValue) value).addInsn(insn);
+        }
+        else {
+            markAsEscaping(value);
+        }
+
+        return super.copyOperation(insn, value);
+    }
+
+    @Nullable
+    @Override
+    public BasicValue unaryOperation(@NotNull AbstractInsnNode insn, @NotNull BasicValue value) throws AnalyzerException {
+        if (value instanceof RefBasicValue) {
+            RefBasicValue refValue = (RefBasicValue) value;
+            if (insn.getOpcode() == Opcodes.GETFIELD && isElementField((FieldInsnNode) insn, refValue)) {
+                refValue.addInsn(insn);
+                return super.unaryOperation(insn, value);
+            }
+            if (insn.getOpcode() == Opcodes.CHECKCAST && ((TypeInsnNode) insn).desc.equals(value.getType().getInternalName())) {
+                refValue.addInsn(insn);
+                return value;
+            }
+        }
+
+        markAsEscaping(value);
+        return super.unaryOperation(insn, value);
+    }
+
+    @Override
+    public BasicValue binaryOperation(
+            @NotNull AbstractInsnNode insn,
+            @NotNull BasicValue value1,
+            @NotNull BasicValue value2
+    ) throws AnalyzerException {
+        if (insn.getOpcode() == Opcodes.PUTFIELD &&
+            value1 instanceof RefBasicValue &&
+            isElementField((FieldInsnNode) insn, (RefBasicValue) value1)) {
+            ((RefBasicValue) value1).addInsn(insn);
+        }
+        else {
+            markAsEscaping(value1);
+        }
+        markAsEscaping(value2);
+
+        return super.binaryOperation(insn, value1, value2);
+    }
+
+    @Override
+    public BasicValue ternaryOperation(
+            @NotNull AbstractInsnNode insn,
+            @NotNull BasicValue value1,
+            @NotNull BasicValue value2,
+            @NotNull BasicValue value3
+    ) throws AnalyzerException {
+        markAsEscaping(value1);
+        markAsEscaping(value2);
+        markAsEscaping(value3);
+
+        return super.ternaryOperation(insn, value1, value2, value3);
+    }
+
+    @Override
+    public BasicValue naryOperation(@NotNull AbstractInsnNode insn, @NotNull List<? extends BasicValue> values) throws AnalyzerException {
+        if (isRefConstructorCall(insn, values)) {
+            ((RefBasicValue) values.get(0)).addInsn(insn);
+        }
+        else {
+            for (BasicValue value : values) {
+                markAsEscaping(value);
+            }
+        }
+
+        return super.naryOperation(insn, values);
+    }
+
+    private static boolean isRefConstructorCall(@NotNull AbstractInsnNode insn, @NotNull List<? extends BasicValue> values) {
+        if (insn.getOpcode() != Opcodes.INVOKESPECIAL || values.size() != 1 || !(values.get(0) instanceof RefBasicValue)) return false;
+
+        MethodInsnNode methodInsn = (MethodInsnNode) insn;
+        return "<init>".equals(methodInsn.name) && "()V".equals(methodInsn.desc) &&
+               methodInsn.owner.equals(values.get(0).getType().getInternalName());
+    }
+
+    private static boolean isElementField(@NotNull FieldInsnNode insn, @NotNull RefBasicValue value) {
+        return "element".equals(insn.name) && insn.owner.equals(value.getType().getInternalName());
+    }
+
+    @NotNull
+    @Override
+    public BasicValue merge(@NotNull BasicValue v, @NotNull BasicValue w) {
+        if (v == w) return v;
+
+        if (isRef(v) || isRef(w)) {
+            // Different values may flow into the same local variable, e.g. when its slot is reused by another variable.
+            // It's not a problem unless the merged value is used
+            Set<RefBasicValue> refs = new HashSet<RefBasicValue>();
+            addRefs(v, refs);
+            addRefs(w, refs);
+            return new MergedRefsValue(refs);
+        }
+
+        return super.merge(v, w);
+    }
+
+    /**
+     * Stack manipulation instructions (except DUP) move values without telling the interpreter, so they're checked after the analysis
+     */
+    public void processStackManipulation(@NotNull BasicValue value) {
+        markAsEscaping(value);
+    }
+
+    @NotNull
+    public Collection<RefBasicValue> getRefValues() {
+        return values.values();
+    }
+
+    private static boolean isRef(@Nullable BasicValue value) {
+        return value instanceof RefBasicValue || value instanceof MergedRefsValue;
+    }
+
+    private static void addRefs(@NotNull BasicValue value, @NotNull Set<RefBasicValue> refs) {
+        if (value instanceof RefBasicValue) {
+            refs.add((RefBasicValue) value);
+        }
+        else if (value instanceof MergedRefsValue) {
+            refs.addAll(((MergedRefsValue) value).refs);
+        }
+    }
+
+    private static void markAsEscaping(@Nullable BasicValue value) {
+        if (value instanceof RefBasicValue) {
+            ((RefBasicValue) value).markAsEscaping();
+        }
+        else if (value instanceof MergedRefsValue) {
+            for (RefBasicValue ref : ((MergedRefsValue) value).refs) {
+                ref.markAsEscaping();
+            }
+        }
+    }
+
+    private static class MergedRefsValue extends BasicValue {
+        private final Set<RefBasicValue> refs;
+
+        public MergedRefsValue(@NotNull Set<RefBasicValue> refs) {
+            super(OBJECT_TYPE);
+            this.refs = refs;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof MergedRefsValue && refs.equals(((MergedRefsValue) o).refs);
+        }
+
+        @Override
+        public int hashCode() {
+            return refs.hashCode();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.captured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.codegen.StackValue;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodTransformer;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.Type;
+import org.jetbrains.org.objectweb.asm.tree.*;
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue;
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame;
+
+import java.util.*;
+
+import static org.jetbrains.kotlin.resolve.jvm.AsmTypes.*;
+
+/**
+ * Replaces instances of kotlin.jvm.internal.Ref which don't escape the method with plain local variables.
+ *
+ * A local variable which is modified in a lambda is stored in a Ref, but once the lambda is inlined the Ref usually
+ * is only accessed by the method itself, and so its allocation (and an allocation on each iteration if it's declared in a loop)
+ * can be avoided.
+ */
+public class CapturedVarsOptimizationMethodTransformer extends MethodTransformer {
+    private static final Map<String, Type> REF_ELEMENT_TYPES = new HashMap<String, Type>();
+
+    static {
+        REF_ELEMENT_TYPES.put(OBJECT_REF_TYPE.getInternalName(), OBJECT_TYPE);
+        for (Type type : new Type[] {
+                Type.BOOLEAN_TYPE, Type.CHAR_TYPE, Type.BYTE_TYPE, Type.SHORT_TYPE,
+                Type.INT_TYPE, Type.FLOAT_TYPE, Type.LONG_TYPE, Type.DOUBLE_TYPE
+        }) {
+            REF_ELEMENT_TYPES.put(StackValue.sharedTypeForType(type).getInternalName(), type);
+        }
+    }
+
+    @Nullable
+    static Type getRefElementType(@NotNull String internalName) {
+        return REF_ELEMENT_TYPES.get(internalName);
+    }
+
+    @Override
+    public void transform(@NotNull MethodAnalysisContext context) {
+        MethodNode node = context.getNode();
+        if (!hasRefAllocations(node)) return;
+
+        CapturedVarsInterpreter interpreter = new CapturedVarsInterpreter();
+        Frame<BasicValue>[] frames = context.analyze(interpreter);
+        interpretStackManipulations(interpreter, node, frames);
+
+        List<RefBasicValue> valuesToOptimize = new ArrayList<RefBasicValue>();
+        for (RefBasicValue value : interpreter.getRefValues()) {
+            if (!value.isEscaping() && hasConstructorCall(value)) {
+                valuesToOptimize.add(value);
+            }
+        }
+        if (valuesToOptimize.isEmpty()) return;
+
+        // Local variables table refers to instructions by labels, so it's adapted while frames still correspond to instructions
+        Map<RefBasicValue, Integer> newVariableIndices = new HashMap<RefBasicValue, Integer>();
+        for (RefBasicValue value : valuesToOptimize) {
+            int index = node.maxLocals;
+            node.maxLocals += value.getElementType().getSize();
+            newVariableIndices.put(value, index);
+            adaptLocalVariableTable(node, frames, value, index);
+        }
+
+        for (RefBasicValue value : valuesToOptimize) {
+            replaceWithLocalVariable(node, value, newVariableIndices.get(value));
+        }
+
+        context.instructionsChanged();
+    }
+
+    private static boolean hasRefAllocations(@NotNull MethodNode node) {
+        for (AbstractInsnNode insn = node.instructions.getFirst(); insn != null; insn = insn.getNext()) {
+            if (insn.getOpcode() == Opcodes.NEW && getRefElementType(((TypeInsnNode) insn).desc) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasConstructorCall(@NotNull RefBasicValue value) {
+        for (AbstractInsnNode insn : value.getAssociatedInsns()) {
+            if (insn.getOpcode() == Opcodes.INVOKESPECIAL) return true;
+        }
+        return false;
+    }
+
+    private static void interpretStackManipulations(
+            @NotNull CapturedVarsInterpreter interpreter,
+            @NotNull MethodNode node,
+            @NotNull Frame<BasicValue>[] frames
+    ) {
+        for (int i = 0; i < node.instructions.size(); i++) {
+            Frame<BasicValue> frame = frames[i];
+            if (frame == null) continue;
+
+            switch (node.instructions.get(i).getOpcode()) {
+                case Opcodes.POP:
+                    BasicValue top = frame.getStack(frame.getStackSize() - 1);
+                    if (top instanceof RefBasicValue) {
+                        ((RefBasicValue) top).addInsn(node.instructions.get(i));
+                    }
+                    else {
+                        interpreter.processStackManipulation(top);
+                    }
+                    break;
+                case Opcodes.POP2:
+                case Opcodes.DUP_X1:
+                case Opcodes.DUP_X2:
+                case Opcodes.DUP2:
+                case Opcodes.DUP2_X1:
+                case Opcodes.DUP2_X2:
+                case Opcodes.SWAP:
+                    for (int j = Math.max(0, frame.getStackSize() - 4); j < frame.getStackSize(); j++) {
+                        interpreter.processStackManipulation(frame.getStack(j));
+                    }
+                    break;
+            }
+        }
+    }
+
+    private static void adaptLocalVariableTable(
+            @NotNull MethodNode node,
+            @NotNull Frame<BasicValue>[] frames,
+            @NotNull RefBasicValue value,
+            int newIndex
+    ) {
+        InsnList insns = node.instructions;
+        for (LocalVariableNode localVariable : node.localVariables) {
+            if (!localVariable.desc.equals(value.getType().getDescriptor())) continue;
+
+            int end = insns.indexOf(localVariable.end);
+            for (int i = insns.indexOf(localVariable.start); i < end; i++) {
+                if (frames[i] != null && frames[i].getLocal(localVariable.index) == value) {
+                    localVariable.index = newIndex;
+                    localVariable.desc = value.getElementType().getDescriptor();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void replaceWithLocalVariable(@NotNull MethodNode node, @NotNull RefBasicValue value, int index) {
+        InsnList insns = node.instructions;
+        Type elementType = value.getElementType();
+
+        insns.remove(value.getAllocation());
+        for (AbstractInsnNode insn : value.getAssociatedInsns()) {
+            switch (insn.getOpcode()) {
+                case Opcodes.INVOKESPECIAL:
+                    // Ref's constructor initializes the element with the default value
+                    insns.insertBefore(insn, new InsnNode(getDefaultValueOpcode(elementType)));
+                    insns.set(insn, new VarInsnNode(elementType.getOpcode(Opcodes.ISTORE), index));
+                    break;
+                case Opcodes.GETFIELD:
+                    insns.set(insn, new VarInsnNode(elementType.getOpcode(Opcodes.ILOAD), index));
+                    break;
+                case Opcodes.PUTFIELD:
+                    insns.set(insn, new VarInsnNode(elementType.getOpcode(Opcodes.ISTORE), index));
+                    break;
+                default:
+                    // ALOAD, ASTORE, DUP, POP and CHECKCAST of the Ref itself
+                    insns.remove(insn);
+            }
+        }
+    }
+
+    private static int getDefaultValueOpcode(@NotNull Type type) {
+        switch (type.getSort()) {
+            case Type.LONG:
+                return Opcodes.LCONST_0;
+            case Type.FLOAT:
+                return Opcodes.FCONST_0;
+            case Type.DOUBLE:
+                return Opcodes.DCONST_0;
+            case Type.OBJECT:
+            case Type.ARRAY:
+                return Opcodes.ACONST_NULL;
+            default:
+                return Opcodes.ICONST_0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.captured;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.org.objectweb.asm.Type;
+import org.jetbrains.org.objectweb.asm.tree.AbstractInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.TypeInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * An instance of kotlin.jvm.internal.Ref created by the given NEW instruction, e.g. for a local variable captured in a lambda.
+ * The value knows all instructions which use it, and whether it escapes (i.e. is used in any way other than creating it,
+ * moving it between the stack and local variables, and accessing its 'element' field).
+ */
+public class RefBasicValue extends BasicValue {
+    private final TypeInsnNode allocation;
+    private final Type elementType;
+    private final Set<AbstractInsnNode> associatedInsns = new LinkedHashSet<AbstractInsnNode>();
+    private boolean escaping = false;
+
+    public RefBasicValue(@NotNull TypeInsnNode allocation, @NotNull Type elementType) {
+        super(Type.getObjectType(allocation.desc));
+        this.allocation = allocation;
+        this.elementType = elementType;
+    }
+
+    @NotNull
+    public TypeInsnNode getAllocation() {
+        return allocation;
+    }
+
+    @NotNull
+    public Type getElementType() {
+        return elementType;
+    }
+
+    public void addInsn(@NotNull AbstractInsnNode insn) {
+        associatedInsns.add(insn);
+    }
+
+    @NotNull
+    public Collection<AbstractInsnNode> getAssociatedInsns() {
+        return associatedInsns;
+    }
+
+    public void markAsEscaping() {
+        escaping = true;
+    }
+
+    public boolean isEscaping() {
+        return escaping;
+    }
+
+    // There's exactly one value for each allocation, see CapturedVarsInterpreter
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o;
+    }
+
+    @Override
+    public int hashCode() {
+        return allocation.hashCode();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.common;
+
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.tree.*;
+
+import java.util.BitSet;
+
+/**
+ * Control flow edges between instructions of a method, including edges to exception handlers, in the same sense
+ * as {@link org.jetbrains.org.objectweb.asm.tree.analysis.Analyzer} sees them.
+ *
+ * Instructions are identified by their indices in the instruction list, so the graph must be rebuilt once the list is changed.
+ * Edges are stored in two int arrays, which takes much less memory than frames, so the graph can be built for methods of any size.
+ */
+public class ControlFlowGraph {
+    private final int size;
+    // Successors of the instruction i are successors[successorsStart[i]] .. successors[successorsStart[i + 1] - 1]
+    private final int[] successorsStart;
+    private final int[] successors;
+    private BitSet reachable;
+
+    private ControlFlowGraph(int size, @NotNull int[] successorsStart, @NotNull int[] successors) {
+        this.size = size;
+        this.successorsStart = successorsStart;
+        this.successors = successors;
+    }
+
+    @NotNull
+    public static ControlFlowGraph build(@NotNull MethodNode node) {
+        InsnList instructions = node.instructions;
+        int size = instructions.size();
+
+        TIntArrayList[] handlers = new TIntArrayList[size];
+        for (TryCatchBlockNode tryCatchBlock : node.tryCatchBlocks) {
+            int handler = instructions.indexOf(tryCatchBlock.handler);
+            int end = instructions.indexOf(tryCatchBlock.end);
+            for (int i = instructions.indexOf(tryCatchBlock.start); i < end; i++) {
+                if (handlers[i] == null) {
+                    handlers[i] = new TIntArrayList(1);
+                }
+                handlers[i].add(handler);
+            }
+        }
+
+        int[] successorsStart = new int[size + 1];
+        TIntArrayList successors = new TIntArrayList(size + size / 4);
+        for (int i = 0; i < size; i++) {
+            successorsStart[i] = successors.size();
+            addSuccessors(instructions, instructions.get(i), i, successors);
+            if (handlers[i] != null) {
+                successors.add(handlers[i].toNativeArray());
+            }
+        }
+        successorsStart[size] = successors.size();
+
+        return new ControlFlowGraph(size, successorsStart, successors.toNativeArray());
+    }
+
+    private static void addSuccessors(
+            @NotNull InsnList instructions,
+            @NotNull AbstractInsnNode insn,
+            int index,
+            @NotNull TIntArrayList result
+    ) {
+        if (insn instanceof JumpInsnNode) {
+            result.add(instructions.indexOf(((JumpInsnNode) insn).label));
+            if (insn.getOpcode() != Opcodes.GOTO) {
+                addNext(instructions, index, result);
+            }
+        }
+        else if (insn instanceof TableSwitchInsnNode) {
+            TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+            result.add(instructions.indexOf(tableSwitch.dflt));
+            for (LabelNode label : tableSwitch.labels) {
+                result.add(instructions.indexOf(label));
+            }
+        }
+        else if (insn instanceof LookupSwitchInsnNode) {
+            LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+            result.add(instructions.indexOf(lookupSwitch.dflt));
+            for (LabelNode label : lookupSwitch.labels) {
+                result.add(instructions.indexOf(label));
+            }
+        }
+        else if (!isExit(insn.getOpcode())) {
+            addNext(instructions, index, result);
+        }
+    }
+
+    private static void addNext(@NotNull InsnList instructions, int index, @NotNull TIntArrayList result) {
+        if (index + 1 < instructions.size()) {
+            result.add(index + 1);
+        }
+    }
+
+    private static boolean isExit(int opcode) {
+        return (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) || opcode == Opcodes.ATHROW || opcode == Opcodes.RET;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @NotNull
+    public int[] getSuccessors(int index) {
+        int start = successorsStart[index];
+        int[] result = new int[successorsStart[index + 1] - start];
+        System.arraycopy(successors, start, result, 0, result.length);
+        return result;
+    }
+
+    /**
+     * @return instructions reachable from the first one, i.e. exactly those which have a non-null frame after the analysis
+     */
+    @NotNull
+    public BitSet getReachableInstructions() {
+        if (reachable != null) return reachable;
+
+        BitSet result = new BitSet(size);
+        if (size > 0) {
+            int[] queue = new int[size];
+            int queueSize = 0;
+            result.set(0);
+            queue[queueSize++] = 0;
+            while (queueSize > 0) {
+                int current = queue[--queueSize];
+                for (int i = successorsStart[current]; i < successorsStart[current + 1]; i++) {
+                    int successor = successors[i];
+                    if (!result.get(successor)) {
+                        result.set(successor);
+                        queue[queueSize++] = successor;
+                    }
+                }
+            }
+        }
+
+        reachable = result;
+        return result;
+    }
+}
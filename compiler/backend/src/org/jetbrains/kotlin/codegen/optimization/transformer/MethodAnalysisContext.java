@@ -0,0 +1,96 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization.transformer;
+
+import kotlin.jvm.KotlinSignature;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.codegen.optimization.common.ControlFlowGraph;
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+import org.jetbrains.org.objectweb.asm.tree.analysis.*;
+
+/**
+ * A method being optimized together with the results of analyses of its current instructions, shared between transformers.
+ * A transformer which changes the instructions must call {@link #instructionsChanged()}, a transformer which changes nothing
+ * keeps the results for the following ones.
+ *
+ * Frames take (number of instructions) * (max locals + max stack) memory, so they're only computed for methods where
+ * it's affordable (see {@link #canAnalyzeFrames()}). The control flow graph can be built for any method.
+ */
+public class MethodAnalysisContext {
+    private static final int MEMORY_LIMIT_BY_METHOD_MB = 50;
+
+    private final String internalClassName;
+    private final MethodNode node;
+
+    private ControlFlowGraph controlFlowGraph;
+    private Frame<BasicValue>[] basicFrames;
+
+    public MethodAnalysisContext(@NotNull String internalClassName, @NotNull MethodNode node) {
+        this.internalClassName = internalClassName;
+        this.node = node;
+    }
+
+    @NotNull
+    public String getInternalClassName() {
+        return internalClassName;
+    }
+
+    @NotNull
+    public MethodNode getNode() {
+        return node;
+    }
+
+    public boolean canAnalyzeFrames() {
+        long totalFramesSizeMb = (long) node.instructions.size() * (node.maxLocals + node.maxStack) / (1024 * 1024);
+        return totalFramesSizeMb < MEMORY_LIMIT_BY_METHOD_MB;
+    }
+
+    @NotNull
+    public ControlFlowGraph getControlFlowGraph() {
+        if (controlFlowGraph == null) {
+            controlFlowGraph = ControlFlowGraph.build(node);
+        }
+        return controlFlowGraph;
+    }
+
+    /**
+     * @return frames computed by {@link OptimizationBasicInterpreter}, which must not be modified
+     */
+    @KotlinSignature("fun getBasicFrames(): Array<Frame<BasicValue>?>")
+    @NotNull
+    public Frame<BasicValue>[] getBasicFrames() {
+        if (basicFrames == null) {
+            basicFrames = analyze(new OptimizationBasicInterpreter());
+        }
+        return basicFrames;
+    }
+
+    /**
+     * Analyzes the method with a custom interpreter, the result is not cached because interpreters usually collect some state
+     */
+    @KotlinSignature("fun <V : Value?> analyze(interpreter: Interpreter<V>): Array<Frame<V>?>")
+    @NotNull
+    public <V extends Value> Frame<V>[] analyze(@NotNull Interpreter<V> interpreter) {
+        return MethodTransformer.runAnalyzer(new Analyzer<V>(interpreter), internalClassName, node);
+    }
+
+    public void instructionsChanged() {
+        controlFlowGraph = null;
+        basicFrames = null;
+    }
+}
@@ -48,5 +48,12 @@ public abstract class MethodTransformer {
         return runAnalyzer(new Analyzer<V>(interpreter), internalClassName, node);
     }
 
-    abstract public void transform(@NotNull String internalClassName, @NotNull MethodNode methodNode);
+    /**
+     * Transformers which need frames are skipped for methods where frames are too large, see {@link MethodAnalysisContext#canAnalyzeFrames()}
+     */
+    public boolean needsFrames() {
+        return true;
+    }
+
+    abstract public void transform(@NotNull MethodAnalysisContext context);
 }
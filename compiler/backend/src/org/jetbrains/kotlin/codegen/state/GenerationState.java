@@ -21,11 +21,13 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.codegen.*;
 import org.jetbrains.kotlin.codegen.binding.CodegenBinding;
+import org.jetbrains.kotlin.codegen.inline.InlineCache;
 import org.jetbrains.kotlin.codegen.intrinsics.IntrinsicMethods;
 import org.jetbrains.kotlin.codegen.optimization.OptimizationClassBuilderFactory;
 import org.jetbrains.kotlin.codegen.when.MappingsClassesForWhenByEnum;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.descriptors.ScriptDescriptor;
+import org.jetbrains.kotlin.diagnostics.Diagnostic;
 import org.jetbrains.kotlin.diagnostics.DiagnosticSink;
 import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.psi.JetClassOrObject;
@@ -100,6 +102,9 @@ public class GenerationState {
     @NotNull
     private final MappingsClassesForWhenByEnum mappingsClassesForWhenByEnum = new MappingsClassesForWhenByEnum(this);
 
+    @NotNull
+    private final InlineCache inlineCache = new InlineCache();
+
     @NotNull
     private final BindingTrace bindingTrace;
 
@@ -114,6 +119,8 @@ public class GenerationState {
 
     private final boolean disableInline;
 
+    private final boolean parallelCodegen;
+
     @Nullable
     private List<ScriptDescriptor> earlierScriptsForReplInterpreter;
 
@@ -162,6 +169,29 @@ public class GenerationState {
             @Nullable String moduleId,
             @NotNull DiagnosticSink diagnostics,
             @Nullable File outDirectory
+    ) {
+        this(project, builderFactory, progress, module, bindingContext, files, disableCallAssertions, disableParamAssertions,
+             generateClassFilter, disableInline, disableOptimization, packagesWithObsoleteParts, moduleId, diagnostics, outDirectory,
+             false);
+    }
+
+    public GenerationState(
+            @NotNull Project project,
+            @NotNull ClassBuilderFactory builderFactory,
+            @NotNull Progress progress,
+            @NotNull ModuleDescriptor module,
+            @NotNull BindingContext bindingContext,
+            @NotNull List<JetFile> files,
+            boolean disableCallAssertions,
+            boolean disableParamAssertions,
+            GenerateClassFilter generateClassFilter,
+            boolean disableInline,
+            boolean disableOptimization,
+            @Nullable Collection<FqName> packagesWithObsoleteParts,
+            @Nullable String moduleId,
+            @NotNull DiagnosticSink diagnostics,
+            @Nullable File outDirectory,
+            boolean parallelCodegen
     ) {
         this.project = project;
         this.progress = progress;
@@ -171,8 +201,12 @@ public class GenerationState {
         this.packagesWithObsoleteParts = packagesWithObsoleteParts == null ? Collections.<FqName>emptySet() : packagesWithObsoleteParts;
         this.classBuilderMode = builderFactory.getClassBuilderMode();
         this.disableInline = disableInline;
+        this.parallelCodegen = parallelCodegen;
 
-        this.bindingTrace = new DelegatingBindingTrace(bindingContext, "trace in GenerationState");
+        // Packages are generated concurrently in the parallel mode, and all of them record into this trace
+        this.bindingTrace = parallelCodegen
+                            ? new SynchronizedBindingTrace(bindingContext, "synchronized trace in GenerationState")
+                            : new DelegatingBindingTrace(bindingContext, "trace in GenerationState");
         this.bindingContext = bindingTrace.getBindingContext();
 
         this.outDirectory = outDirectory;
@@ -184,9 +218,9 @@ public class GenerationState {
             builderFactory = new OptimizationClassBuilderFactory(builderFactory);
         }
 
-        this.diagnostics = diagnostics;
+        this.diagnostics = parallelCodegen ? new SynchronizedDiagnosticSink(diagnostics) : diagnostics;
         this.classFileFactory = new ClassFileFactory(this, new BuilderFactoryForDuplicateSignatureDiagnostics(
-                builderFactory, this.bindingContext, diagnostics));
+                builderFactory, this.bindingContext, this.diagnostics));
 
         this.disableCallAssertions = disableCallAssertions;
         this.disableParamAssertions = disableParamAssertions;
@@ -283,6 +317,15 @@ public class GenerationState {
         return !disableInline;
     }
 
+    @NotNull
+    public InlineCache getInlineCache() {
+        return inlineCache;
+    }
+
+    public boolean isParallelCodegenEnabled() {
+        return parallelCodegen;
+    }
+
     public void beforeCompile() {
         markUsed();
 
@@ -297,6 +340,7 @@ public class GenerationState {
     }
 
     public void destroy() {
+        inlineCache.clear();
     }
 
     @Nullable
@@ -327,4 +371,17 @@ public class GenerationState {
     public File getOutDirectory() {
         return outDirectory;
     }
+
+    private static class SynchronizedDiagnosticSink implements DiagnosticSink {
+        private final DiagnosticSink delegate;
+
+        public SynchronizedDiagnosticSink(@NotNull DiagnosticSink delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void report(@NotNull Diagnostic diagnostic) {
+            delegate.report(diagnostic);
+        }
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.state;
+
+import com.google.common.collect.ImmutableMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.diagnostics.Diagnostic;
+import org.jetbrains.kotlin.resolve.BindingContext;
+import org.jetbrains.kotlin.resolve.DelegatingBindingTrace;
+import org.jetbrains.kotlin.util.slicedMap.ReadOnlySlice;
+import org.jetbrains.kotlin.util.slicedMap.WritableSlice;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Trace of GenerationState in the parallel codegen mode: all packages record into it concurrently.
+ * The binding context of the trace delegates to the methods below, so reads through it are synchronized as well.
+ */
+class SynchronizedBindingTrace extends DelegatingBindingTrace {
+    public SynchronizedBindingTrace(@NotNull BindingContext parentContext, @NotNull String debugName) {
+        super(parentContext, debugName);
+    }
+
+    @Override
+    public synchronized <K, V> void record(WritableSlice<K, V> slice, K key, V value) {
+        super.record(slice, key, value);
+    }
+
+    @Override
+    public synchronized <K> void record(WritableSlice<K, Boolean> slice, K key) {
+        super.record(slice, key);
+    }
+
+    @Override
+    public synchronized <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
+        return super.get(slice, key);
+    }
+
+    @NotNull
+    @Override
+    public synchronized <K, V> Collection<K> getKeys(WritableSlice<K, V> slice) {
+        // The result may be a live view of the underlying map, which other threads keep writing to
+        return new ArrayList<K>(super.getKeys(slice));
+    }
+
+    @NotNull
+    @Override
+    public synchronized <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+        return super.getSliceContents(slice);
+    }
+
+    @Override
+    public synchronized void report(@NotNull Diagnostic diagnostic) {
+        super.report(diagnostic);
+    }
+}
@@ -59,6 +59,12 @@ public class K2JSCompilerArguments extends CommonCompilerArguments {
     @ValueDescription("<path>")
     public String outputPostfix;
 
+    @Argument(value = "Xremove-unused", description = "Remove private and internal functions unreachable from main call and public declarations")
+    public boolean removeUnusedDeclarations;
+
+    @Argument(value = "Xstream-output", description = "Write output files while they are generated instead of keeping them in memory")
+    public boolean streamOutput;
+
     @Override
     @NotNull
     public String executableScriptFileName() {
@@ -66,6 +66,9 @@ public class K2JVMCompilerArguments extends CommonCompilerArguments {
     @Argument(value = "Xno-optimize", description = "Disable optimizations")
     public boolean noOptimize;
 
+    @Argument(value = "Xparallel-codegen", description = "Generate bytecode for different packages in parallel")
+    public boolean parallelCodegen;
+
     @Override
     @NotNull
     public String executableScriptFileName() {
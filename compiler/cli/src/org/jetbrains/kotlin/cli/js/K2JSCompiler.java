@@ -41,6 +41,7 @@ import org.jetbrains.kotlin.cli.common.messages.AnalyzerWithCompilerReport;
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation;
 import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
 import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.common.messages.OutputMessageUtil;
 import org.jetbrains.kotlin.cli.common.output.outputUtils.OutputUtilsPackage;
 import org.jetbrains.kotlin.cli.jvm.JVMConfigurationKeys;
 import org.jetbrains.kotlin.cli.jvm.compiler.CompilerJarLocator;
@@ -57,10 +58,12 @@ import org.jetbrains.kotlin.js.config.LibrarySourcesConfig;
 import org.jetbrains.kotlin.js.facade.K2JSTranslator;
 import org.jetbrains.kotlin.js.facade.MainCallParameters;
 import org.jetbrains.kotlin.js.facade.TranslationResult;
+import org.jetbrains.kotlin.js.inline.clean.RemovedDeclarations;
 import org.jetbrains.kotlin.psi.JetFile;
 import org.jetbrains.kotlin.utils.PathUtil;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 import static org.jetbrains.kotlin.cli.common.ExitCode.COMPILATION_ERROR;
@@ -177,7 +180,13 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
         if (!(translationResult instanceof TranslationResult.Success)) return ExitCode.COMPILATION_ERROR;
 
         TranslationResult.Success successResult = (TranslationResult.Success) translationResult;
-        OutputFileCollection outputFiles = successResult.getOutputFiles(outputFile, outputPrefixFile, outputPostfixFile);
+        RemovedDeclarations removedDeclarations = successResult.getRemovedDeclarations();
+        if (removedDeclarations != null) {
+            messageCollector.report(CompilerMessageSeverity.INFO,
+                                    "Removed " + removedDeclarations.getCount() + " unused declarations (" +
+                                    removedDeclarations.getBytes() + " bytes)",
+                                    CompilerMessageLocation.NO_LOCATION);
+        }
 
         if (outputFile.isDirectory()) {
             messageCollector.report(CompilerMessageSeverity.ERROR,
@@ -190,7 +199,29 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
         if (outputDir == null) {
             outputDir = outputFile.getAbsoluteFile().getParentFile();
         }
-        OutputUtilsPackage.writeAll(outputFiles, outputDir, messageCollector);
+
+        if (arguments.streamOutput) {
+            List<File> writtenFiles;
+            try {
+                writtenFiles = successResult.writeOutputFiles(outputFile, outputPrefixFile, outputPostfixFile);
+            }
+            catch (IOException e) {
+                messageCollector.report(CompilerMessageSeverity.ERROR,
+                                        "Cannot write output file '" + outputFile.getPath() + "': " + e.getMessage(),
+                                        CompilerMessageLocation.NO_LOCATION);
+                return ExitCode.COMPILATION_ERROR;
+            }
+
+            for (File file : writtenFiles) {
+                messageCollector.report(CompilerMessageSeverity.OUTPUT,
+                                        OutputMessageUtil.formatOutputMessage(successResult.getSourceFiles(), new File(outputDir, file.getName())),
+                                        CompilerMessageLocation.NO_LOCATION);
+            }
+        }
+        else {
+            OutputFileCollection outputFiles = successResult.getOutputFiles(outputFile, outputPrefixFile, outputPostfixFile);
+            OutputUtilsPackage.writeAll(outputFiles, outputDir, messageCollector);
+        }
 
         if (arguments.metaInfo != null) {
             new KotlinJavaScriptSerializer().serialize(config.getModuleId(), analysisResult.getModuleDescriptor(), new File(arguments.metaInfo));
@@ -245,7 +276,8 @@ public class K2JSCompiler extends CLICompiler<K2JSCompilerArguments> {
             ContainerUtil.addAllNotNull(libraryFiles, arguments.libraryFiles);
         }
 
-        return new LibrarySourcesConfig(project, moduleId, libraryFiles, ecmaVersion, arguments.sourceMap, inlineEnabled);
+        return new LibrarySourcesConfig(project, moduleId, libraryFiles, ecmaVersion, arguments.sourceMap, inlineEnabled,
+                                        arguments.removeUnusedDeclarations);
     }
 
     public static MainCallParameters createMainCallParameters(String main) {
@@ -28,6 +28,8 @@ public final class ClassPath implements Iterable<VirtualFile> {
     @NotNull
     private final List<VirtualFile> roots = new ArrayList<VirtualFile>();
 
+    private volatile ClassPathPackageIndex index = null;
+
     @NotNull
     @Override
     public Iterator<VirtualFile> iterator() {
@@ -36,5 +38,22 @@ public final class ClassPath implements Iterable<VirtualFile> {
 
     public void add(@NotNull VirtualFile root) {
         roots.add(root);
+        index = null;
+    }
+
+    // Index is dropped every time a root is added, so it never describes a stale set of roots
+    @NotNull
+    public ClassPathPackageIndex getIndex() {
+        ClassPathPackageIndex result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new ClassPathPackageIndex(new ArrayList<VirtualFile>(roots));
+                    index = result;
+                }
+            }
+        }
+        return result;
     }
 }
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.compiler;
+
+import com.intellij.openapi.util.text.StringUtil;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.util.containers.ContainerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lazily built index from package paths to the class path roots containing them.
+ *
+ * Each package directory is listed at most once, after that lookups of classes in it never touch the VFS.
+ * Names which were not found in any root are remembered, so repeated misses are answered from the cache.
+ */
+public final class ClassPathPackageIndex {
+    private static final String ROOT_PACKAGE = "";
+
+    @NotNull
+    private final List<VirtualFile> roots;
+
+    // package path (segments separated by '/') -> directories of this package, in class path order
+    private final ConcurrentMap<String, List<PackageDirectory>> packageDirectories = ContainerUtil.newConcurrentMap();
+
+    // separator + qualified name of classes which are not present in any root
+    private final Set<String> misses = ContainerUtil.newConcurrentSet();
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger cachedMisses = new AtomicInteger();
+    private final AtomicInteger listedDirectories = new AtomicInteger();
+
+    ClassPathPackageIndex(@NotNull List<VirtualFile> roots) {
+        this.roots = roots;
+    }
+
+    /**
+     * @return class files for the given name in the order of class path roots.
+     * In each root the name is resolved as in {@link com.intellij.core.CoreJavaFileManager}: path components are descended
+     * while the corresponding directories exist, the rest is treated as a (possibly nested) class name.
+     */
+    @NotNull
+    public List<VirtualFile> findClassFiles(@NotNull String qName, char separator) {
+        lookups.incrementAndGet();
+
+        String missKey = separator + qName;
+        if (misses.contains(missKey)) {
+            cachedMisses.incrementAndGet();
+            return Collections.emptyList();
+        }
+
+        List<String> segments = StringUtil.split(qName, String.valueOf(separator));
+        List<ClassFileCandidate> found = new ArrayList<ClassFileCandidate>(1);
+
+        // Only dots may denote nested classes, a slash-separated name always has its package fixed
+        int minDepth = separator == '.' ? 0 : segments.size() - 1;
+
+        // Roots containing package of depth 'depth + 1' are processed on the previous (deeper) iteration
+        Set<Integer> processedRoots = new HashSet<Integer>();
+        for (int depth = segments.size() - 1; depth >= minDepth; depth--) {
+            String packagePath = StringUtil.join(segments.subList(0, depth), "/");
+            List<PackageDirectory> directories = getPackageDirectories(packagePath);
+            if (directories.isEmpty()) continue;
+
+            String className = StringUtil.join(segments.subList(depth, segments.size()), "$") + ".class";
+            for (PackageDirectory directory : directories) {
+                if (!processedRoots.add(directory.rootIndex)) continue;
+                if (!directory.childNames.contains(className)) continue;
+
+                VirtualFile file = directory.directory.findChild(className);
+                if (file != null && file.isValid()) {
+                    found.add(new ClassFileCandidate(directory.rootIndex, file));
+                }
+            }
+        }
+
+        if (found.isEmpty()) {
+            misses.add(missKey);
+            return Collections.emptyList();
+        }
+
+        Collections.sort(found);
+        List<VirtualFile> result = new ArrayList<VirtualFile>(found.size());
+        for (ClassFileCandidate candidate : found) {
+            result.add(candidate.file);
+        }
+        return result;
+    }
+
+    @NotNull
+    private List<PackageDirectory> getPackageDirectories(@NotNull String packagePath) {
+        List<PackageDirectory> cached = packageDirectories.get(packagePath);
+        if (cached != null) return cached;
+
+        List<PackageDirectory> result;
+        if (packagePath.equals(ROOT_PACKAGE)) {
+            result = new ArrayList<PackageDirectory>(roots.size());
+            for (int i = 0; i < roots.size(); i++) {
+                result.add(createPackageDirectory(i, roots.get(i)));
+            }
+        }
+        else {
+            int lastSlash = packagePath.lastIndexOf('/');
+            String parentPath = lastSlash < 0 ? ROOT_PACKAGE : packagePath.substring(0, lastSlash);
+            String shortName = packagePath.substring(lastSlash + 1);
+
+            result = new ArrayList<PackageDirectory>(1);
+            for (PackageDirectory parent : getPackageDirectories(parentPath)) {
+                if (!parent.childNames.contains(shortName)) continue;
+
+                VirtualFile child = parent.directory.findChild(shortName);
+                if (child != null && child.isDirectory()) {
+                    result.add(createPackageDirectory(parent.rootIndex, child));
+                }
+            }
+        }
+
+        List<PackageDirectory> previous = packageDirectories.putIfAbsent(packagePath, result);
+        return previous != null ? previous : result;
+    }
+
+    @NotNull
+    private PackageDirectory createPackageDirectory(int rootIndex, @NotNull VirtualFile directory) {
+        listedDirectories.incrementAndGet();
+
+        VirtualFile[] children = directory.getChildren();
+        Set<String> childNames = new HashSet<String>(children.length);
+        for (VirtualFile child : children) {
+            childNames.add(child.getName());
+        }
+        return new PackageDirectory(rootIndex, directory, childNames);
+    }
+
+    public int getLookupCount() {
+        return lookups.get();
+    }
+
+    public int getCachedMissCount() {
+        return cachedMisses.get();
+    }
+
+    public int getListedDirectoryCount() {
+        return listedDirectories.get();
+    }
+
+    private static final class PackageDirectory {
+        private final int rootIndex;
+        private final VirtualFile directory;
+        private final Set<String> childNames;
+
+        private PackageDirectory(int rootIndex, @NotNull VirtualFile directory, @NotNull Set<String> childNames) {
+            this.rootIndex = rootIndex;
+            this.directory = directory;
+            this.childNames = childNames;
+        }
+    }
+
+    private static final class ClassFileCandidate implements Comparable<ClassFileCandidate> {
+        private final int rootIndex;
+        private final VirtualFile file;
+
+        private ClassFileCandidate(int rootIndex, @NotNull VirtualFile file) {
+            this.rootIndex = rootIndex;
+            this.file = file;
+        }
+
+        @Override
+        public int compareTo(@NotNull ClassFileCandidate other) {
+            return rootIndex - other.rootIndex;
+        }
+    }
+}
@@ -94,6 +94,7 @@ public class JetCoreEnvironment {
     private static final Object APPLICATION_LOCK = new Object();
     private static JavaCoreApplicationEnvironment ourApplicationEnvironment;
     private static int ourProjectCount = 0;
+    private static boolean ourKeepApplicationEnvironment = false;
 
     @NotNull
     public static JetCoreEnvironment createForProduction(
@@ -107,7 +108,7 @@ public class JetCoreEnvironment {
             @Override
             public void dispose() {
                 synchronized (APPLICATION_LOCK) {
-                    if (--ourProjectCount <= 0) {
+                    if (--ourProjectCount <= 0 && !ourKeepApplicationEnvironment) {
                         disposeApplicationEnvironment();
                     }
                 }
@@ -155,6 +156,16 @@ public class JetCoreEnvironment {
         }
     }
 
+    /**
+     * When set, the application environment (including caches of the jar file system) is not disposed with the last project,
+     * so that it's reused by subsequent compilations in the same process
+     */
+    public static void setKeepApplicationEnvironment(boolean keep) {
+        synchronized (APPLICATION_LOCK) {
+            ourKeepApplicationEnvironment = keep;
+        }
+    }
+
     public static void disposeApplicationEnvironment() {
         synchronized (APPLICATION_LOCK) {
             if (ourApplicationEnvironment == null) return;
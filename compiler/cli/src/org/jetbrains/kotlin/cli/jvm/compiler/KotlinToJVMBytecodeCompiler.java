@@ -367,7 +367,8 @@ public class KotlinToJVMBytecodeCompiler {
                 packagesWithObsoleteParts,
                 moduleId,
                 diagnosticHolder,
-                outputDirectory
+                outputDirectory,
+                configuration.get(JVMConfigurationKeys.PARALLEL_CODEGEN, false)
         );
         KotlinCodegenFacade.compileCorrectFiles(generationState, CompilationErrorHandler.THROW_EXCEPTION);
         AnalyzerWithCompilerReport.reportDiagnostics(
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.daemon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * Wire format of the communication between {@link KotlinCompilerDaemonClient} and {@link KotlinCompilerDaemon}.
+ *
+ * A client sends: protocol version, secret token from the port file, request kind, and for a compilation request
+ * its working directory and the command line arguments. The daemon replies with a sequence of records
+ * (compiler messages and plain output) terminated by the exit code of the compilation.
+ *
+ * The token has a fixed length, so that nothing sized by the client is read before the client is authenticated.
+ * Lengths of strings and the number of arguments are limited as well.
+ */
+final class CompilerDaemonProtocol {
+    static final int VERSION = 1;
+
+    static final int REQUEST_COMPILE = 1;
+    static final int REQUEST_SHUTDOWN = 2;
+
+    static final byte RECORD_MESSAGE = 1;
+    static final byte RECORD_OUTPUT = 2;
+    static final byte RECORD_EXIT = 3;
+
+    static final int TOKEN_LENGTH = 32;
+    static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+    static final int MAX_ARGUMENT_COUNT = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset US_ASCII = Charset.forName("US-ASCII");
+
+    private CompilerDaemonProtocol() {
+    }
+
+    @NotNull
+    static String generateToken() {
+        byte[] bytes = new byte[TOKEN_LENGTH / 2];
+        new SecureRandom().nextBytes(bytes);
+        return String.format("%0" + TOKEN_LENGTH + "x", new BigInteger(1, bytes));
+    }
+
+    static boolean isValidToken(@NotNull String token) {
+        return token.length() == TOKEN_LENGTH;
+    }
+
+    static void writeToken(@NotNull DataOutputStream output, @NotNull String token) throws IOException {
+        assert isValidToken(token) : "Invalid token: " + token;
+        output.write(token.getBytes(US_ASCII));
+    }
+
+    static boolean readToken(@NotNull DataInputStream input, @NotNull String expected) throws IOException {
+        byte[] bytes = new byte[TOKEN_LENGTH];
+        input.readFully(bytes);
+        return MessageDigest.isEqual(bytes, expected.getBytes(US_ASCII));
+    }
+
+    static int readArgumentCount(@NotNull DataInputStream input) throws IOException {
+        return readLength(input, MAX_ARGUMENT_COUNT);
+    }
+
+    static void writeMessage(
+            @NotNull DataOutputStream output,
+            @NotNull CompilerMessageSeverity severity,
+            @NotNull String message,
+            @NotNull CompilerMessageLocation location
+    ) throws IOException {
+        output.writeByte(RECORD_MESSAGE);
+        writeString(output, severity.name());
+        writeString(output, message);
+        output.writeBoolean(location.getPath() != null);
+        if (location.getPath() != null) {
+            writeString(output, location.getPath());
+        }
+        output.writeInt(location.getLine());
+        output.writeInt(location.getColumn());
+    }
+
+    @NotNull
+    static CompilerMessageLocation readLocation(@NotNull DataInputStream input) throws IOException {
+        String path = input.readBoolean() ? readString(input) : null;
+        int line = input.readInt();
+        int column = input.readInt();
+        return CompilerMessageLocation.create(path, line, column);
+    }
+
+    // DataOutputStream.writeUTF() is limited to 64K, which is not enough for long messages, e.g. exception stack traces
+    static void writeString(@NotNull DataOutputStream output, @NotNull String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @NotNull
+    static String readString(@NotNull DataInputStream input) throws IOException {
+        byte[] bytes = new byte[readLength(input, MAX_STRING_LENGTH)];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static int readLength(@NotNull DataInputStream input, int maxLength) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > maxLength) {
+            throw new IOException("Invalid length: " + length);
+        }
+        return length;
+    }
+}
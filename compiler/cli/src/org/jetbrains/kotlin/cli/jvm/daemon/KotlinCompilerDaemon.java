@@ -0,0 +1,263 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.daemon;
+
+import com.intellij.openapi.util.SystemInfo;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.util.text.StringUtil;
+import com.sampullara.cli.Args;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.cli.common.ExitCode;
+import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments;
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageLocation;
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler;
+import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.kotlin.config.Services;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A long-lived process which runs {@link K2JVMCompiler} on requests of {@link KotlinCompilerDaemonClient}.
+ *
+ * Keeping the process alive preserves the JIT-compiled code of the compiler, built-ins and the application environment
+ * with the caches of the jar file system. Since those caches would not notice a jar which was rewritten between compilations,
+ * the application environment is dropped whenever a jar on the class path changes.
+ *
+ * The daemon listens on the loopback interface only and writes its port together with a secret token to the port file.
+ * Compilations are run one at a time. The daemon exits after it has been idle for the given time.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class KotlinCompilerDaemon {
+    private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 2 * 60 * 60;
+    // The daemon serves one client at a time, so a client which does not send its request must not block it for long
+    private static final int REQUEST_TIMEOUT_MILLIS = 30 * 1000;
+
+    private final ServerSocket serverSocket;
+    private final String token;
+    private final File portFile;
+
+    // Length and modification time of the class path jars seen by previous compilations
+    private final Map<File, String> classPathStamps = new HashMap<File, String>();
+
+    private volatile boolean stopped = false;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: KotlinCompilerDaemon <port file> [<idle timeout in seconds>]");
+            System.exit(1);
+        }
+
+        System.setProperty("java.awt.headless", "true");
+
+        int idleTimeoutSeconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_IDLE_TIMEOUT_SECONDS;
+        new KotlinCompilerDaemon(new File(args[0]), idleTimeoutSeconds).serve();
+    }
+
+    public KotlinCompilerDaemon(@NotNull File portFile, int idleTimeoutSeconds) throws IOException {
+        this.portFile = portFile;
+        this.serverSocket = new ServerSocket(0, 0, InetAddress.getByName(null));
+        this.serverSocket.setSoTimeout(idleTimeoutSeconds * 1000);
+        this.token = CompilerDaemonProtocol.generateToken();
+
+        writePortFile(portFile, serverSocket.getLocalPort() + " " + token);
+        portFile.deleteOnExit();
+    }
+
+    // Anyone who can read the token can run the compiler on behalf of the user, so only the owner may read the file
+    private static void writePortFile(@NotNull File portFile, @NotNull String content) throws IOException {
+        FileUtil.createParentDirs(portFile);
+        if (!portFile.exists() && !portFile.createNewFile()) {
+            throw new IOException("Cannot create port file " + portFile);
+        }
+
+        boolean restricted = portFile.setReadable(false, false) && portFile.setReadable(true, true) &&
+                             portFile.setWritable(false, false) && portFile.setWritable(true, true);
+        // Permissions for others cannot be changed this way on Windows, where files in the user's directory are private anyway
+        if (!restricted && !SystemInfo.isWindows) {
+            throw new IOException("Cannot restrict access to port file " + portFile);
+        }
+
+        FileUtil.writeToFile(portFile, content);
+    }
+
+    public void serve() throws IOException {
+        JetCoreEnvironment.setKeepApplicationEnvironment(true);
+        try {
+            while (!stopped) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                }
+                catch (SocketTimeoutException e) {
+                    break;
+                }
+
+                try {
+                    handle(socket);
+                }
+                catch (IOException e) {
+                    // The client has gone, continue serving others
+                }
+                finally {
+                    socket.close();
+                }
+            }
+        }
+        finally {
+            serverSocket.close();
+            FileUtil.delete(portFile);
+
+            JetCoreEnvironment.setKeepApplicationEnvironment(false);
+            JetCoreEnvironment.disposeApplicationEnvironment();
+        }
+    }
+
+    private void handle(@NotNull Socket socket) throws IOException {
+        socket.setSoTimeout(REQUEST_TIMEOUT_MILLIS);
+        DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (input.readInt() != CompilerDaemonProtocol.VERSION) return;
+        if (!CompilerDaemonProtocol.readToken(input, token)) return;
+
+        int request = input.readInt();
+        if (request == CompilerDaemonProtocol.REQUEST_SHUTDOWN) {
+            stopped = true;
+            return;
+        }
+        if (request != CompilerDaemonProtocol.REQUEST_COMPILE) return;
+
+        File workingDirectory = new File(CompilerDaemonProtocol.readString(input));
+        String[] args = new String[CompilerDaemonProtocol.readArgumentCount(input)];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = CompilerDaemonProtocol.readString(input);
+        }
+
+        ExitCode exitCode = compile(workingDirectory, args, output);
+
+        output.writeByte(CompilerDaemonProtocol.RECORD_EXIT);
+        output.writeInt(exitCode.getCode());
+        output.flush();
+    }
+
+    @NotNull
+    private ExitCode compile(@NotNull File workingDirectory, @NotNull String[] args, @NotNull final DataOutputStream output)
+            throws IOException {
+        K2JVMCompilerArguments arguments = new K2JVMCompilerArguments();
+        try {
+            arguments.freeArgs = Args.parse(arguments, args);
+        }
+        catch (IllegalArgumentException e) {
+            output.writeByte(CompilerDaemonProtocol.RECORD_OUTPUT);
+            CompilerDaemonProtocol.writeString(output, e.getMessage());
+            return ExitCode.INTERNAL_ERROR;
+        }
+
+        makePathsAbsolute(arguments, workingDirectory);
+        invalidateEnvironmentIfClassPathChanged(arguments);
+
+        final IOException[] clientError = new IOException[1];
+        MessageCollector messageCollector = new MessageCollector() {
+            @Override
+            public void report(
+                    @NotNull CompilerMessageSeverity severity, @NotNull String message, @NotNull CompilerMessageLocation location
+            ) {
+                if (clientError[0] != null) return;
+                try {
+                    CompilerDaemonProtocol.writeMessage(output, severity, message, location);
+                }
+                catch (IOException e) {
+                    clientError[0] = e;
+                }
+            }
+        };
+
+        ExitCode exitCode = new K2JVMCompiler().exec(messageCollector, Services.EMPTY, arguments);
+        if (clientError[0] != null) throw clientError[0];
+        return exitCode;
+    }
+
+    private void invalidateEnvironmentIfClassPathChanged(@NotNull K2JVMCompilerArguments arguments) {
+        if (arguments.classpath == null) return;
+
+        boolean changed = false;
+        for (String path : StringUtil.split(arguments.classpath, File.pathSeparator)) {
+            File file = new File(path);
+            if (!file.isFile()) continue;
+
+            String stamp = file.length() + ":" + file.lastModified();
+            String previous = classPathStamps.put(file, stamp);
+            if (previous != null && !previous.equals(stamp)) {
+                changed = true;
+            }
+        }
+
+        if (changed) {
+            JetCoreEnvironment.disposeApplicationEnvironment();
+        }
+    }
+
+    // The daemon may run in another directory than the client, so all paths are resolved against the client's one
+    private static void makePathsAbsolute(@NotNull K2JVMCompilerArguments arguments, @NotNull File workingDirectory) {
+        arguments.destination = makeAbsolute(arguments.destination, workingDirectory);
+        arguments.module = makeAbsolute(arguments.module, workingDirectory);
+        arguments.kotlinHome = makeAbsolute(arguments.kotlinHome, workingDirectory);
+        arguments.classpath = makePathListAbsolute(arguments.classpath, workingDirectory);
+        arguments.annotations = makePathListAbsolute(arguments.annotations, workingDirectory);
+
+        if (arguments.pluginClasspaths != null) {
+            for (int i = 0; i < arguments.pluginClasspaths.length; i++) {
+                arguments.pluginClasspaths[i] = makeAbsolute(arguments.pluginClasspaths[i], workingDirectory);
+            }
+        }
+
+        List<String> freeArgs = new ArrayList<String>(arguments.freeArgs.size());
+        for (String source : arguments.freeArgs) {
+            freeArgs.add(makeAbsolute(source, workingDirectory));
+        }
+        arguments.freeArgs = freeArgs;
+    }
+
+    @Nullable
+    private static String makePathListAbsolute(@Nullable String paths, @NotNull File workingDirectory) {
+        if (paths == null) return null;
+
+        List<String> result = new ArrayList<String>();
+        for (String path : StringUtil.split(paths, File.pathSeparator)) {
+            result.add(makeAbsolute(path, workingDirectory));
+        }
+        return StringUtil.join(result, File.pathSeparator);
+    }
+
+    private static String makeAbsolute(@Nullable String path, @NotNull File workingDirectory) {
+        if (path == null) return null;
+
+        File file = new File(path);
+        return file.isAbsolute() ? path : new File(workingDirectory, path).getPath();
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm.daemon;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.sampullara.cli.Args;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.cli.common.CLICompiler;
+import org.jetbrains.kotlin.cli.common.ExitCode;
+import org.jetbrains.kotlin.cli.common.arguments.K2JVMCompilerArguments;
+import org.jetbrains.kotlin.cli.common.messages.CompilerMessageSeverity;
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.common.messages.MessageRenderer;
+import org.jetbrains.kotlin.cli.common.messages.PrintingMessageCollector;
+import org.jetbrains.kotlin.cli.jvm.K2JVMCompiler;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * A thin command line client of {@link KotlinCompilerDaemon}: forwards the arguments to the daemon and prints
+ * the messages reported by the compiler.
+ *
+ * If the daemon is not running, or the arguments request something interactive (REPL, script execution, help),
+ * the compiler is run in the current process instead.
+ */
+@SuppressWarnings("UseOfSystemOutOrSystemErr")
+public class KotlinCompilerDaemonClient {
+    private static final String STOP_DAEMON = "-stop-daemon";
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: KotlinCompilerDaemonClient <port file> (" + STOP_DAEMON + " | <compiler arguments>)");
+            System.exit(1);
+        }
+
+        File portFile = new File(args[0]);
+        String[] compilerArgs = new String[args.length - 1];
+        System.arraycopy(args, 1, compilerArgs, 0, compilerArgs.length);
+
+        if (compilerArgs.length == 1 && STOP_DAEMON.equals(compilerArgs[0])) {
+            stopDaemon(portFile);
+            return;
+        }
+
+        ExitCode exitCode = null;
+        K2JVMCompilerArguments arguments = parseArguments(compilerArgs);
+        if (arguments != null && canCompileInDaemon(arguments)) {
+            MessageCollector collector = new PrintingMessageCollector(System.err, MessageRenderer.PLAIN_RELATIVE_PATHS, arguments.verbose);
+            exitCode = compile(portFile, compilerArgs, collector);
+        }
+
+        if (exitCode == null) {
+            CLICompiler.doMain(new K2JVMCompiler(), compilerArgs);
+        }
+        else if (exitCode != ExitCode.OK) {
+            System.exit(exitCode.getCode());
+        }
+    }
+
+    /**
+     * @return exit code of the compilation, or null if the daemon is not available
+     */
+    @Nullable
+    public static ExitCode compile(@NotNull File portFile, @NotNull String[] args, @NotNull MessageCollector messageCollector) {
+        Socket socket = connect(portFile, CompilerDaemonProtocol.REQUEST_COMPILE);
+        if (socket == null) return null;
+
+        try {
+            try {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                CompilerDaemonProtocol.writeString(output, new File("").getAbsolutePath());
+                output.writeInt(args.length);
+                for (String arg : args) {
+                    CompilerDaemonProtocol.writeString(output, arg);
+                }
+                output.flush();
+
+                DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                while (true) {
+                    byte record = input.readByte();
+                    if (record == CompilerDaemonProtocol.RECORD_MESSAGE) {
+                        CompilerMessageSeverity severity = CompilerMessageSeverity.valueOf(CompilerDaemonProtocol.readString(input));
+                        String message = CompilerDaemonProtocol.readString(input);
+                        messageCollector.report(severity, message, CompilerDaemonProtocol.readLocation(input));
+                    }
+                    else if (record == CompilerDaemonProtocol.RECORD_OUTPUT) {
+                        System.err.println(CompilerDaemonProtocol.readString(input));
+                    }
+                    else if (record == CompilerDaemonProtocol.RECORD_EXIT) {
+                        int code = input.readInt();
+                        for (ExitCode exitCode : ExitCode.values()) {
+                            if (exitCode.getCode() == code) return exitCode;
+                        }
+                        return ExitCode.INTERNAL_ERROR;
+                    }
+                    else {
+                        throw new IOException("Unexpected record from the compiler daemon: " + record);
+                    }
+                }
+            }
+            finally {
+                socket.close();
+            }
+        }
+        catch (IOException e) {
+            // The daemon has died in the middle of the compilation, the messages reported so far are already printed
+            return ExitCode.INTERNAL_ERROR;
+        }
+    }
+
+    public static void stopDaemon(@NotNull File portFile) {
+        Socket socket = connect(portFile, CompilerDaemonProtocol.REQUEST_SHUTDOWN);
+        if (socket == null) return;
+
+        try {
+            socket.close();
+        }
+        catch (IOException e) {
+            // Ignore
+        }
+    }
+
+    @Nullable
+    private static Socket connect(@NotNull File portFile, int request) {
+        if (!portFile.isFile()) return null;
+
+        try {
+            String[] portAndToken = FileUtil.loadFile(portFile).trim().split(" ");
+            if (portAndToken.length != 2 || !CompilerDaemonProtocol.isValidToken(portAndToken[1])) return null;
+
+            Socket socket = new Socket(InetAddress.getByName(null), Integer.parseInt(portAndToken[0]));
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.writeInt(CompilerDaemonProtocol.VERSION);
+            CompilerDaemonProtocol.writeToken(output, portAndToken[1]);
+            output.writeInt(request);
+            output.flush();
+            return socket;
+        }
+        catch (NumberFormatException e) {
+            return null;
+        }
+        catch (IOException e) {
+            // Stale port file of a daemon which has already exited
+            return null;
+        }
+    }
+
+    @Nullable
+    private static K2JVMCompilerArguments parseArguments(@NotNull String[] args) {
+        try {
+            K2JVMCompilerArguments arguments = new K2JVMCompilerArguments();
+            arguments.freeArgs = Args.parse(arguments, args);
+            return arguments;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean canCompileInDaemon(@NotNull K2JVMCompilerArguments arguments) {
+        if (arguments.help || arguments.extraHelp || arguments.script) return false;
+        // No sources means REPL
+        return arguments.module != null || !arguments.freeArgs.isEmpty();
+    }
+}
@@ -25,57 +25,131 @@ import com.intellij.openapi.vfs.VirtualFile;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the results of reading class files (including the fact that a class file was not compiled by Kotlin),
+ * so that headers of the class files which are looked up repeatedly are not read and parsed again.
+ *
+ * The cache is bounded: least recently used entries are evicted when the number of entries exceeds {@link #MAX_SIZE_PROPERTY}.
+ * It's split into several independently locked segments to reduce contention between threads.
+ */
 public final class KotlinBinaryClassCache implements Disposable {
-    private static class RequestCache {
-        VirtualFile virtualFile;
-        long modificationStamp;
-        VirtualFileKotlinClass virtualFileKotlinClass;
+    public static final String MAX_SIZE_PROPERTY = "kotlin.binary.class.cache.size";
+
+    private static final int DEFAULT_MAX_SIZE = 1024;
+    private static final int SEGMENT_COUNT = 16;
+
+    private static class CachedClass {
+        final long modificationStamp;
+        final VirtualFileKotlinClass virtualFileKotlinClass;
+
+        CachedClass(long modificationStamp, @Nullable VirtualFileKotlinClass virtualFileKotlinClass) {
+            this.modificationStamp = modificationStamp;
+            this.virtualFileKotlinClass = virtualFileKotlinClass;
+        }
+    }
 
-        public VirtualFileKotlinClass cache(VirtualFile file, VirtualFileKotlinClass aClass) {
-            virtualFile = file;
-            virtualFileKotlinClass = aClass;
-            modificationStamp = file.getModificationStamp();
+    private class Segment extends LinkedHashMap<VirtualFile, CachedClass> {
+        private final int maxSize;
 
-            return aClass;
+        Segment(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
         }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<VirtualFile, CachedClass> eldest) {
+            if (size() > maxSize) {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private final Segment[] segments;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public KotlinBinaryClassCache() {
+        this(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
     }
 
-    private final ThreadLocal<RequestCache> cache =
-            new ThreadLocal<RequestCache>() {
-                @Override
-                protected RequestCache initialValue() {
-                    return new RequestCache();
-                }
-            };
+    public KotlinBinaryClassCache(int maxSize) {
+        segments = new Segment[SEGMENT_COUNT];
+        int segmentSize = (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
 
     @Nullable
-    public static KotlinJvmBinaryClass getKotlinBinaryClass(@NotNull final VirtualFile file) {
+    public static KotlinJvmBinaryClass getKotlinBinaryClass(@NotNull VirtualFile file) {
         if (file.getFileType() != JavaClassFileType.INSTANCE) return null;
 
-        KotlinBinaryClassCache service = ServiceManager.getService(KotlinBinaryClassCache.class);
-        RequestCache requestCache = service.cache.get();
+        return ServiceManager.getService(KotlinBinaryClassCache.class).getOrRead(file);
+    }
+
+    @Nullable
+    VirtualFileKotlinClass getOrRead(@NotNull final VirtualFile file) {
+        Segment segment = segments[(file.hashCode() & Integer.MAX_VALUE) % SEGMENT_COUNT];
+        long modificationStamp = file.getModificationStamp();
 
-        if (file.getModificationStamp() == requestCache.modificationStamp && file.equals(requestCache.virtualFile)) {
-            return requestCache.virtualFileKotlinClass;
+        synchronized (segment) {
+            CachedClass cached = segment.get(file);
+            if (cached != null && cached.modificationStamp == modificationStamp) {
+                hitCount.incrementAndGet();
+                return cached.virtualFileKotlinClass;
+            }
+            missCount.incrementAndGet();
         }
-        else {
-            VirtualFileKotlinClass aClass = ApplicationManager.getApplication().runReadAction(new Computable<VirtualFileKotlinClass>() {
-                @Override
-                public VirtualFileKotlinClass compute() {
-                    //noinspection deprecation
-                    return VirtualFileKotlinClass.Factory.create(file);
-                }
-            });
-
-            return requestCache.cache(file, aClass);
+
+        // The file is read outside of the lock: several threads may read the same file, but they'll get equal results
+        VirtualFileKotlinClass aClass = ApplicationManager.getApplication().runReadAction(new Computable<VirtualFileKotlinClass>() {
+            @Override
+            public VirtualFileKotlinClass compute() {
+                //noinspection deprecation
+                return VirtualFileKotlinClass.Factory.create(file);
+            }
+        });
+
+        synchronized (segment) {
+            segment.put(file, new CachedClass(modificationStamp, aClass));
         }
+
+        return aClass;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "KotlinBinaryClassCache: " + hitCount.get() + " hits, " + missCount.get() + " misses, " + evictionCount.get() + " evictions";
     }
 
     @Override
     public void dispose() {
         // This is only relevant for tests. We create a new instance of Application for each test, and so a new instance of this service is
-        // also created for each test. However all tests share the same event dispatch thread, which would collect all instances of this
-        // thread-local if they're not removed properly. Each instance would transitively retain VFS resulting in OutOfMemoryError
-        cache.remove();
+        // also created for each test. Cached classes retain VFS, so they should not outlive the application
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
     }
 }
@@ -109,8 +109,8 @@ public class IncrementalPackageFragmentProvider(
                 this@IncrementalPackageFragment, packageData.getPackageProto(), packageData.getNameResolver(), deserializationComponents,
                 { listOf() }
         ) {
-            override fun filteredMemberProtos(allMemberProtos: Collection<ProtoBuf.Callable>): Collection<ProtoBuf.Callable> {
-                return allMemberProtos
+            override fun filteredMemberProtos(allMemberProtos: MemberProtos): MemberProtos {
+                return MemberProtos.of(allMemberProtos.getAll()
                         .filter {
                             member ->
                             if (member.hasExtension(JvmProtoBuf.implClassName)) {
@@ -121,7 +121,7 @@ public class IncrementalPackageFragmentProvider(
                             else {
                                 true
                             }
-                        }
+                        })
             }
         }
     }
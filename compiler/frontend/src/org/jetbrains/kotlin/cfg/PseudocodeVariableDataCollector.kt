@@ -16,7 +16,6 @@
 
 package org.jetbrains.kotlin.cfg
 
-import org.jetbrains.kotlin.cfg.pseudocode.instructions.Instruction
 import org.jetbrains.kotlin.cfg.pseudocode.Pseudocode
 import org.jetbrains.kotlin.descriptors.VariableDescriptor
 import org.jetbrains.kotlin.resolve.BindingContext
@@ -32,42 +31,6 @@ public class PseudocodeVariableDataCollector(
 ) {
     val lexicalScopeVariableInfo = computeLexicalScopeVariableInfo(pseudocode)
 
-    suppress("UNCHECKED_CAST")
-    public fun <D> collectData(
-            traversalOrder: TraversalOrder,
-            mergeDataWithLocalDeclarations: Boolean,
-            instructionDataMergeStrategy: InstructionDataMergeStrategy<D>
-    ): MutableMap<Instruction, Edges<MutableMap<VariableDescriptor, D>>> {
-        val result = pseudocode.collectData(
-                traversalOrder, mergeDataWithLocalDeclarations,
-                //see KT-4605
-                instructionDataMergeStrategy as
-                    (Instruction, Collection<Map<VariableDescriptor, D>>) -> Edges<Map<VariableDescriptor, D>>,
-                { (from, to, data) -> filterOutVariablesOutOfScope(from, to, data)},
-                Collections.emptyMap<VariableDescriptor, D>())
-        //see KT-4605
-        return result as MutableMap<Instruction, Edges<MutableMap<VariableDescriptor, D>>>
-    }
-
-    private fun <D> filterOutVariablesOutOfScope(
-            from: Instruction,
-            to: Instruction,
-            data: Map<VariableDescriptor, D>
-    ): Map<VariableDescriptor, D> {
-        // If an edge goes from deeper lexical scope to a less deep one, this means that it points outside of the deeper scope.
-        val toDepth = to.lexicalScope.depth
-        if (toDepth >= from.lexicalScope.depth) return data
-
-        // Variables declared in an inner (deeper) scope can't be accessed from an outer scope.
-        // Thus they can be filtered out upon leaving the inner scope.
-        return data.filterKeys { variable ->
-            val lexicalScope = lexicalScopeVariableInfo.declaredIn[variable]
-            // '-1' for variables declared outside this pseudocode
-            val depth = lexicalScope?.depth ?: -1
-            depth <= toDepth
-        }
-    }
-
     fun computeLexicalScopeVariableInfo(pseudocode: Pseudocode): LexicalScopeVariableInfo {
         val lexicalScopeVariableInfo = LexicalScopeVariableInfoImpl()
         pseudocode.traverse(TraversalOrder.FORWARD, { instruction ->
@@ -87,10 +50,6 @@ public class PseudocodeVariableDataCollector(
     }
 }
 
-//todo may be a type alias
-trait InstructionDataMergeStrategy<D> :
-  (Instruction, Collection<MutableMap<VariableDescriptor, D>>) -> Edges<MutableMap<VariableDescriptor, D>>
-
 public trait LexicalScopeVariableInfo {
     val declaredIn : Map<VariableDescriptor, LexicalScope>
     val scopeVariables : Map<LexicalScope, Collection<VariableDescriptor>>
@@ -35,7 +35,6 @@ import org.jetbrains.kotlin.psi.JetDeclaration;
 import org.jetbrains.kotlin.psi.JetProperty;
 import org.jetbrains.kotlin.resolve.BindingContext;
 
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
@@ -122,27 +121,7 @@ public class PseudocodeVariablesData {
 
     @NotNull
     private Map<Instruction, Edges<Map<VariableDescriptor, VariableInitState>>> computeVariableInitializers() {
-
-        final LexicalScopeVariableInfo lexicalScopeVariableInfo = pseudocodeVariableDataCollector.getLexicalScopeVariableInfo();
-
-        return pseudocodeVariableDataCollector.collectData(
-                FORWARD, /*mergeDataWithLocalDeclarations=*/ false,
-                new InstructionDataMergeStrategy<VariableInitState>() {
-                    @NotNull
-                    @Override
-                    public Edges<Map<VariableDescriptor, VariableInitState>> invoke(
-                            @NotNull Instruction instruction,
-                            @NotNull Collection<? extends Map<VariableDescriptor, VariableInitState>> incomingEdgesData
-                    ) {
-
-                        Map<VariableDescriptor, VariableInitState> enterInstructionData =
-                                mergeIncomingEdgesDataForInitializers(incomingEdgesData);
-                        Map<VariableDescriptor, VariableInitState> exitInstructionData = addVariableInitStateFromCurrentInstructionIfAny(
-                                instruction, enterInstructionData, lexicalScopeVariableInfo);
-                        return new Edges<Map<VariableDescriptor, VariableInitState>>(enterInstructionData, exitInstructionData);
-                    }
-                }
-        );
+        return new VariableInitializersSolver().solve();
     }
 
     public static VariableInitState getDefaultValueForInitializers(
@@ -158,125 +137,138 @@ public class PseudocodeVariablesData {
         return VariableInitState.create(/*isInitialized=*/declaredOutsideThisDeclaration);
     }
 
-    @NotNull
-    private static Map<VariableDescriptor, VariableInitState> mergeIncomingEdgesDataForInitializers(
-            @NotNull Collection<? extends Map<VariableDescriptor, VariableInitState>> incomingEdgesData
-    ) {
-        Set<VariableDescriptor> variablesInScope = Sets.newHashSet();
-        for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-            variablesInScope.addAll(edgeData.keySet());
+    /**
+     * Initialization state of a variable is encoded by three bits: the variable is present, the variable is present and
+     * not initialized, the variable is present and not declared. Merging states by OR gives a variable which is initialized
+     * (declared) only if it's initialized (declared) on each incoming edge where it is present.
+     */
+    private class VariableInitializersSolver extends VariableDataFlowSolver<VariableInitState> {
+        private static final int PRESENT = 0;
+        private static final int NOT_INITIALIZED = 1;
+        private static final int NOT_DECLARED = 2;
+
+        private final LexicalScopeVariableInfo lexicalScopeVariableInfo;
+
+        public VariableInitializersSolver() {
+            super(pseudocode, FORWARD, /*mergeDataWithLocalDeclarations=*/ false,
+                  pseudocodeVariableDataCollector.getLexicalScopeVariableInfo(), 3);
+            lexicalScopeVariableInfo = pseudocodeVariableDataCollector.getLexicalScopeVariableInfo();
         }
 
-        Map<VariableDescriptor, VariableInitState> enterInstructionData = Maps.newHashMap();
-        for (VariableDescriptor variable : variablesInScope) {
-            boolean isInitialized = true;
-            boolean isDeclared = true;
-            for (Map<VariableDescriptor, VariableInitState> edgeData : incomingEdgesData) {
-                VariableInitState initState = edgeData.get(variable);
-                if (initState != null) {
-                    if (!initState.isInitialized) {
-                        isInitialized = false;
-                    }
-                    if (!initState.isDeclared) {
-                        isDeclared = false;
-                    }
-                }
+        @Nullable
+        @Override
+        protected VariableDescriptor getAffectedVariable(@NotNull Instruction instruction) {
+            if (!(instruction instanceof WriteValueInstruction) && !(instruction instanceof VariableDeclarationInstruction)) {
+                return null;
             }
-            enterInstructionData.put(variable, VariableInitState.create(isInitialized, isDeclared));
+            return PseudocodeUtil.extractVariableDescriptorIfAny(instruction, false, bindingContext);
         }
-        return enterInstructionData;
-    }
 
-    @NotNull
-    private Map<VariableDescriptor, VariableInitState> addVariableInitStateFromCurrentInstructionIfAny(
-            @NotNull Instruction instruction,
-            @NotNull Map<VariableDescriptor, VariableInitState> enterInstructionData,
-            @NotNull LexicalScopeVariableInfo lexicalScopeVariableInfo
-    ) {
-        if (!(instruction instanceof WriteValueInstruction) && !(instruction instanceof VariableDeclarationInstruction)) {
-            return enterInstructionData;
-        }
-        VariableDescriptor variable = PseudocodeUtil.extractVariableDescriptorIfAny(instruction, false, bindingContext);
-        if (variable == null) {
-            return enterInstructionData;
-        }
-        Map<VariableDescriptor, VariableInitState> exitInstructionData = Maps.newHashMap(enterInstructionData);
-        if (instruction instanceof WriteValueInstruction) {
-            // if writing to already initialized object
-            if (!PseudocodeUtil.isThisOrNoDispatchReceiver((WriteValueInstruction) instruction, bindingContext)) {
-                return enterInstructionData;
-            }
+        @NotNull
+        @Override
+        protected long[] transfer(@NotNull Instruction instruction, int variable, @NotNull long[] enterData) {
+            boolean isPresent = getBit(enterData, PRESENT, variable);
+            boolean isInitialized;
+            boolean isDeclared;
+            if (instruction instanceof WriteValueInstruction) {
+                // if writing to already initialized object
+                if (!PseudocodeUtil.isThisOrNoDispatchReceiver((WriteValueInstruction) instruction, bindingContext)) {
+                    return enterData;
+                }
 
-            VariableInitState enterInitState = enterInstructionData.get(variable);
-            VariableInitState initializationAtThisElement =
-                    VariableInitState.create(((WriteValueInstruction) instruction).getElement() instanceof JetProperty, enterInitState);
-            exitInstructionData.put(variable, initializationAtThisElement);
-        }
-        else { // instruction instanceof VariableDeclarationInstruction
-            VariableInitState enterInitState = enterInstructionData.get(variable);
-            if (enterInitState == null) {
-                enterInitState = getDefaultValueForInitializers(variable, instruction, lexicalScopeVariableInfo);
+                isInitialized = true;
+                isDeclared = ((WriteValueInstruction) instruction).getElement() instanceof JetProperty ||
+                             (isPresent && !getBit(enterData, NOT_DECLARED, variable));
+            }
+            else { // instruction instanceof VariableDeclarationInstruction
+                if (isPresent) {
+                    isInitialized = !getBit(enterData, NOT_INITIALIZED, variable);
+                }
+                else {
+                    VariableDescriptor descriptor = getAffectedVariable(instruction);
+                    assert descriptor != null : "No variable for " + instruction;
+                    isInitialized = getDefaultValueForInitializers(descriptor, instruction, lexicalScopeVariableInfo).isInitialized;
+                }
+                isDeclared = true;
             }
-            if (enterInitState == null || !enterInitState.isInitialized || !enterInitState.isDeclared) {
-                boolean isInitialized = enterInitState != null && enterInitState.isInitialized;
-                VariableInitState variableDeclarationInfo = VariableInitState.create(isInitialized, true);
-                exitInstructionData.put(variable, variableDeclarationInfo);
+
+            if (isPresent &&
+                isInitialized == !getBit(enterData, NOT_INITIALIZED, variable) &&
+                isDeclared == !getBit(enterData, NOT_DECLARED, variable)) {
+                return enterData;
             }
+            long[] exitData = enterData.clone();
+            setBit(exitData, PRESENT, variable, true);
+            setBit(exitData, NOT_INITIALIZED, variable, !isInitialized);
+            setBit(exitData, NOT_DECLARED, variable, !isDeclared);
+            return exitData;
+        }
+
+        @Nullable
+        @Override
+        protected VariableInitState decode(@NotNull long[] data, int variable) {
+            if (!getBit(data, PRESENT, variable)) return null;
+            return VariableInitState.create(!getBit(data, NOT_INITIALIZED, variable), !getBit(data, NOT_DECLARED, variable));
         }
-        return exitInstructionData;
     }
 
 // variable use
 
     @NotNull
     public Map<Instruction, Edges<Map<VariableDescriptor, VariableUseState>>> getVariableUseStatusData() {
-        return pseudocodeVariableDataCollector.collectData(
-                BACKWARD, /*mergeDataWithLocalDeclarations=*/ true,
-                new InstructionDataMergeStrategy<VariableUseState>() {
-                    @NotNull
-                    @Override
-                    public Edges<Map<VariableDescriptor, VariableUseState>> invoke(
-                            @NotNull Instruction instruction,
-                            @NotNull Collection<? extends Map<VariableDescriptor, VariableUseState>> incomingEdgesData
-                    ) {
-
-                        Map<VariableDescriptor, VariableUseState> enterResult = Maps.newHashMap();
-                        for (Map<VariableDescriptor, VariableUseState> edgeData : incomingEdgesData) {
-                            for (Map.Entry<VariableDescriptor, VariableUseState> entry : edgeData.entrySet()) {
-                                VariableDescriptor variableDescriptor = entry.getKey();
-                                VariableUseState variableUseState = entry.getValue();
-                                enterResult.put(variableDescriptor, variableUseState.merge(enterResult.get(variableDescriptor)));
-                            }
-                        }
-                        VariableDescriptor variableDescriptor = PseudocodeUtil.extractVariableDescriptorIfAny(
-                                instruction, true, bindingContext);
-                        if (variableDescriptor == null ||
-                            (!(instruction instanceof ReadValueInstruction) && !(instruction instanceof WriteValueInstruction))) {
-                            return new Edges<Map<VariableDescriptor, VariableUseState>>(enterResult, enterResult);
-                        }
-                        Map<VariableDescriptor, VariableUseState> exitResult = Maps.newHashMap(enterResult);
-                        if (instruction instanceof ReadValueInstruction) {
-                            exitResult.put(variableDescriptor, VariableUseState.READ);
-                        }
-                        else { //instruction instanceof WriteValueInstruction
-                            VariableUseState variableUseState = enterResult.get(variableDescriptor);
-                            if (variableUseState == null) {
-                                variableUseState = VariableUseState.UNUSED;
-                            }
-                            switch (variableUseState) {
-                                case UNUSED:
-                                case ONLY_WRITTEN_NEVER_READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.ONLY_WRITTEN_NEVER_READ);
-                                    break;
-                                case WRITTEN_AFTER_READ:
-                                case READ:
-                                    exitResult.put(variableDescriptor, VariableUseState.WRITTEN_AFTER_READ);
-                            }
-                        }
-                        return new Edges<Map<VariableDescriptor, VariableUseState>>(enterResult, exitResult);
-                    }
-                }
-        );
+        return new VariableUseStatusSolver().solve();
+    }
+
+    /**
+     * Use state of a variable is encoded by three bits: the state is at least {@link VariableUseState#ONLY_WRITTEN_NEVER_READ},
+     * at least {@link VariableUseState#WRITTEN_AFTER_READ}, and {@link VariableUseState#READ}.
+     * Merging states by OR gives the state with the highest priority.
+     */
+    private class VariableUseStatusSolver extends VariableDataFlowSolver<VariableUseState> {
+        private static final int WRITTEN = 0;
+        private static final int WRITTEN_AFTER_READ = 1;
+        private static final int READ = 2;
+
+        public VariableUseStatusSolver() {
+            super(pseudocode, BACKWARD, /*mergeDataWithLocalDeclarations=*/ true,
+                  pseudocodeVariableDataCollector.getLexicalScopeVariableInfo(), 3);
+        }
+
+        @Nullable
+        @Override
+        protected VariableDescriptor getAffectedVariable(@NotNull Instruction instruction) {
+            if (!(instruction instanceof ReadValueInstruction) && !(instruction instanceof WriteValueInstruction)) {
+                return null;
+            }
+            return PseudocodeUtil.extractVariableDescriptorIfAny(instruction, true, bindingContext);
+        }
+
+        @NotNull
+        @Override
+        protected long[] transfer(@NotNull Instruction instruction, int variable, @NotNull long[] enterData) {
+            long[] exitData = enterData.clone();
+            if (instruction instanceof ReadValueInstruction) {
+                setBit(exitData, WRITTEN, variable, true);
+                setBit(exitData, WRITTEN_AFTER_READ, variable, true);
+                setBit(exitData, READ, variable, true);
+            }
+            else { //instruction instanceof WriteValueInstruction
+                // UNUSED and ONLY_WRITTEN_NEVER_READ become ONLY_WRITTEN_NEVER_READ,
+                // WRITTEN_AFTER_READ and READ become WRITTEN_AFTER_READ
+                setBit(exitData, WRITTEN, variable, true);
+                setBit(exitData, READ, variable, false);
+            }
+            return exitData;
+        }
+
+        @Nullable
+        @Override
+        protected VariableUseState decode(@NotNull long[] data, int variable) {
+            if (getBit(data, READ, variable)) return VariableUseState.READ;
+            if (getBit(data, WRITTEN_AFTER_READ, variable)) return VariableUseState.WRITTEN_AFTER_READ;
+            if (getBit(data, WRITTEN, variable)) return VariableUseState.ONLY_WRITTEN_NEVER_READ;
+            return null;
+        }
     }
 
     public static class VariableInitState {
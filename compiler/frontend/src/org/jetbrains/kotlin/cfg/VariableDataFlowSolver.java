@@ -0,0 +1,399 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cfg;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import gnu.trove.TIntArrayList;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.cfg.pseudocode.Pseudocode;
+import org.jetbrains.kotlin.cfg.pseudocode.instructions.Instruction;
+import org.jetbrains.kotlin.cfg.pseudocode.instructions.LexicalScope;
+import org.jetbrains.kotlin.cfg.pseudocode.instructions.special.LocalFunctionDeclarationInstruction;
+import org.jetbrains.kotlin.cfg.pseudocodeTraverser.Edges;
+import org.jetbrains.kotlin.cfg.pseudocodeTraverser.PseudocodeTraverserPackage;
+import org.jetbrains.kotlin.cfg.pseudocodeTraverser.TraversalOrder;
+import org.jetbrains.kotlin.descriptors.VariableDescriptor;
+
+import java.util.*;
+
+/**
+ * Computes the state of each variable at every instruction of a pseudocode (including its local declarations).
+ *
+ * Variables are numbered, and the states of all variables at an instruction edge are stored as a packed bit vector
+ * made of {@code planes} consecutive planes of one bit per variable. Variables which are absent in the state have
+ * all their bits cleared. The data from incoming edges is merged by bitwise OR, so an encoding of variable state
+ * should be chosen by a subclass in a way that OR-ing the bits gives the merged state.
+ *
+ * The instructions are visited in the same order as by {@code Pseudocode.collectData}, and an instruction is only
+ * recomputed when the data on some of its incoming edges has changed, so the result is the same.
+ */
+abstract class VariableDataFlowSolver<S> {
+    private final Pseudocode pseudocode;
+    private final TraversalOrder traversalOrder;
+    private final boolean mergeDataWithLocalDeclarations;
+    private final LexicalScopeVariableInfo lexicalScopeVariableInfo;
+    private final int planes;
+
+    private final Map<VariableDescriptor, Integer> variableIndices = Maps.newHashMap();
+    private final List<VariableDescriptor> variables = Lists.newArrayList();
+    private final TIntArrayList variableDepths = new TIntArrayList();
+    private int words;
+
+    private final Map<Instruction, Integer> slots = Maps.newLinkedHashMap();
+    private final List<Instruction> slotInstructions = Lists.newArrayList();
+    private final TIntArrayList slotVariables = new TIntArrayList();
+
+    private final List<Node> nodes = Lists.newArrayList();
+    private final Map<Integer, long[]> scopeMasks = Maps.newHashMap();
+
+    protected VariableDataFlowSolver(
+            @NotNull Pseudocode pseudocode,
+            @NotNull TraversalOrder traversalOrder,
+            boolean mergeDataWithLocalDeclarations,
+            @NotNull LexicalScopeVariableInfo lexicalScopeVariableInfo,
+            int planes
+    ) {
+        this.pseudocode = pseudocode;
+        this.traversalOrder = traversalOrder;
+        this.mergeDataWithLocalDeclarations = mergeDataWithLocalDeclarations;
+        this.lexicalScopeVariableInfo = lexicalScopeVariableInfo;
+        this.planes = planes;
+    }
+
+    /**
+     * @return the variable which state is changed by the instruction, or null if the instruction doesn't change any state
+     */
+    @Nullable
+    protected abstract VariableDescriptor getAffectedVariable(@NotNull Instruction instruction);
+
+    /**
+     * @param variable the index of the variable returned by {@link #getAffectedVariable(Instruction)} for the instruction
+     * @return the exit data of the instruction, or {@code enterData} itself if the instruction doesn't change it
+     */
+    @NotNull
+    protected abstract long[] transfer(@NotNull Instruction instruction, int variable, @NotNull long[] enterData);
+
+    /**
+     * @return the state of the variable, or null if the variable is absent
+     */
+    @Nullable
+    protected abstract S decode(@NotNull long[] data, int variable);
+
+    // Plane 0 tells whether a variable is present in the state at all
+    protected final boolean getBit(@NotNull long[] data, int plane, int variable) {
+        return (data[plane * words + (variable >>> 6)] & (1L << variable)) != 0;
+    }
+
+    protected final void setBit(@NotNull long[] data, int plane, int variable, boolean value) {
+        int index = plane * words + (variable >>> 6);
+        if (value) {
+            data[index] |= 1L << variable;
+        }
+        else {
+            data[index] &= ~(1L << variable);
+        }
+    }
+
+    @NotNull
+    public Map<Instruction, Edges<Map<VariableDescriptor, S>>> solve() {
+        collectSlots(pseudocode);
+        words = (variables.size() + 63) >>> 6;
+        collectNodes(pseudocode, Collections.<Instruction>emptyList(), false);
+
+        int slotCount = slotInstructions.size();
+        long[][] incoming = new long[slotCount][];
+        long[][] outgoing = new long[slotCount][];
+        long[] initialData = new long[planes * words];
+        Arrays.fill(incoming, initialData);
+        Arrays.fill(outgoing, initialData);
+
+        List<TIntArrayList> dependentNodes = Lists.newArrayListWithCapacity(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            dependentNodes.add(null);
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            for (int source : nodes.get(i).sources) {
+                TIntArrayList dependents = dependentNodes.get(source);
+                if (dependents == null) {
+                    dependents = new TIntArrayList();
+                    dependentNodes.set(source, dependents);
+                }
+                dependents.add(i);
+            }
+        }
+
+        BitSet dirty = new BitSet(nodes.size());
+        dirty.set(0, nodes.size());
+        while (!dirty.isEmpty()) {
+            for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+                dirty.clear(i);
+                Node node = nodes.get(i);
+                if (!node.update(incoming, outgoing)) continue;
+
+                TIntArrayList dependents = dependentNodes.get(node.target);
+                if (dependents == null) continue;
+                for (int j = 0; j < dependents.size(); j++) {
+                    dirty.set(dependents.get(j));
+                }
+            }
+        }
+
+        Map<Instruction, Edges<Map<VariableDescriptor, S>>> result = Maps.newLinkedHashMap();
+        Map<long[], Map<VariableDescriptor, S>> views = new IdentityHashMap<long[], Map<VariableDescriptor, S>>();
+        for (int i = 0; i < slotCount; i++) {
+            result.put(slotInstructions.get(i), new Edges<Map<VariableDescriptor, S>>(
+                    getView(incoming[i], views), getView(outgoing[i], views)));
+        }
+        return result;
+    }
+
+    @NotNull
+    private Map<VariableDescriptor, S> getView(@NotNull long[] data, @NotNull Map<long[], Map<VariableDescriptor, S>> views) {
+        Map<VariableDescriptor, S> view = views.get(data);
+        if (view == null) {
+            view = new VariableStateMap(data);
+            views.put(data, view);
+        }
+        return view;
+    }
+
+    private void collectSlots(@NotNull Pseudocode pseudocode) {
+        for (Instruction instruction : pseudocode.getInstructions()) {
+            slots.put(instruction, slotInstructions.size());
+            slotInstructions.add(instruction);
+            VariableDescriptor variable = getAffectedVariable(instruction);
+            slotVariables.add(variable != null ? getVariableIndex(variable) : -1);
+            if (instruction instanceof LocalFunctionDeclarationInstruction) {
+                collectSlots(((LocalFunctionDeclarationInstruction) instruction).getBody());
+            }
+        }
+    }
+
+    private int getVariableIndex(@NotNull VariableDescriptor variable) {
+        Integer index = variableIndices.get(variable);
+        if (index == null) {
+            index = variables.size();
+            variableIndices.put(variable, index);
+            variables.add(variable);
+            LexicalScope declaredIn = lexicalScopeVariableInfo.getDeclaredIn().get(variable);
+            // '-1' for variables declared outside this pseudocode
+            variableDepths.add(declaredIn != null ? declaredIn.getDepth() : -1);
+        }
+        return index;
+    }
+
+    private void collectNodes(
+            @NotNull Pseudocode pseudocode,
+            @NotNull Collection<Instruction> previousSubGraphInstructions,
+            boolean isLocal
+    ) {
+        Instruction startInstruction = PseudocodeTraverserPackage.getStartInstruction(pseudocode, traversalOrder);
+
+        for (Instruction instruction : PseudocodeTraverserPackage.getInstructions(pseudocode, traversalOrder)) {
+            if (!isLocal && PseudocodeTraverserPackage.isStartInstruction(instruction, traversalOrder)) continue;
+
+            Collection<Instruction> previousInstructions = PseudocodeTraverserPackage.getPreviousInstructions(instruction, traversalOrder);
+            if (instruction == startInstruction && !previousSubGraphInstructions.isEmpty()) {
+                previousInstructions = new ArrayList<Instruction>(previousInstructions);
+                previousInstructions.addAll(previousSubGraphInstructions);
+            }
+
+            if (instruction instanceof LocalFunctionDeclarationInstruction) {
+                Pseudocode subroutinePseudocode = ((LocalFunctionDeclarationInstruction) instruction).getBody();
+                collectNodes(subroutinePseudocode,
+                             mergeDataWithLocalDeclarations ? previousInstructions : Collections.<Instruction>emptyList(), true);
+                if (mergeDataWithLocalDeclarations) {
+                    Instruction lastInstruction = PseudocodeTraverserPackage.getLastInstruction(subroutinePseudocode, traversalOrder);
+                    nodes.add(new CopyNode(slots.get(instruction), slots.get(lastInstruction),
+                                           getScopeMask(lastInstruction, instruction)));
+                    continue;
+                }
+            }
+
+            TIntArrayList sources = new TIntArrayList();
+            List<long[]> masks = Lists.newArrayList();
+            for (Instruction previousInstruction : previousInstructions) {
+                Integer slot = slots.get(previousInstruction);
+                if (slot == null || sources.contains(slot)) continue;
+                sources.add(slot);
+                masks.add(getScopeMask(previousInstruction, instruction));
+            }
+            nodes.add(new MergeNode(slots.get(instruction), sources.toNativeArray(), masks.toArray(new long[masks.size()][])));
+        }
+    }
+
+    // Variables declared in an inner (deeper) scope can't be accessed from an outer scope.
+    // Thus they can be filtered out upon leaving the inner scope.
+    @Nullable
+    private long[] getScopeMask(@NotNull Instruction from, @NotNull Instruction to) {
+        // If an edge goes from deeper lexical scope to a less deep one, this means that it points outside of the deeper scope.
+        int toDepth = to.getLexicalScope().getDepth();
+        if (toDepth >= from.getLexicalScope().getDepth()) return null;
+
+        long[] mask = scopeMasks.get(toDepth);
+        if (mask == null) {
+            mask = new long[planes * words];
+            for (int variable = 0; variable < variables.size(); variable++) {
+                if (variableDepths.get(variable) <= toDepth) {
+                    for (int plane = 0; plane < planes; plane++) {
+                        setBit(mask, plane, variable, true);
+                    }
+                }
+            }
+            scopeMasks.put(toDepth, mask);
+        }
+        return mask;
+    }
+
+    private abstract static class Node {
+        final int target;
+        final int[] sources;
+
+        Node(int target, int[] sources) {
+            this.target = target;
+            this.sources = sources;
+        }
+
+        // returns true if the data of the target instruction has changed
+        abstract boolean update(@NotNull long[][] incoming, @NotNull long[][] outgoing);
+    }
+
+    private static long[] applyMask(@NotNull long[] data, @Nullable long[] mask) {
+        if (mask == null) return data;
+        long[] result = new long[data.length];
+        for (int i = 0; i < data.length; i++) {
+            result[i] = data[i] & mask[i];
+        }
+        return result;
+    }
+
+    private class MergeNode extends Node {
+        private final long[][] masks;
+
+        MergeNode(int target, int[] sources, long[][] masks) {
+            super(target, sources);
+            this.masks = masks;
+        }
+
+        @Override
+        boolean update(@NotNull long[][] incoming, @NotNull long[][] outgoing) {
+            long[] enterData = new long[planes * words];
+            for (int i = 0; i < sources.length; i++) {
+                long[] edgeData = outgoing[sources[i]];
+                long[] mask = masks[i];
+                for (int j = 0; j < enterData.length; j++) {
+                    enterData[j] |= mask != null ? edgeData[j] & mask[j] : edgeData[j];
+                }
+            }
+            int variable = slotVariables.get(target);
+            long[] exitData = variable >= 0 ? transfer(slotInstructions.get(target), variable, enterData) : enterData;
+            if (Arrays.equals(enterData, incoming[target]) && Arrays.equals(exitData, outgoing[target])) return false;
+            incoming[target] = enterData;
+            outgoing[target] = exitData;
+            return true;
+        }
+    }
+
+    private static class CopyNode extends Node {
+        private final long[] mask;
+
+        CopyNode(int target, int source, @Nullable long[] mask) {
+            super(target, new int[] {source});
+            this.mask = mask;
+        }
+
+        @Override
+        boolean update(@NotNull long[][] incoming, @NotNull long[][] outgoing) {
+            long[] enterData = applyMask(incoming[sources[0]], mask);
+            long[] exitData = applyMask(outgoing[sources[0]], mask);
+            if (Arrays.equals(enterData, incoming[target]) && Arrays.equals(exitData, outgoing[target])) return false;
+            incoming[target] = enterData;
+            outgoing[target] = exitData;
+            return true;
+        }
+    }
+
+    private class VariableStateMap extends AbstractMap<VariableDescriptor, S> {
+        private final long[] data;
+
+        VariableStateMap(@NotNull long[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public S get(Object key) {
+            Integer variable = variableIndices.get(key);
+            return variable != null ? decode(data, variable) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            Integer variable = variableIndices.get(key);
+            return variable != null && getBit(data, 0, variable);
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<VariableDescriptor, S>> entrySet() {
+            return new AbstractSet<Entry<VariableDescriptor, S>>() {
+                @NotNull
+                @Override
+                public Iterator<Entry<VariableDescriptor, S>> iterator() {
+                    return new Iterator<Entry<VariableDescriptor, S>>() {
+                        private int next = nextPresent(0);
+
+                        @Override
+                        public boolean hasNext() {
+                            return next >= 0;
+                        }
+
+                        @Override
+                        public Entry<VariableDescriptor, S> next() {
+                            if (next < 0) throw new NoSuchElementException();
+                            int variable = next;
+                            next = nextPresent(variable + 1);
+                            return new SimpleImmutableEntry<VariableDescriptor, S>(variables.get(variable), decode(data, variable));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (int i = 0; i < words; i++) {
+                        size += Long.bitCount(data[i]);
+                    }
+                    return size;
+                }
+            };
+        }
+
+        private int nextPresent(int from) {
+            for (int variable = from; variable < variables.size(); variable++) {
+                if (getBit(data, 0, variable)) return variable;
+            }
+            return -1;
+        }
+    }
+}
@@ -62,10 +62,7 @@ public class DelegatingBindingTrace implements BindingTrace {
         @TestOnly
         @Override
         public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
-            Map<K, V> result = Maps.newHashMap();
-            result.putAll(parentContext.getSliceContents(slice));
-            result.putAll(map.getSliceContents(slice));
-            return ImmutableMap.copyOf(result);
+            return DelegatingBindingTrace.this.getSliceContents(slice);
         }
     };
 
@@ -122,6 +119,15 @@ public class DelegatingBindingTrace implements BindingTrace {
         return result;
     }
 
+    @NotNull
+    @TestOnly
+    public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
+        Map<K, V> result = Maps.newHashMap();
+        result.putAll(parentContext.getSliceContents(slice));
+        result.putAll(map.getSliceContents(slice));
+        return ImmutableMap.copyOf(result);
+    }
+
     public void addAllMyDataTo(@NotNull BindingTrace trace) {
         addAllMyDataTo(trace, null, true);
     }
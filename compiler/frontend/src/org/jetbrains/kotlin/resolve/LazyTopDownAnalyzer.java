@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.resolve;
 
 import com.google.common.collect.HashMultimap;
 import com.google.common.collect.Multimap;
+import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.util.PsiTreeUtil;
 import org.jetbrains.annotations.NotNull;
@@ -30,6 +31,7 @@ import org.jetbrains.kotlin.resolve.lazy.*;
 import org.jetbrains.kotlin.resolve.lazy.descriptors.LazyClassDescriptor;
 import org.jetbrains.kotlin.resolve.resolveUtil.ResolveUtilPackage;
 import org.jetbrains.kotlin.resolve.varianceChecker.VarianceChecker;
+import org.jetbrains.kotlin.types.checker.SubtypingCache;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
@@ -39,6 +41,8 @@ import java.util.List;
 import static org.jetbrains.kotlin.diagnostics.Errors.*;
 
 public class LazyTopDownAnalyzer {
+    private static final Logger LOG = Logger.getInstance(LazyTopDownAnalyzer.class);
+
     private BindingTrace trace;
 
     private DeclarationResolver declarationResolver;
@@ -121,6 +125,24 @@ public class LazyTopDownAnalyzer {
             @NotNull TopDownAnalysisParameters topDownAnalysisParameters,
             @NotNull Collection<? extends PsiElement> declarations,
             @NotNull DataFlowInfo outerDataFlowInfo
+    ) {
+        SubtypingCache subtypingCache = SubtypingCache.start();
+        try {
+            return doAnalyzeDeclarations(topDownAnalysisParameters, declarations, outerDataFlowInfo);
+        }
+        finally {
+            SubtypingCache.finish(subtypingCache);
+            if (subtypingCache != null && LOG.isDebugEnabled()) {
+                LOG.debug(subtypingCache.toString());
+            }
+        }
+    }
+
+    @NotNull
+    private TopDownAnalysisContext doAnalyzeDeclarations(
+            @NotNull TopDownAnalysisParameters topDownAnalysisParameters,
+            @NotNull Collection<? extends PsiElement> declarations,
+            @NotNull DataFlowInfo outerDataFlowInfo
     ) {
         final TopDownAnalysisContext c = new TopDownAnalysisContext(topDownAnalysisParameters, outerDataFlowInfo);
 
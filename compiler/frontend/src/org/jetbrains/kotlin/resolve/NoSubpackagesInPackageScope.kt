@@ -28,6 +28,8 @@ class NoSubpackagesInPackageScope(packageDescriptor: PackageViewDescriptor) : Ab
 
     override fun getPackage(name: Name): PackageViewDescriptor? = null
 
+    override fun definitelyDoesNotContainName(name: Name) = workerScope.definitelyDoesNotContainName(name)
+
     override fun getDescriptors(kindFilter: DescriptorKindFilter, nameFilter: (Name) -> Boolean): Collection<DeclarationDescriptor> {
         val modifiedFilter = kindFilter.withoutKinds(DescriptorKindFilter.PACKAGES_MASK)
         if (modifiedFilter.kindMask == 0) return listOf()
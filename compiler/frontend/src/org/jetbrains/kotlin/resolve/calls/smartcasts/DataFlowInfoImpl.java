@@ -0,0 +1,285 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.resolve.calls.smartcasts;
+
+import com.google.common.collect.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.types.JetType;
+import org.jetbrains.kotlin.types.TypeUtils;
+import org.jetbrains.kotlin.utils.PersistentHamt;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.jetbrains.kotlin.resolve.calls.smartcasts.Nullability.NOT_NULL;
+
+/**
+ * Both maps are persistent, so that each refinement shares everything but the changed path with the original info,
+ * and merging two infos derived from the same one only looks at the values changed since then.
+ */
+/* package */ class DataFlowInfoImpl implements DataFlowInfo {
+    @NotNull
+    private final PersistentHamt<DataFlowValue, Nullability> nullabilityInfo;
+
+    /** The most recently established types of each value go first */
+    @NotNull
+    private final PersistentHamt<DataFlowValue, ImmutableSet<JetType>> typeInfo;
+
+    /* package */ DataFlowInfoImpl(
+            @NotNull PersistentHamt<DataFlowValue, Nullability> nullabilityInfo,
+            @NotNull PersistentHamt<DataFlowValue, ImmutableSet<JetType>> typeInfo
+    ) {
+        this.nullabilityInfo = nullabilityInfo;
+        this.typeInfo = typeInfo;
+    }
+
+    @Override
+    @NotNull
+    public Map<DataFlowValue, Nullability> getCompleteNullabilityInfo() {
+        return nullabilityInfo.toMap();
+    }
+
+    @Override
+    @NotNull
+    public SetMultimap<DataFlowValue, JetType> getCompleteTypeInfo() {
+        SetMultimap<DataFlowValue, JetType> result = LinkedHashMultimap.create();
+        for (Map.Entry<DataFlowValue, ImmutableSet<JetType>> entry : typeInfo.toMap().entrySet()) {
+            result.putAll(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    @NotNull
+    public Nullability getNullability(@NotNull DataFlowValue key) {
+        if (!key.isStableIdentifier()) return key.getImmanentNullability();
+        Nullability nullability = nullabilityInfo.get(key);
+        return nullability != null ? nullability : key.getImmanentNullability();
+    }
+
+    private boolean putNullability(@NotNull Map<DataFlowValue, Nullability> map, @NotNull DataFlowValue value, @NotNull Nullability nullability) {
+        if (!value.isStableIdentifier()) return false;
+        map.put(value, nullability);
+        return nullability != getNullability(value);
+    }
+
+    @NotNull
+    private PersistentHamt<DataFlowValue, Nullability> putAllNullability(@NotNull Map<DataFlowValue, Nullability> map) {
+        PersistentHamt<DataFlowValue, Nullability> result = nullabilityInfo;
+        for (Map.Entry<DataFlowValue, Nullability> entry : map.entrySet()) {
+            result = result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @NotNull
+    private ImmutableSet<JetType> getTypes(@NotNull DataFlowValue key) {
+        ImmutableSet<JetType> types = typeInfo.get(key);
+        return types != null ? types : ImmutableSet.<JetType>of();
+    }
+
+    @NotNull
+    private static ImmutableSet<JetType> prependTypes(@NotNull Collection<JetType> newTypes, @Nullable ImmutableSet<JetType> types) {
+        if (types == null || types.isEmpty()) return ImmutableSet.copyOf(newTypes);
+        return ImmutableSet.<JetType>builder().addAll(newTypes).addAll(types).build();
+    }
+
+    @Override
+    @NotNull
+    public Set<JetType> getPossibleTypes(@NotNull DataFlowValue key) {
+        Set<JetType> types = getTypes(key);
+        if (getNullability(key).canBeNull()) {
+            return types;
+        }
+
+        Set<JetType> enrichedTypes = Sets.newHashSetWithExpectedSize(types.size() + 1);
+        JetType originalType = key.getType();
+        if (originalType.isMarkedNullable()) {
+            enrichedTypes.add(TypeUtils.makeNotNullable(originalType));
+        }
+        for (JetType type : types) {
+            enrichedTypes.add(TypeUtils.makeNotNullable(type));
+        }
+
+        return enrichedTypes;
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo equate(@NotNull DataFlowValue a, @NotNull DataFlowValue b) {
+        Map<DataFlowValue, Nullability> builder = Maps.newHashMap();
+        Nullability nullabilityOfA = getNullability(a);
+        Nullability nullabilityOfB = getNullability(b);
+
+        boolean changed = false;
+        changed |= putNullability(builder, a, nullabilityOfA.refine(nullabilityOfB));
+        changed |= putNullability(builder, b, nullabilityOfB.refine(nullabilityOfA));
+
+        ImmutableSet<JetType> typesOfA = getTypes(a);
+        ImmutableSet<JetType> typesOfB = getTypes(b);
+        changed |= !typesOfA.isEmpty() || !typesOfB.isEmpty();
+        if (!changed) return this;
+
+        PersistentHamt<DataFlowValue, ImmutableSet<JetType>> newTypeInfo = typeInfo;
+        if (!typesOfB.isEmpty()) {
+            newTypeInfo = newTypeInfo.put(a, prependTypes(typesOfB, typesOfA));
+        }
+        if (!typesOfA.isEmpty()) {
+            newTypeInfo = newTypeInfo.put(b, prependTypes(typesOfA, newTypeInfo.get(b)));
+        }
+        return new DataFlowInfoImpl(putAllNullability(builder), newTypeInfo);
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo disequate(@NotNull DataFlowValue a, @NotNull DataFlowValue b) {
+        Map<DataFlowValue, Nullability> builder = Maps.newHashMap();
+        Nullability nullabilityOfA = getNullability(a);
+        Nullability nullabilityOfB = getNullability(b);
+
+        boolean changed = false;
+        changed |= putNullability(builder, a, nullabilityOfA.refine(nullabilityOfB.invert()));
+        changed |= putNullability(builder, b, nullabilityOfB.refine(nullabilityOfA.invert()));
+        return changed ? new DataFlowInfoImpl(putAllNullability(builder), typeInfo) : this;
+    }
+
+    @Override
+    @NotNull
+    public DataFlowInfo establishSubtyping(@NotNull DataFlowValue value, @NotNull JetType type) {
+        if (value.getType().equals(type)) return this;
+        if (getPossibleTypes(value).contains(type)) return this;
+        PersistentHamt<DataFlowValue, Nullability> newNullabilityInfo =
+                type.isMarkedNullable() ? nullabilityInfo : nullabilityInfo.put(value, NOT_NULL);
+        PersistentHamt<DataFlowValue, ImmutableSet<JetType>> newTypeInfo =
+                typeInfo.put(value, prependTypes(ImmutableSet.of(type), typeInfo.get(value)));
+        return new DataFlowInfoImpl(newNullabilityInfo, newTypeInfo);
+    }
+
+    @NotNull
+    @Override
+    public DataFlowInfo and(@NotNull DataFlowInfo otherInfo) {
+        if (otherInfo == EMPTY) return this;
+        if (this == EMPTY) return otherInfo;
+        if (this == otherInfo) return this;
+
+        assert otherInfo instanceof DataFlowInfoImpl : "Unknown DataFlowInfo type: " + otherInfo;
+        DataFlowInfoImpl other = (DataFlowInfoImpl) otherInfo;
+
+        final Map<DataFlowValue, Nullability> nullabilityMapBuilder = Maps.newHashMap();
+        nullabilityInfo.forEachDifference(other.nullabilityInfo, new PersistentHamt.DifferenceVisitor<DataFlowValue, Nullability>() {
+            @Override
+            public void visit(@NotNull DataFlowValue key, @Nullable Nullability thisValue, @Nullable Nullability otherFlags) {
+                if (otherFlags == null) return;
+                Nullability thisFlags = getNullability(key);
+                Nullability flags = thisFlags.and(otherFlags);
+                if (flags != thisFlags) {
+                    nullabilityMapBuilder.put(key, flags);
+                }
+            }
+        });
+
+        final List<Map.Entry<DataFlowValue, ImmutableSet<JetType>>> otherTypeInfo = Lists.newArrayList();
+        final boolean[] containsAll = new boolean[] {true};
+        typeInfo.forEachDifference(other.typeInfo, new PersistentHamt.DifferenceVisitor<DataFlowValue, ImmutableSet<JetType>>() {
+            @Override
+            public void visit(
+                    @NotNull DataFlowValue key,
+                    @Nullable ImmutableSet<JetType> thisTypes,
+                    @Nullable ImmutableSet<JetType> otherTypes
+            ) {
+                if (otherTypes == null) return;
+                otherTypeInfo.add(Maps.immutableEntry(key, otherTypes));
+                if (thisTypes == null || !thisTypes.containsAll(otherTypes)) {
+                    containsAll[0] = false;
+                }
+            }
+        });
+
+        if (nullabilityMapBuilder.isEmpty() && containsAll[0]) {
+            return this;
+        }
+
+        PersistentHamt<DataFlowValue, ImmutableSet<JetType>> newTypeInfo = typeInfo;
+        for (Map.Entry<DataFlowValue, ImmutableSet<JetType>> entry : otherTypeInfo) {
+            newTypeInfo = newTypeInfo.put(entry.getKey(), prependTypes(entry.getValue(), typeInfo.get(entry.getKey())));
+        }
+        return new DataFlowInfoImpl(putAllNullability(nullabilityMapBuilder), newTypeInfo);
+    }
+
+    @NotNull
+    @Override
+    public DataFlowInfo or(@NotNull DataFlowInfo otherInfo) {
+        if (otherInfo == EMPTY) return EMPTY;
+        if (this == EMPTY) return EMPTY;
+        if (this == otherInfo) return this;
+
+        assert otherInfo instanceof DataFlowInfoImpl : "Unknown DataFlowInfo type: " + otherInfo;
+        DataFlowInfoImpl other = (DataFlowInfoImpl) otherInfo;
+
+        // Values only known in this info are forgotten, so start with the other info and only fix the entries which differ
+        final Map<DataFlowValue, Nullability> nullabilityMapBuilder = Maps.newHashMap();
+        nullabilityInfo.forEachDifference(other.nullabilityInfo, new PersistentHamt.DifferenceVisitor<DataFlowValue, Nullability>() {
+            @Override
+            public void visit(@NotNull DataFlowValue key, @Nullable Nullability thisValue, @Nullable Nullability otherFlags) {
+                if (otherFlags == null) return;
+                nullabilityMapBuilder.put(key, getNullability(key).or(otherFlags));
+            }
+        });
+        PersistentHamt<DataFlowValue, Nullability> newNullabilityInfo = other.nullabilityInfo;
+        for (Map.Entry<DataFlowValue, Nullability> entry : nullabilityMapBuilder.entrySet()) {
+            newNullabilityInfo = newNullabilityInfo.put(entry.getKey(), entry.getValue());
+        }
+
+        final Map<DataFlowValue, ImmutableSet<JetType>> typeInfoBuilder = Maps.newHashMap();
+        typeInfo.forEachDifference(other.typeInfo, new PersistentHamt.DifferenceVisitor<DataFlowValue, ImmutableSet<JetType>>() {
+            @Override
+            public void visit(
+                    @NotNull DataFlowValue key,
+                    @Nullable ImmutableSet<JetType> thisTypes,
+                    @Nullable ImmutableSet<JetType> otherTypes
+            ) {
+                if (otherTypes == null) return;
+                typeInfoBuilder.put(key, thisTypes == null
+                                         ? ImmutableSet.<JetType>of()
+                                         : ImmutableSet.copyOf(Sets.intersection(thisTypes, otherTypes)));
+            }
+        });
+        PersistentHamt<DataFlowValue, ImmutableSet<JetType>> newTypeInfo = other.typeInfo;
+        for (Map.Entry<DataFlowValue, ImmutableSet<JetType>> entry : typeInfoBuilder.entrySet()) {
+            newTypeInfo = entry.getValue().isEmpty()
+                          ? newTypeInfo.remove(entry.getKey())
+                          : newTypeInfo.put(entry.getKey(), entry.getValue());
+        }
+
+        if (newNullabilityInfo.isEmpty() && newTypeInfo.isEmpty()) {
+            return EMPTY;
+        }
+
+        return new DataFlowInfoImpl(newNullabilityInfo, newTypeInfo);
+    }
+
+    @Override
+    public String toString() {
+        if (typeInfo.isEmpty() && nullabilityInfo.isEmpty()) {
+            return "EMPTY";
+        }
+        return "Non-trivial DataFlowInfo";
+    }
+}
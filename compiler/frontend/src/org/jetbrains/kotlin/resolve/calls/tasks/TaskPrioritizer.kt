@@ -40,6 +40,8 @@ import org.jetbrains.kotlin.resolve.scopes.receivers.ReceiverValue.NO_RECEIVER
 import org.jetbrains.kotlin.resolve.*
 import org.jetbrains.kotlin.resolve.calls.util.*
 import org.jetbrains.kotlin.resolve.calls.tasks.collectors.*
+import org.jetbrains.kotlin.builtins.KotlinBuiltIns
+import java.util.HashSet
 
 public class TaskPrioritizer(private val storageManager: StorageManager) {
 
@@ -144,6 +146,7 @@ public class TaskPrioritizer(private val storageManager: StorageManager) {
             c: TaskPrioritizerContext<D, F>,
             isExplicit: Boolean
     ) {
+        val receiverSupertypes = storageManager.createNullableLazyValue { getAllSupertypeConstructors(explicitReceiver, c.context) }
         for (callableDescriptorCollector in c.callableDescriptorCollectors) {
             //member extensions
             for (implicitReceiver in implicitReceivers) {
@@ -156,18 +159,64 @@ public class TaskPrioritizer(private val storageManager: StorageManager) {
                 )
             }
             //extensions
+            // Extensions whose receiver type can't be a supertype of the receiver (e.g. most of the library extensions named 'plus')
+            // fail anyway, so they're tried only if no other extension is applicable, to report errors as before
+            val extensions = storageManager.createLazyValue {
+                callableDescriptorCollector.getExtensionsByName(c.scope, c.name, c.context.trace).partition {
+                    mayAcceptReceiver(it, receiverSupertypes())
+                }
+            }
             c.result.addCandidates {
                 convertWithImpliedThis(
-                        c.scope,
-                        explicitReceiver,
-                        callableDescriptorCollector.getExtensionsByName(c.scope, c.name, c.context.trace),
-                        createKind(EXTENSION_RECEIVER, isExplicit),
-                        c.context.call
+                        c.scope, explicitReceiver, extensions().first, createKind(EXTENSION_RECEIVER, isExplicit), c.context.call
+                )
+            }
+            c.result.addCandidates {
+                convertWithImpliedThis(
+                        c.scope, explicitReceiver, extensions().second, createKind(EXTENSION_RECEIVER, isExplicit), c.context.call
                 )
             }
         }
     }
 
+    /**
+     * @return type constructors of all supertypes of all types the receiver may have (taking smart casts into account),
+     * or null if they can't be used to rule out extensions, e.g. when the receiver's type is a type parameter
+     */
+    private fun getAllSupertypeConstructors(receiver: ReceiverValue, context: ResolutionContext<*>): Set<TypeConstructor>? {
+        val result = HashSet<TypeConstructor>()
+        for (type in SmartCastUtils.getSmartCastVariants(receiver, context)) {
+            for (bound in type.bounds()) {
+                if (bound.isError() || KotlinBuiltIns.isNothingOrNullableNothing(bound) ||
+                    KotlinBuiltIns.isFunctionOrExtensionFunctionType(bound)) return null
+
+                val constructor = bound.getConstructor()
+                if (constructor.getDeclarationDescriptor() !is ClassDescriptor) return null
+
+                // Supertypes are collected from the type itself, because cached supertype closures of classes
+                // may be unavailable while the hierarchy is being resolved
+                result.add(constructor)
+                TypeUtils.getAllSupertypes(bound).mapTo(result) { it.getConstructor() }
+            }
+        }
+        return result
+    }
+
+    private fun mayAcceptReceiver(descriptor: CallableDescriptor, receiverSupertypes: Set<TypeConstructor>?): Boolean {
+        if (receiverSupertypes == null) return true
+        // Variables of extension function types are checked later
+        val receiverParameter = descriptor.getExtensionReceiverParameter() ?: return true
+
+        return receiverParameter.getType().bounds().any {
+            it.isError() || KotlinBuiltIns.isFunctionOrExtensionFunctionType(it) ||
+            it.getConstructor().getDeclarationDescriptor() !is ClassDescriptor ||
+            it.getConstructor() in receiverSupertypes
+        }
+    }
+
+    private fun JetType.bounds(): List<JetType> =
+            if (isFlexible()) listOf(flexibility().lowerBound, flexibility().upperBound) else listOf(this)
+
     private fun <D : CallableDescriptor, F : D> addMembers(
             explicitReceiver: ReceiverValue,
             c: TaskPrioritizerContext<D, F>,
@@ -539,6 +539,9 @@ public class LazyClassDescriptor extends ClassDescriptorBase implements ClassDes
     }
 
     private class LazyClassTypeConstructor extends AbstractClassTypeConstructor implements LazyEntity {
+        // Supertypes are visible to recursive calls before loops in the hierarchy are disconnected
+        private volatile boolean supertypesFinal = false;
+
         private final NotNullLazyValue<Supertypes> supertypes = c.getStorageManager().createLazyValueWithPostCompute(
                 new Function0<Supertypes>() {
                     @Override
@@ -569,6 +572,7 @@ public class LazyClassDescriptor extends ClassDescriptorBase implements ClassDes
                     @Override
                     public Unit invoke(@NotNull Supertypes supertypes) {
                         findAndDisconnectLoopsInTypeHierarchy(supertypes);
+                        supertypesFinal = true;
                         return Unit.INSTANCE$;
                     }
                 }
@@ -604,6 +608,11 @@ public class LazyClassDescriptor extends ClassDescriptorBase implements ClassDes
                     }
                 }, null);
 
+        @Override
+        public boolean areSupertypesFinal() {
+            return supertypesFinal;
+        }
+
         @NotNull
         @Override
         public List<TypeParameterDescriptor> getParameters() {
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.resolve.scopes
 
 import org.jetbrains.kotlin.descriptors.ClassDescriptor
+import org.jetbrains.kotlin.name.Name
 
 /**
  * Members of the companion object are accessible from the class.
@@ -27,4 +28,6 @@ public class CompanionObjectMixinScope(private val companionObjectDescriptor: Cl
         get() = companionObjectDescriptor.getDefaultType().getMemberScope()
 
     override fun getImplicitReceiversHierarchy() = listOf(companionObjectDescriptor.getThisAsReceiverParameter())
+
+    override fun definitelyDoesNotContainName(name: Name) = workerScope.definitelyDoesNotContainName(name)
 }
@@ -53,8 +53,13 @@ public class BasicWritableSlice<K, V> implements WritableSlice<K, V> {
     }
 
     @Override
-    public SlicedMapKey<K, V> makeKey(K key) {
-        return new SlicedMapKey<K, V>(this, key);
+    public WritableSlice<K, ?> getStorageSlice() {
+        return this;
+    }
+
+    @Override
+    public K normalizeKey(K key) {
+        return key;
     }
 
     // True to put, false to skip
@@ -49,8 +49,13 @@ public class DelegatingSlice<K, V> implements WritableSlice<K, V> {
     }
 
     @Override
-    public SlicedMapKey<K, V> makeKey(K key) {
-        return delegate.makeKey(key);
+    public WritableSlice<K, ?> getStorageSlice() {
+        return delegate.getStorageSlice();
+    }
+
+    @Override
+    public K normalizeKey(K key) {
+        return delegate.normalizeKey(key);
     }
 
     @Override
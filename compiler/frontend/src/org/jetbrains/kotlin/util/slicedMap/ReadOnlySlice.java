@@ -17,7 +17,15 @@
 package org.jetbrains.kotlin.util.slicedMap;
 
 public interface ReadOnlySlice<K, V> {
-    SlicedMapKey<K, V> makeKey(K key);
+    /**
+     * @return the slice which values of this one are stored under in a sliced map
+     */
+    WritableSlice<K, ?> getStorageSlice();
+
+    /**
+     * @return the key which a value for the given one is stored with in a sliced map
+     */
+    K normalizeKey(K key);
 
     V computeValue(SlicedMap map, K key, V value, boolean valueNotFound);
 
@@ -18,33 +18,38 @@ package org.jetbrains.kotlin.util.slicedMap;
 
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Map;
+import java.util.*;
 
+/**
+ * Values are kept in a separate map for each slice, so that lookups neither allocate a composite {@link SlicedMapKey}
+ * nor hash the slice together with the key. Entries are also linked in the order of insertion,
+ * which is the order of iteration, as with a single linked map.
+ */
 public class SlicedMapImpl implements MutableSlicedMap {
 
     public static SlicedMapImpl create() {
-        return new SlicedMapImpl(Maps.<SlicedMapKey<?, ?>, Object>newLinkedHashMap());
-    }
-
-    public static SlicedMapImpl create(Map<SlicedMapKey<?, ?>, Object> map) {
-        return new SlicedMapImpl(map);
+        // Entries are linked by the sliced map itself, so the maps don't need to keep the order of insertion
+        return new SlicedMapImpl(MapSupplier.HASH_MAP_SUPPLIER);
     }
 
     public static SlicedMapImpl create(MapSupplier mapSupplier) {
-        return new SlicedMapImpl(mapSupplier.<SlicedMapKey<?, ?>, Object>get());
+        return new SlicedMapImpl(mapSupplier);
     }
-    
-    private final Map<SlicedMapKey<?, ?>, Object> map;
+
+    private final MapSupplier mapSupplier;
+    // Slices do not override equals(), so this map compares them by identity
+    private final Map<WritableSlice<?, ?>, Map<Object, Entry>> sliceToMap;
     private final Multimap<WritableSlice<?, ?>, Object> collectiveSliceKeys = ArrayListMultimap.create();
 
-    protected SlicedMapImpl(Map<SlicedMapKey<?, ?>, Object> map) {
-        this.map = map;
+    private Entry first = null;
+    private Entry last = null;
+
+    protected SlicedMapImpl(MapSupplier mapSupplier) {
+        this.mapSupplier = mapSupplier;
+        this.sliceToMap = mapSupplier.get();
     }
 
     @Override
@@ -53,12 +58,19 @@ public class SlicedMapImpl implements MutableSlicedMap {
             return;
         }
 
-        SlicedMapKey<K, V> slicedMapKey = slice.makeKey(key);
+        Map<Object, Entry> map = sliceToMap.get(slice.getStorageSlice());
+        if (map == null) {
+            map = mapSupplier.get();
+            sliceToMap.put(slice.getStorageSlice(), map);
+        }
+
+        K storageKey = slice.normalizeKey(key);
+        Entry entry = map.get(storageKey);
         RewritePolicy rewritePolicy = slice.getRewritePolicy();
         if (rewritePolicy.rewriteProcessingNeeded(key)) {
-            if (map.containsKey(slicedMapKey)) {
+            if (entry != null) {
                 //noinspection unchecked
-                if (!rewritePolicy.processRewrite(slice, key, (V) map.get(slicedMapKey), value)) {
+                if (!rewritePolicy.processRewrite(slice, key, (V) entry.value, value)) {
                     return;
                 }
             }
@@ -68,21 +80,28 @@ public class SlicedMapImpl implements MutableSlicedMap {
             collectiveSliceKeys.put(slice, key);
         }
 
-        map.put(slicedMapKey, value);
+        if (entry == null) {
+            entry = new Entry(slice.getStorageSlice(), storageKey);
+            link(entry);
+            map.put(storageKey, entry);
+        }
+        entry.value = value;
         slice.afterPut(this, key, value);
     }
 
     @Override
     public void clear() {
-        map.clear();
+        sliceToMap.clear();
+        first = null;
+        last = null;
     }
 
     @Override
     public <K, V> V get(ReadOnlySlice<K, V> slice, K key) {
-        SlicedMapKey<K, V> slicedMapKey = slice.makeKey(key);
+        Map<Object, Entry> map = sliceToMap.get(slice.getStorageSlice());
+        Entry entry = map == null ? null : map.get(slice.normalizeKey(key));
         //noinspection unchecked
-        V value = (V) map.get(slicedMapKey);
-        return slice.computeValue(this, key, value, value == null && !map.containsKey(slicedMapKey));
+        return slice.computeValue(this, key, entry == null ? null : (V) entry.value, entry == null);
     }
 
     @Override
@@ -94,26 +113,103 @@ public class SlicedMapImpl implements MutableSlicedMap {
 
     @Override
     public <K, V> V remove(RemovableSlice<K, V> slice, K key) {
+        Map<Object, Entry> map = sliceToMap.get(slice.getStorageSlice());
+        if (map == null) return null;
+
+        Entry entry = map.remove(slice.normalizeKey(key));
+        if (entry == null) return null;
+
+        unlink(entry);
         //noinspection unchecked
-        return (V) map.remove(slice.makeKey(key));
+        return (V) entry.value;
     }
 
     @NotNull
     @Override
     public Iterator<Map.Entry<SlicedMapKey<?, ?>, ?>> iterator() {
-        //noinspection unchecked
-        return (Iterator) map.entrySet().iterator();
+        return new Iterator<Map.Entry<SlicedMapKey<?, ?>, ?>>() {
+            private Entry next = first;
+            private Entry current = null;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<SlicedMapKey<?, ?>, ?> next() {
+                if (next == null) throw new NoSuchElementException();
+
+                current = next;
+                next = next.next;
+                SlicedMapKey<?, ?> key = new SlicedMapKey<Object, Object>((WritableSlice<Object, Object>) current.slice, current.key);
+                return new AbstractMap.SimpleImmutableEntry<SlicedMapKey<?, ?>, Object>(key, current.value);
+            }
+
+            @Override
+            public void remove() {
+                if (current == null) throw new IllegalStateException();
+
+                sliceToMap.get(current.slice).remove(current.key);
+                unlink(current);
+                current = null;
+            }
+        };
     }
 
     @NotNull
     @Override
+    @SuppressWarnings("unchecked")
     public <K, V> ImmutableMap<K, V> getSliceContents(@NotNull ReadOnlySlice<K, V> slice) {
         ImmutableMap.Builder<K, V> builder = ImmutableMap.builder();
-        for (Map.Entry<SlicedMapKey<?, ?>, ?> entry : map.entrySet()) {
-            if (entry.getKey().getSlice() == slice) {
-                builder.put((K) entry.getKey().getKey(), (V) entry.getValue());
+        WritableSlice<?, ?> storageSlice = slice.getStorageSlice();
+        for (Entry entry = first; entry != null; entry = entry.next) {
+            if (entry.slice == storageSlice) {
+                builder.put((K) entry.key, (V) entry.value);
             }
         }
         return builder.build();
     }
+
+    private void link(@NotNull Entry entry) {
+        entry.previous = last;
+        if (last == null) {
+            first = entry;
+        }
+        else {
+            last.next = entry;
+        }
+        last = entry;
+    }
+
+    private void unlink(@NotNull Entry entry) {
+        if (entry.previous == null) {
+            first = entry.next;
+        }
+        else {
+            entry.previous.next = entry.next;
+        }
+
+        if (entry.next == null) {
+            last = entry.previous;
+        }
+        else {
+            entry.next.previous = entry.previous;
+        }
+    }
+
+    private static final class Entry {
+        private final WritableSlice<?, ?> slice;
+        private final Object key;
+        private Object value;
+
+        private Entry previous;
+        private Entry next;
+
+        private Entry(@NotNull WritableSlice<?, ?> slice, Object key) {
+            this.slice = slice;
+            this.key = key;
+        }
+    }
 }
@@ -187,11 +187,11 @@ public class Slices {
             }
         }
         @Override
-        public SlicedMapKey<K, V> makeKey(K key) {
+        public K normalizeKey(K key) {
             if (keyNormalizer == null) {
-                return super.makeKey(key);
+                return key;
             }
-            return super.makeKey(keyNormalizer.normalize(key));
+            return keyNormalizer.normalize(key);
         }
 
     }
@@ -31,7 +31,7 @@ public class TrackingSlicedMap extends SlicedMapImpl {
     private final boolean trackWithStackTraces;
 
     public TrackingSlicedMap(boolean trackWithStackTraces) {
-        super(Maps.<SlicedMapKey<?, ?>, Object>newLinkedHashMap());
+        super(MapSupplier.LINKED_HASH_MAP_SUPPLIER);
         this.trackWithStackTraces = trackWithStackTraces;
     }
 
@@ -154,9 +154,13 @@ public class TrackingSlicedMap extends SlicedMapImpl {
         // Methods of ReadOnlySlice
 
         @Override
-        public SlicedMapKey<K, TrackableValue<V>> makeKey(K key) {
-            //noinspection unchecked
-            return (SlicedMapKey) delegate.makeKey(key);
+        public WritableSlice<K, ?> getStorageSlice() {
+            return delegate.getStorageSlice();
+        }
+
+        @Override
+        public K normalizeKey(K key) {
+            return delegate.normalizeKey(key);
         }
 
         @Override
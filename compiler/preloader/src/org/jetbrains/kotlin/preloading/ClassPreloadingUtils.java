@@ -26,6 +26,9 @@ import java.util.zip.ZipInputStream;
 
 @SuppressWarnings("unchecked")
 public class ClassPreloadingUtils {
+    // Archive of the jars referenced from the Class-Path attribute of the manifests is stored next to the main one
+    private static final String CLASSPATH_ARCHIVE_SUFFIX = ".classpath";
+
     /**
      * Creates a class loader that loads all classes from {@code jarFiles} into memory to make loading faster (avoid skipping through zip archives).
      *
@@ -46,11 +49,45 @@ public class ClassPreloadingUtils {
             ClassCondition classesToLoadByParent,
             ClassHandler handler
     ) throws IOException {
-        Map<String, Object> entries = loadAllClassesFromJars(jarFiles, classCountEstimation, handler);
+        return preloadClasses(jarFiles, classCountEstimation, parentClassLoader, classesToLoadByParent, handler, null);
+    }
+
+    /**
+     * Same as {@link #preloadClasses(Collection, int, ClassLoader, ClassCondition, ClassHandler)}, but if {@code archiveFile}
+     * is not null, classes are served from this {@link PreloadedClassArchive} when it's up to date with {@code jarFiles}.
+     * Otherwise the classes are loaded from the jars and the archive is (re)created for the subsequent runs.
+     *
+     * NOTE: {@link ClassHandler#instrument} is not called for resources loaded from the archive
+     *
+     * @param archiveFile preloaded class archive to use, or null to always load classes from the jars
+     */
+    public static ClassLoader preloadClasses(
+            Collection<File> jarFiles,
+            int classCountEstimation,
+            ClassLoader parentClassLoader,
+            ClassCondition classesToLoadByParent,
+            ClassHandler handler,
+            File archiveFile
+    ) throws IOException {
+        List<File> jarList = new ArrayList<File>(jarFiles);
+
+        Map<String, Object> entries = archiveFile != null ? PreloadedClassArchive.load(archiveFile, jarList) : null;
+        if (entries == null) {
+            entries = loadAllClassesFromJars(jarList, classCountEstimation, handler);
+            if (archiveFile != null) {
+                try {
+                    PreloadedClassArchive.save(archiveFile, jarList, entries);
+                }
+                catch (IOException e) {
+                    // The archive is only an optimization, the next run will try to create it again
+                }
+            }
+        }
 
         Collection<File> classpath = mergeClasspathFromManifests(entries);
         if (!classpath.isEmpty()) {
-            parentClassLoader = preloadClasses(classpath, classCountEstimation, parentClassLoader, null, handler);
+            File classpathArchiveFile = archiveFile != null ? new File(archiveFile.getPath() + CLASSPATH_ARCHIVE_SUFFIX) : null;
+            parentClassLoader = preloadClasses(classpath, classCountEstimation, parentClassLoader, null, handler, classpathArchiveFile);
         }
 
         return new MemoryBasedClassLoader(classesToLoadByParent, parentClassLoader, entries, handler);
@@ -81,7 +118,7 @@ public class ClassPreloadingUtils {
     }
 
     private static Collection<File> extractManifestClasspath(ResourceData manifestData) throws IOException {
-        Manifest manifest = new Manifest(new ByteArrayInputStream(manifestData.bytes));
+        Manifest manifest = new Manifest(new ByteArrayInputStream(manifestData.getBytes()));
         String classpathSpaceSeparated = (String) manifest.getMainAttributes().get(Attributes.Name.CLASS_PATH);
         if (classpathSpaceSeparated == null) return Collections.emptyList();
 
@@ -139,23 +176,7 @@ public class ClassPreloadingUtils {
                     if (handler != null) {
                         data = handler.instrument(name, data);
                     }
-                    ResourceData resourceData = new ResourceData(jarFile, name, data);
-
-                    Object previous = resources.get(name);
-                    if (previous == null) {
-                        resources.put(name, resourceData);
-                    }
-                    else if (previous instanceof ResourceData) {
-                        List<ResourceData> list = new ArrayList<ResourceData>();
-                        list.add((ResourceData) previous);
-                        list.add(resourceData);
-                        resources.put(name, list);
-                    }
-                    else {
-                        assert previous instanceof ArrayList :
-                                "Resource map should contain ResourceData or ArrayList<ResourceData>: " + name;
-                        ((ArrayList<ResourceData>) previous).add(resourceData);
-                    }
+                    addResource(resources, new ResourceData(jarFile, name, data));
                 }
             }
             finally {
@@ -180,4 +201,23 @@ public class ClassPreloadingUtils {
 
         return resources;
     }
+
+    static void addResource(Map<String, Object> resources, ResourceData resourceData) {
+        String name = resourceData.resourceName;
+        Object previous = resources.get(name);
+        if (previous == null) {
+            resources.put(name, resourceData);
+        }
+        else if (previous instanceof ResourceData) {
+            List<ResourceData> list = new ArrayList<ResourceData>();
+            list.add((ResourceData) previous);
+            list.add(resourceData);
+            resources.put(name, list);
+        }
+        else {
+            assert previous instanceof ArrayList :
+                    "Resource map should contain ResourceData or ArrayList<ResourceData>: " + name;
+            ((ArrayList<ResourceData>) previous).add(resourceData);
+        }
+    }
 }
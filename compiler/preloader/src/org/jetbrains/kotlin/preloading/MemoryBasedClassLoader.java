@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.preloading;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 @SuppressWarnings("unchecked")
@@ -81,12 +82,15 @@ public class MemoryBasedClassLoader extends ClassLoader {
                                     ? ((ResourceData) resources)
                                     : ((List<ResourceData>) resources).get(0);
 
-        int sizeInBytes = resourceData.bytes.length;
+        int sizeInBytes = resourceData.getSize();
         if (handler != null) {
             handler.beforeDefineClass(name, sizeInBytes);
         }
 
-        Class<?> definedClass = defineClass(name, resourceData.bytes, 0, sizeInBytes);
+        ByteBuffer buffer = resourceData.getBuffer();
+        Class<?> definedClass = buffer != null
+                                ? defineClass(name, buffer, null)
+                                : defineClass(name, resourceData.getBytes(), 0, sizeInBytes);
 
         if (handler != null) {
             handler.afterDefineClass(name);
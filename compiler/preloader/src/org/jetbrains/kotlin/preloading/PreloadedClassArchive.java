@@ -0,0 +1,200 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.preloading;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * A single uncompressed file containing all resources of a list of jars, together with an index of them.
+ *
+ * The archive is memory-mapped on load, so resources are neither inflated nor copied to the heap until they are requested.
+ * An archive is only valid for the exact list of jars it was created from, and only while their sizes and modification
+ * times are the same as at the moment of creation; otherwise it's considered stale and {@link #load} returns null.
+ *
+ * Format (all numbers are big-endian): magic, version, jar count, for each jar: path, length and modification time,
+ * entry count, for each entry: resource name, index of the jar, offset in the data section and length, then the data section.
+ */
+@SuppressWarnings("unchecked")
+public class PreloadedClassArchive {
+    private static final int MAGIC = 0x4B505243; // "KPRC"
+    private static final int VERSION = 1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PreloadedClassArchive() {
+    }
+
+    /**
+     * @return a map of name to resources in the same format as the one of {@link ClassPreloadingUtils},
+     * or null if the archive doesn't exist, is corrupted or was created for different versions of the jars
+     */
+    public static Map<String, Object> load(File archiveFile, List<File> jarFiles) {
+        if (!archiveFile.isFile()) return null;
+
+        try {
+            RandomAccessFile file = new RandomAccessFile(archiveFile, "r");
+            try {
+                MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+                return readIndex(buffer, jarFiles);
+            }
+            finally {
+                // The mapping stays valid after the channel is closed
+                file.close();
+            }
+        }
+        catch (IOException e) {
+            return null;
+        }
+        catch (RuntimeException e) {
+            // Corrupted archive: BufferUnderflowException, IndexOutOfBoundsException etc.
+            return null;
+        }
+    }
+
+    private static Map<String, Object> readIndex(ByteBuffer buffer, List<File> jarFiles) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) return null;
+
+        int jarCount = buffer.getInt();
+        if (jarCount != jarFiles.size()) return null;
+
+        for (File jarFile : jarFiles) {
+            String path = readString(buffer);
+            long length = buffer.getLong();
+            long lastModified = buffer.getLong();
+            if (!path.equals(jarFile.getAbsolutePath()) || length != jarFile.length() || lastModified != jarFile.lastModified()) {
+                return null;
+            }
+        }
+
+        int entryCount = buffer.getInt();
+        String[] names = new String[entryCount];
+        int[] jarIndices = new int[entryCount];
+        int[] offsets = new int[entryCount];
+        int[] lengths = new int[entryCount];
+        for (int i = 0; i < entryCount; i++) {
+            names[i] = readString(buffer);
+            jarIndices[i] = buffer.getInt();
+            offsets[i] = buffer.getInt();
+            lengths[i] = buffer.getInt();
+        }
+
+        int dataStart = buffer.position();
+
+        // 0.75 is HashMap.DEFAULT_LOAD_FACTOR
+        Map<String, Object> resources = new HashMap<String, Object>((int) (entryCount / 0.75));
+        for (int i = 0; i < entryCount; i++) {
+            ByteBuffer data = buffer.duplicate();
+            data.position(dataStart + offsets[i]);
+            data.limit(dataStart + offsets[i] + lengths[i]);
+
+            ClassPreloadingUtils.addResource(resources, new ResourceData(jarFiles.get(jarIndices[i]), names[i], data.slice()));
+        }
+        return resources;
+    }
+
+    /**
+     * Writes the resources loaded from the given jars to the archive. The archive is written to a temporary file first
+     * and then renamed, so that concurrently running processes never see a partially written archive.
+     */
+    public static void save(File archiveFile, List<File> jarFiles, Map<String, Object> resources) throws IOException {
+        List<ResourceData> entries = new ArrayList<ResourceData>(resources.size());
+        for (Object value : resources.values()) {
+            if (value instanceof ResourceData) {
+                entries.add((ResourceData) value);
+            }
+            else {
+                entries.addAll((List<ResourceData>) value);
+            }
+        }
+
+        Map<File, Integer> jarIndices = new HashMap<File, Integer>();
+        for (int i = 0; i < jarFiles.size(); i++) {
+            jarIndices.put(jarFiles.get(i), i);
+        }
+
+        File directory = archiveFile.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory for preloaded class archive: " + directory);
+        }
+
+        File tmpFile = File.createTempFile(archiveFile.getName(), ".tmp", directory);
+        try {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+
+                output.writeInt(jarFiles.size());
+                for (File jarFile : jarFiles) {
+                    writeString(output, jarFile.getAbsolutePath());
+                    output.writeLong(jarFile.length());
+                    output.writeLong(jarFile.lastModified());
+                }
+
+                output.writeInt(entries.size());
+                int offset = 0;
+                for (ResourceData entry : entries) {
+                    Integer jarIndex = jarIndices.get(entry.jarFile);
+                    assert jarIndex != null : "Resource is loaded from an unexpected jar: " + entry.jarFile;
+
+                    writeString(output, entry.resourceName);
+                    output.writeInt(jarIndex);
+                    output.writeInt(offset);
+                    output.writeInt(entry.getSize());
+                    offset += entry.getSize();
+                }
+
+                for (ResourceData entry : entries) {
+                    output.write(entry.getBytes());
+                }
+            }
+            finally {
+                output.close();
+            }
+
+            if (!tmpFile.renameTo(archiveFile)) {
+                // Another process may have replaced the archive in the meantime, or the platform doesn't allow to overwrite it
+                if (!archiveFile.delete() || !tmpFile.renameTo(archiveFile)) {
+                    throw new IOException("Can't write preloaded class archive: " + archiveFile);
+                }
+            }
+        }
+        finally {
+            if (tmpFile.exists()) {
+                //noinspection ResultOfMethodCallIgnored
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static void writeString(DataOutputStream output, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
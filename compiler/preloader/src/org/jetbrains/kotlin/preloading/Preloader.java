@@ -30,6 +30,11 @@ public class Preloader {
     public static final int PRELOADER_ARG_COUNT = 4;
     private static final String INSTRUMENT_PREFIX = "instrument=";
 
+    /**
+     * Path to a {@link PreloadedClassArchive} to load classes from, it's created on the first run and reused while the jars are not changed
+     */
+    public static final String ARCHIVE_PROPERTY = "kotlin.preloader.archive";
+
     public static void main(String[] args) throws Exception {
         if (args.length < PRELOADER_ARG_COUNT) {
             printUsageAndExit();
@@ -60,7 +65,11 @@ public class Preloader {
         ClassLoader withInstrumenter = instrumentersClasspath.length > 0 ? new URLClassLoader(instrumentersClasspath, parent) : parent;
 
         final Handler handler = getHandler(mode, withInstrumenter);
-        ClassLoader preloaded = ClassPreloadingUtils.preloadClasses(files, classNumber, withInstrumenter, null, handler);
+        // Instrumented classes are not stored in the archive
+        String archivePath = mode != Mode.INSTRUMENT ? System.getProperty(ARCHIVE_PROPERTY) : null;
+        File archiveFile = archivePath != null ? new File(archivePath) : null;
+
+        ClassLoader preloaded = ClassPreloadingUtils.preloadClasses(files, classNumber, withInstrumenter, null, handler, archiveFile);
 
         Class<?> mainClass = preloaded.loadClass(mainClassCanonicalName);
         Method mainMethod = mainClass.getMethod("main", String[].class);
@@ -24,16 +24,51 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
 
 public final class ResourceData {
     public final File jarFile;
     public final String resourceName;
-    public final byte[] bytes;
+
+    // Exactly one of these is not null: resources loaded from jars are kept in the heap,
+    // resources loaded from a preloaded class archive are served from the memory-mapped file
+    private final byte[] bytes;
+    private final ByteBuffer buffer;
 
     public ResourceData(File jarFile, String resourceName, byte[] bytes) {
         this.jarFile = jarFile;
         this.resourceName = resourceName;
         this.bytes = bytes;
+        this.buffer = null;
+    }
+
+    public ResourceData(File jarFile, String resourceName, ByteBuffer buffer) {
+        this.jarFile = jarFile;
+        this.resourceName = resourceName;
+        this.bytes = null;
+        this.buffer = buffer;
+    }
+
+    public int getSize() {
+        return bytes != null ? bytes.length : buffer.remaining();
+    }
+
+    /**
+     * @return contents of the resource, copied to the heap if the resource is memory-mapped
+     */
+    public byte[] getBytes() {
+        if (bytes != null) return bytes;
+
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    /**
+     * @return a new view of the memory-mapped contents of the resource, or null if the resource is kept in the heap
+     */
+    ByteBuffer getBuffer() {
+        return buffer != null ? buffer.duplicate() : null;
     }
 
     public URL getURL() {
@@ -48,7 +83,7 @@ public final class ResourceData {
 
                         @Override
                         public InputStream getInputStream() throws IOException {
-                            return new ByteArrayInputStream(bytes);
+                            return new ByteArrayInputStream(getBytes());
                         }
                     };
                 }
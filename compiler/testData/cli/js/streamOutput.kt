@@ -0,0 +1,35 @@
+package streamOutput
+
+data class Alpha(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Alpha?)
+
+data class Beta(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Beta?)
+
+data class Gamma(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Gamma?)
+
+data class Delta(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Delta?)
+
+data class Epsilon(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Epsilon?)
+
+data class Zeta(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Zeta?)
+
+data class Eta(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Eta?)
+
+data class Theta(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Theta?)
+
+data class Iota(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Iota?)
+
+data class Kappa(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Kappa?)
+
+data class Lambda(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Lambda?)
+
+data class Mu(val id: Int, val name: String, val weight: Double, val tags: List<String>, val parent: Mu?)
+
+fun describe(alpha: Alpha): String {
+    val parent = alpha.parent
+    return if (parent == null) "${alpha.name} (корень)" else "${alpha.name} <- ${describe(parent)}"
+}
+
+fun main(args: Array<String>) {
+    val root = Alpha(1, "root", 1.0, listOf("a", "b"), null)
+    println(describe(Alpha(2, "child", 0.5, listOf(), root)))
+}
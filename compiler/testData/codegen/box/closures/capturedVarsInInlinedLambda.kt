@@ -0,0 +1,33 @@
+inline fun repeatInline(times: Int, body: (Int) -> Unit) {
+    for (i in 0..times - 1) {
+        body(i)
+    }
+}
+
+fun runLater(body: () -> Unit) {
+    body()
+}
+
+fun box(): String {
+    var sum = 0
+    var product = 1L
+    var text: String? = null
+    repeatInline(5) {
+        var square = 0
+        repeatInline(it + 1) { square += it }
+        sum += square
+        product *= it + 1
+        text = (text ?: "") + it
+    }
+    if (sum != 20) return "Fail sum: $sum"
+    if (product != 120L) return "Fail product: $product"
+    if (text != "01234") return "Fail text: $text"
+
+    var escaping = 0
+    repeatInline(3) {
+        runLater { escaping++ }
+    }
+    if (escaping != 3) return "Fail escaping: $escaping"
+
+    return "OK"
+}
@@ -0,0 +1,18 @@
+inline fun runInline(body: () -> Unit) {
+    body()
+}
+
+fun foo(n: Int): Double {
+    var total = 0.0
+    for (i in 1..n) {
+        var current = 0.0
+        runInline {
+            current = i.toDouble()
+            total += current
+        }
+    }
+    return total
+}
+
+// 0 NEW kotlin/jvm/internal/Ref
+// 0 element
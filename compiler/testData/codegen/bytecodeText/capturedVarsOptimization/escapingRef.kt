@@ -0,0 +1,17 @@
+inline fun runInline(body: () -> Unit) {
+    body()
+}
+
+fun runLater(body: () -> Unit) {
+    body()
+}
+
+fun foo(): Int {
+    var notEscaping = 0
+    var escaping = 0
+    runInline { notEscaping++ }
+    runLater { escaping++ }
+    return notEscaping + escaping
+}
+
+// 1 NEW kotlin/jvm/internal/Ref
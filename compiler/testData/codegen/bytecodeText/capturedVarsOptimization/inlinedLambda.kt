@@ -0,0 +1,26 @@
+inline fun repeatInline(times: Int, body: (Int) -> Unit) {
+    for (i in 0..times - 1) {
+        body(i)
+    }
+}
+
+fun sum(n: Int): Int {
+    var result = 0
+    repeatInline(n) { result += it }
+    return result
+}
+
+fun concat(n: Int): String {
+    var result = ""
+    repeatInline(n) { result += it }
+    return result
+}
+
+fun product(n: Int): Long {
+    var result = 1L
+    repeatInline(n) { result *= it + 1 }
+    return result
+}
+
+// 0 NEW kotlin/jvm/internal/Ref
+// 0 element
@@ -0,0 +1,11 @@
+package a
+
+inline fun twice(f: () -> Int): Int = f() + f()
+
+inline fun <T> total(list: List<T>, f: (T) -> Int): String {
+    var sum = 0
+    for (element in list) {
+        sum += f(element)
+    }
+    return if (sum == 12) "OK" else "Fail total: $sum"
+}
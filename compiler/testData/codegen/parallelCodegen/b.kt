@@ -0,0 +1,10 @@
+package a.b
+
+enum class Color {
+    RED, GREEN
+}
+
+fun Color.describe(): String = when (this) {
+    Color.RED -> "red"
+    Color.GREEN -> "green"
+}
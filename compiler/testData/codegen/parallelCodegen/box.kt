@@ -0,0 +1,10 @@
+import a.*
+import a.b.*
+import c.*
+
+fun box(): String {
+    if (twice { 21 } != 42) return "Fail inline"
+    if (Color.GREEN.describe() != "green") return "Fail when"
+    if (runWrapped { "OK" } != "OK") return "Fail SAM"
+    return total(listOf(1, 2, 3)) { it * 2 }
+}
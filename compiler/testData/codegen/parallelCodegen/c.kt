@@ -0,0 +1,8 @@
+package c
+
+import java.util.concurrent.Callable
+
+fun runWrapped(f: () -> String): String {
+    val callable = Callable(f)
+    return callable.call()
+}
@@ -0,0 +1,27 @@
+package a
+
+trait A
+trait B : A
+class C : B
+
+fun A.foo() = 1
+fun C.foo() = ""
+
+fun Any?.bar() = 1
+
+fun String.baz() = 1
+fun Any.baz() = ""
+
+fun takeInt(i: Int) = i
+fun takeString(s: String) = s
+
+fun test(b: B, c: C, x: Any?) {
+    takeInt(b.foo())
+    takeString(c.foo())
+    takeInt(b.bar())
+    takeInt(x.bar())
+    takeString(b.baz())
+    if (x is String) {
+        takeInt(x.baz())
+    }
+}
@@ -4613,6 +4613,12 @@ public class JetDiagnosticsTestGenerated extends AbstractJetDiagnosticsTest {
                 doTest(fileName);
             }
 
+            @TestMetadata("receiverTypeFilteringOfCandidates.kt")
+            public void testReceiverTypeFilteringOfCandidates() throws Exception {
+                String fileName = JetTestUtils.navigationMetadata("compiler/testData/diagnostics/tests/extensions/receiverTypeFilteringOfCandidates.kt");
+                doTest(fileName);
+            }
+
             @TestMetadata("throwOutCandidatesByReceiver.kt")
             public void testThrowOutCandidatesByReceiver() throws Exception {
                 String fileName = JetTestUtils.navigationMetadata("compiler/testData/diagnostics/tests/extensions/throwOutCandidatesByReceiver.kt");
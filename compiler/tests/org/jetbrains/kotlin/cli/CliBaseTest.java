@@ -42,7 +42,7 @@ import java.util.List;
 
 public class CliBaseTest {
     static final String JS_TEST_DATA = "compiler/testData/cli/js";
-    static final String JVM_TEST_DATA = "compiler/testData/cli/jvm";
+    protected static final String JVM_TEST_DATA = "compiler/testData/cli/jvm";
 
     @Rule
     public final Tmpdir tmpdir = new Tmpdir();
@@ -87,7 +87,7 @@ public class CliBaseTest {
     }
 
     @NotNull
-    static List<String> readArgs(
+    protected static List<String> readArgs(
             @NotNull String argsFilePath,
             @NotNull final String testDataDir,
             @NotNull final String tempDir
@@ -16,11 +16,18 @@
 
 package org.jetbrains.kotlin.cli.js;
 
+import com.intellij.openapi.util.Pair;
+import com.intellij.openapi.util.io.FileUtil;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.cli.CliBaseTest;
+import org.jetbrains.kotlin.cli.common.ExitCode;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class K2JsCliTest extends CliBaseTest {
     @Test
@@ -91,4 +98,55 @@ public class K2JsCliTest extends CliBaseTest {
 
         Assert.assertFalse(new File(tmpdir.getTmpDir(), "out.js").isFile());
     }
+
+    @Test
+    public void streamOutput() throws Exception {
+        File inMemoryFile = new File(tmpdir.getTmpDir(), "inMemory/out.js");
+        File streamedFile = new File(tmpdir.getTmpDir(), "streamed/out.js");
+        Assert.assertEquals(ExitCode.OK, compileStreamOutputTestData(inMemoryFile, false).second);
+        Assert.assertEquals(ExitCode.OK, compileStreamOutputTestData(streamedFile, true).second);
+
+        Assert.assertArrayEquals(FileUtil.loadFileBytes(inMemoryFile), FileUtil.loadFileBytes(streamedFile));
+
+        String inMemorySourceMap = FileUtil.loadFile(new File(inMemoryFile.getPath() + ".map"), true);
+        String streamedSourceMap = FileUtil.loadFile(new File(streamedFile.getPath() + ".map"), true);
+        Assert.assertEquals(inMemorySourceMap, moveSourcesBeforeMappings(streamedSourceMap));
+
+        // The prefix has three lines, which have no mappings
+        Assert.assertTrue(streamedSourceMap, streamedSourceMap.contains("\"mappings\":\";;;"));
+    }
+
+    @Test
+    public void streamOutputWriteError() throws Exception {
+        // The output file can't be created, because its parent is a regular file
+        File outputFile = new File(JS_TEST_DATA + "/streamOutput.kt/out.js");
+        Pair<String, ExitCode> outputAndExitCode = compileStreamOutputTestData(outputFile, true);
+
+        Assert.assertEquals(ExitCode.COMPILATION_ERROR, outputAndExitCode.second);
+        Assert.assertTrue(outputAndExitCode.first, outputAndExitCode.first.contains("Cannot write output file"));
+        Assert.assertFalse(outputFile.exists());
+        Assert.assertFalse(new File(outputFile.getPath() + ".map").exists());
+    }
+
+    @NotNull
+    private static Pair<String, ExitCode> compileStreamOutputTestData(@NotNull File outputFile, boolean streamOutput) {
+        List<String> args = new ArrayList<String>(Arrays.asList(
+                JS_TEST_DATA + "/streamOutput.kt",
+                "-source-map",
+                "-output-prefix", JS_TEST_DATA + "/streamOutput.prefix",
+                "-output", outputFile.getPath()
+        ));
+        if (streamOutput) {
+            args.add("-Xstream-output");
+        }
+        return executeCompilerGrabOutput(new K2JSCompiler(), args);
+    }
+
+    // A streamed source map lists sources after mappings, because they are known only at the end
+    @NotNull
+    private static String moveSourcesBeforeMappings(@NotNull String sourceMap) {
+        return sourceMap.replaceFirst(
+                "^(\\{\"version\":3,\"file\":\"[^\"]*\",)(\"mappings\":\"[^\"]*\"),(\"sources\":\\[[^\\]]*\\]),(\"names\":\\[\\])\\}$",
+                "$1$3,$4,$2}");
+    }
 }
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.cli.jvm;
+
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ArrayUtil;
+import org.jetbrains.kotlin.cli.CliBaseTest;
+import org.jetbrains.kotlin.cli.common.ExitCode;
+import org.jetbrains.kotlin.cli.common.messages.MessageCollector;
+import org.jetbrains.kotlin.cli.common.messages.MessageRenderer;
+import org.jetbrains.kotlin.cli.common.messages.PrintingMessageCollector;
+import org.jetbrains.kotlin.cli.jvm.daemon.KotlinCompilerDaemon;
+import org.jetbrains.kotlin.cli.jvm.daemon.KotlinCompilerDaemonClient;
+import org.jetbrains.kotlin.test.JetTestUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+
+public class KotlinCompilerDaemonTest extends CliBaseTest {
+    private File portFile;
+    private Thread daemonThread;
+
+    @Before
+    public void startDaemon() throws Exception {
+        portFile = new File(tmpdir.getTmpDir(), "daemon.port");
+        final KotlinCompilerDaemon daemon = new KotlinCompilerDaemon(portFile, 60);
+        daemonThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    daemon.serve();
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        daemonThread.start();
+    }
+
+    @After
+    public void stopDaemon() throws Exception {
+        KotlinCompilerDaemonClient.stopDaemon(portFile);
+        daemonThread.join(10000);
+        Assert.assertFalse("Port file should be deleted by the stopped daemon", portFile.exists());
+    }
+
+    @Test
+    public void sameOutputAsInProcess() throws Exception {
+        // The second compilation reuses the environment kept alive by the first one
+        for (String test : new String[] {"classpath", "conflictingOverloads", "classpath"}) {
+            String[] args = ArrayUtil.toStringArray(readArgs(JVM_TEST_DATA + "/" + test + ".args", JVM_TEST_DATA, tmpdir.getTmpDir().getPath()));
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            PrintingMessageCollector collector = new PrintingMessageCollector(new PrintStream(bytes), MessageRenderer.PLAIN_RELATIVE_PATHS, false);
+            ExitCode exitCode = KotlinCompilerDaemonClient.compile(portFile, args, collector);
+            Assert.assertNotNull("Daemon is not available", exitCode);
+
+            String actual = getNormalizedCompilerOutput(bytes.toString("utf-8"), exitCode, JVM_TEST_DATA);
+            JetTestUtils.assertEqualsToFile(new File(JVM_TEST_DATA + "/" + test + ".out"), actual);
+        }
+    }
+
+    @Test
+    public void invalidRequestsAreIgnored() throws Exception {
+        int port = Integer.parseInt(FileUtil.loadFile(portFile).split(" ")[0]);
+
+        // A length prefix where the token is expected, and a token of the wrong length
+        sendRawRequest(port, 1, Integer.MAX_VALUE);
+        sendRawRequest(port, 1, 0x41414141, 0x41414141, 0x41414141);
+
+        String[] args = ArrayUtil.toStringArray(readArgs(JVM_TEST_DATA + "/classpath.args", JVM_TEST_DATA, tmpdir.getTmpDir().getPath()));
+        Assert.assertEquals(ExitCode.OK, KotlinCompilerDaemonClient.compile(portFile, args, MessageCollector.NONE));
+    }
+
+    private static void sendRawRequest(int port, int... values) throws IOException {
+        Socket socket = new Socket(InetAddress.getByName(null), port);
+        try {
+            DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+            for (int value : values) {
+                output.writeInt(value);
+            }
+            output.flush();
+        }
+        finally {
+            socket.close();
+        }
+    }
+
+    @Test
+    public void noDaemon() throws Exception {
+        File missingPortFile = new File(tmpdir.getTmpDir(), "missing.port");
+        Assert.assertNull(KotlinCompilerDaemonClient.compile(missingPortFile, new String[0], MessageCollector.NONE));
+    }
+}
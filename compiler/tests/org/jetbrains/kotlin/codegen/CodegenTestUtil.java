@@ -49,6 +49,15 @@ public class CodegenTestUtil {
 
     @NotNull
     public static ClassFileFactory generateFiles(@NotNull JetCoreEnvironment environment, @NotNull CodegenTestFiles files) {
+        return generateFiles(environment, files, environment.getConfiguration().get(JVMConfigurationKeys.PARALLEL_CODEGEN, false));
+    }
+
+    @NotNull
+    public static ClassFileFactory generateFiles(
+            @NotNull JetCoreEnvironment environment,
+            @NotNull CodegenTestFiles files,
+            boolean parallelCodegen
+    ) {
         AnalysisResult analysisResult = JvmResolveUtil.analyzeFilesWithJavaIntegrationAndCheckForErrors(
                 environment.getProject(),
                 files.getPsiFiles()
@@ -68,7 +77,8 @@ public class CodegenTestUtil {
                 null,
                 null,
                 forExtraDiagnostics,
-                null
+                null,
+                parallelCodegen
         );
         KotlinCodegenFacade.compileCorrectFiles(state, CompilationErrorHandler.THROW_EXCEPTION);
 
@@ -20,11 +20,17 @@ import org.jetbrains.kotlin.load.java.JvmAnnotationNames;
 import org.jetbrains.kotlin.name.FqName;
 import org.jetbrains.kotlin.name.FqNameUnsafe;
 import org.jetbrains.kotlin.serialization.ClassData;
+import org.jetbrains.kotlin.serialization.MemberProtos;
+import org.jetbrains.kotlin.serialization.NameSerializationUtil;
+import org.jetbrains.kotlin.serialization.ProtoBuf;
+import org.jetbrains.kotlin.serialization.jvm.BitEncoding;
 import org.jetbrains.kotlin.serialization.jvm.JvmProtoBufUtil;
 import org.jetbrains.kotlin.test.ConfigurationKind;
 
+import java.io.ByteArrayInputStream;
 import java.lang.annotation.Annotation;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import static org.jetbrains.kotlin.codegen.KotlinPackageAnnotationTest.collectCallableNames;
@@ -59,4 +65,38 @@ public class KotlinClassAnnotationTest extends CodegenTestCase {
         Set<String> callableNames = collectCallableNames(classData.getClassProto().getMemberList(), classData.getNameResolver());
         assertSameElements(Arrays.asList("foo", "bar"), callableNames);
     }
+
+    public void testMembersAreIndexedWithoutParsing() throws Exception {
+        loadText("package " + PACKAGE_NAME + "\n" +
+                 "\n" +
+                 "class " + CLASS_NAME + " {\n" +
+                 "    fun foo() {}\n" +
+                 "    val bar = 42\n" +
+                 "    fun String.baz() {}\n" +
+                 "}\n");
+        Class aClass = generateClass(PACKAGE_NAME + "." + CLASS_NAME);
+
+        Class<? extends Annotation> annotationClass = loadAnnotationClassQuietly(JvmAnnotationNames.KOTLIN_CLASS.asString());
+        String[] data = (String[]) CodegenTestUtil.getAnnotationAttribute(aClass.getAnnotation(annotationClass), "data");
+        ClassData classData = JvmProtoBufUtil.readClassDataFrom(data);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(BitEncoding.decodeBytes(data));
+        NameSerializationUtil.deserializeNameResolver(in);
+        ProtoBuf.Class eagerClassProto = ProtoBuf.Class.parseFrom(in, JvmProtoBufUtil.getExtensionRegistry());
+
+        assertEquals(0, classData.getClassProtoWithoutMembers().getMemberCount());
+        assertEquals(eagerClassProto.toByteString(), classData.getClassProto().toByteString());
+
+        MemberProtos members = classData.getMemberProtos();
+        List<ProtoBuf.Callable> parsedMembers = eagerClassProto.getMemberList();
+        assertEquals(3, members.size());
+        assertEquals(parsedMembers.size(), members.size());
+        for (int i = 0; i < members.size(); i++) {
+            ProtoBuf.Callable member = parsedMembers.get(i);
+            assertEquals(member.getName(), members.getName(i));
+            assertEquals(member.getFlags(), members.getFlags(i));
+            assertEquals(member.hasReceiverType(), members.hasReceiverType(i));
+            assertEquals(member.toByteString(), members.get(i).toByteString());
+        }
+    }
 }
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen;
+
+import org.jetbrains.kotlin.backend.common.output.OutputFile;
+import org.jetbrains.kotlin.test.ConfigurationKind;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+public class ParallelCodegenTest extends CodegenTestCase {
+    private static final String[] FILES = {"parallelCodegen/box.kt", "parallelCodegen/a.kt", "parallelCodegen/b.kt", "parallelCodegen/c.kt"};
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        createEnvironmentWithMockJdkAndIdeaAnnotations(ConfigurationKind.ALL);
+        loadFiles(FILES);
+    }
+
+    public void testSameOutputAsSequential() {
+        List<OutputFile> sequential = CodegenTestUtil.generateFiles(myEnvironment, myFiles, false).asList();
+        for (int i = 0; i < 5; i++) {
+            List<OutputFile> parallel = CodegenTestUtil.generateFiles(myEnvironment, myFiles, true).asList();
+
+            assertEquals(sequential.size(), parallel.size());
+            for (int j = 0; j < sequential.size(); j++) {
+                assertEquals(sequential.get(j).getRelativePath(), parallel.get(j).getRelativePath());
+                assertTrue("Different bytecode for " + parallel.get(j).getRelativePath(),
+                           Arrays.equals(sequential.get(j).asByteArray(), parallel.get(j).asByteArray()));
+            }
+        }
+    }
+
+    public void testBox() throws Exception {
+        classFileFactory = CodegenTestUtil.generateFiles(myEnvironment, myFiles, true);
+        Method box = generateFunction("box");
+        assertEquals("OK", box.invoke(null));
+    }
+}
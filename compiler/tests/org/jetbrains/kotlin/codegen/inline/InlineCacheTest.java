@@ -0,0 +1,76 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.inline;
+
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.org.objectweb.asm.Label;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.tree.JumpInsnNode;
+import org.jetbrains.org.objectweb.asm.tree.LabelNode;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+
+public class InlineCacheTest extends UsefulTestCase {
+    private static final String KEY = InlineCache.methodKey("foo/Bar", "baz", "()V");
+
+    @NotNull
+    private static SMAPAndMethodNode createMethodNode() {
+        MethodNode node = new MethodNode(InlineCodegenUtil.API, Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, "baz", "()V", null, null);
+        Label label = new Label();
+        node.visitCode();
+        node.visitLabel(label);
+        node.visitJumpInsn(Opcodes.GOTO, label);
+        node.visitMaxs(0, 0);
+        node.visitEnd();
+        return new SMAPAndMethodNode(node, SMAPParser.parseOrCreateDefault(null, null, "foo/Bar", -1, -1));
+    }
+
+    public void testCopiesAreIndependent() {
+        InlineCache cache = new InlineCache(10, 1000);
+        SMAPAndMethodNode original = createMethodNode();
+        cache.putMethodNode(KEY, original);
+        original.getNode().instructions.clear();
+
+        SMAPAndMethodNode first = cache.getMethodNode(KEY);
+        SMAPAndMethodNode second = cache.getMethodNode(KEY);
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNotSame(first.getNode(), second.getNode());
+        assertEquals(2, first.getNode().instructions.size());
+
+        LabelNode firstLabel = (LabelNode) first.getNode().instructions.getFirst();
+        LabelNode secondLabel = (LabelNode) second.getNode().instructions.getFirst();
+        assertNotSame(firstLabel, secondLabel);
+        assertSame(firstLabel, ((JumpInsnNode) first.getNode().instructions.getLast()).label);
+        assertSame(secondLabel, ((JumpInsnNode) second.getNode().instructions.getLast()).label);
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    public void testMissAndEviction() {
+        InlineCache cache = new InlineCache(1, 1000);
+        assertNull(cache.getMethodNode(KEY));
+
+        cache.putMethodNode(KEY, createMethodNode());
+        cache.putMethodNode(InlineCache.methodKey("foo/Bar", "qux", "()V"), createMethodNode());
+        assertNull(cache.getMethodNode(KEY));
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+}
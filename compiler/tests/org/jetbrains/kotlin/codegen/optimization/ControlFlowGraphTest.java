@@ -0,0 +1,68 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.codegen.optimization;
+
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.kotlin.codegen.optimization.common.ControlFlowGraph;
+import org.jetbrains.kotlin.codegen.optimization.common.OptimizationBasicInterpreter;
+import org.jetbrains.kotlin.codegen.optimization.transformer.MethodAnalysisContext;
+import org.jetbrains.org.objectweb.asm.Label;
+import org.jetbrains.org.objectweb.asm.Opcodes;
+import org.jetbrains.org.objectweb.asm.tree.MethodNode;
+import org.jetbrains.org.objectweb.asm.tree.analysis.BasicValue;
+import org.jetbrains.org.objectweb.asm.tree.analysis.Frame;
+
+import java.util.BitSet;
+
+public class ControlFlowGraphTest extends UsefulTestCase {
+    public void testReachabilityIsTheSameAsInAnalyzer() {
+        // static int foo(int x) { try { if (x == 0) return 1; } catch (Throwable e) { return 2; } return 3; <dead code> }
+        MethodNode node = new MethodNode(Opcodes.ASM5, Opcodes.ACC_STATIC, "foo", "(I)I", null, null);
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label handler = new Label();
+        Label afterIf = new Label();
+        node.visitCode();
+        node.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/Throwable");
+        node.visitLabel(tryStart);
+        node.visitVarInsn(Opcodes.ILOAD, 0);
+        node.visitJumpInsn(Opcodes.IFNE, afterIf);
+        node.visitInsn(Opcodes.ICONST_1);
+        node.visitInsn(Opcodes.IRETURN);
+        node.visitLabel(afterIf);
+        node.visitLabel(tryEnd);
+        node.visitInsn(Opcodes.ICONST_3);
+        node.visitInsn(Opcodes.IRETURN);
+        node.visitInsn(Opcodes.ICONST_0);
+        node.visitInsn(Opcodes.IRETURN);
+        node.visitLabel(handler);
+        node.visitInsn(Opcodes.POP);
+        node.visitInsn(Opcodes.ICONST_2);
+        node.visitInsn(Opcodes.IRETURN);
+        node.visitMaxs(1, 1);
+        node.visitEnd();
+
+        BitSet reachable = ControlFlowGraph.build(node).getReachableInstructions();
+        Frame<BasicValue>[] frames = new MethodAnalysisContext("Foo", node).analyze(new OptimizationBasicInterpreter());
+
+        assertEquals(node.instructions.size(), frames.length);
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals("Instruction " + i, frames[i] != null, reachable.get(i));
+        }
+        assertEquals(frames.length - 2, reachable.cardinality());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jvm.compiler
+
+import com.intellij.openapi.vfs.VirtualFile
+import org.jetbrains.kotlin.cli.jvm.compiler.ClassPath
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles
+import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime
+import org.jetbrains.kotlin.test.ConfigurationKind
+import org.jetbrains.kotlin.test.JetTestUtils
+import org.jetbrains.kotlin.test.KotlinTestWithEnvironmentManagement
+import org.jetbrains.kotlin.test.TestJdkKind
+import org.jetbrains.kotlin.utils.PathUtil
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertTrue
+
+public class ClassPathPackageIndexTest : KotlinTestWithEnvironmentManagement() {
+    private val DOT_NAMES = listOf("test.A", "test.A.B", "test.A.B.C", "test.A.D", "kotlin.Unit", "kotlin.jvm.internal.Ref.IntRef", "foo.Bar")
+    private val SLASH_NAMES = listOf("test/A", "test/A\$B\$C", "kotlin/Unit", "kotlin/jvm/internal/Ref\$IntRef", "kotlin/Missing", "foo/Bar")
+
+    override fun setUp() {
+        super.setUp()
+        // VirtualFileManager is only available with an environment
+        JetCoreEnvironment.createForTests(getTestRootDisposable()!!,
+                                          JetTestUtils.compilerConfigurationForTests(ConfigurationKind.ALL, TestJdkKind.MOCK_JDK),
+                                          EnvironmentConfigFiles.JVM_CONFIG_FILES)
+    }
+
+    fun testSameResultsAsRootScan() {
+        val classPath = createClassPath()
+
+        for (name in DOT_NAMES) {
+            assertEquals(scanRoots(classPath, name, '.'), classPath.getIndex().findClassFiles(name, '.').firstOrNull(), name)
+        }
+        for (name in SLASH_NAMES) {
+            assertEquals(scanRoots(classPath, name, '/'), classPath.getIndex().findClassFiles(name, '/').firstOrNull(), name)
+        }
+    }
+
+    fun testMissesAreCached() {
+        val index = createClassPath().getIndex()
+
+        index.findClassFiles("foo.Bar", '.')
+        index.findClassFiles("foo.Bar", '.')
+        assertEquals(1, index.getCachedMissCount())
+    }
+
+    fun testIndexIsInvalidatedOnNewRoot() {
+        val classPath = ClassPath()
+        classPath.add(PathUtil.jarFileOrDirectoryToVirtualFile(ForTestCompileRuntime.runtimeJarForTests()))
+        assertEquals(null, classPath.getIndex().findClassFiles("test.A", '.').firstOrNull())
+
+        classPath.add(PathUtil.jarFileOrDirectoryToVirtualFile(compileTestData()))
+        assertEquals(1, classPath.getIndex().findClassFiles("test.A", '.').size())
+    }
+
+    fun testPackageDirectoriesAreListedOnce() {
+        val index = createClassPath().getIndex()
+        val names = DOT_NAMES.map { it to '.' } + SLASH_NAMES.map { it to '/' }
+
+        for ((name, separator) in names) index.findClassFiles(name, separator)
+        val listedDirectories = index.getListedDirectoryCount()
+        assertTrue(listedDirectories > 0)
+
+        for ((name, separator) in names) index.findClassFiles(name, separator)
+        assertEquals(listedDirectories, index.getListedDirectoryCount())
+    }
+
+    private fun compileTestData(): File {
+        val tmpdir = JetTestUtils.tmpDirForTest(this)
+        JetTestUtils.compileKotlinWithJava(
+                listOf(), listOf(File("compiler/testData/kotlinClassFinder/nestedClass.kt")), tmpdir, getTestRootDisposable()!!
+        )
+        return tmpdir
+    }
+
+    private fun createClassPath(): ClassPath {
+        val tmpdir = compileTestData()
+
+        val classPath = ClassPath()
+        classPath.add(PathUtil.jarFileOrDirectoryToVirtualFile(ForTestCompileRuntime.runtimeJarForTests()))
+        classPath.add(PathUtil.jarFileOrDirectoryToVirtualFile(tmpdir))
+        return classPath
+    }
+
+    // The lookup which was done by CliVirtualFileFinder before the package index was introduced
+    private fun scanRoots(classPath: ClassPath, qName: String, separator: Char): VirtualFile? {
+        for (root in classPath) {
+            var pathRest = qName
+            var cur = root
+            while (true) {
+                val index = pathRest.indexOf(separator)
+                if (index < 0) break
+                val child = cur.findChild(pathRest.substring(0, index)) ?: break
+                pathRest = pathRest.substring(index + 1)
+                cur = child
+            }
+            val file = cur.findChild(pathRest.replace('.', '$') + ".class")
+            if (file != null && file.isValid()) return file
+        }
+        return null
+    }
+}
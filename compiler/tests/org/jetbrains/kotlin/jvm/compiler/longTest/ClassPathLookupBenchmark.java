@@ -0,0 +1,160 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jvm.compiler.longTest;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.cli.jvm.compiler.ClassPath;
+import org.jetbrains.kotlin.cli.jvm.compiler.ClassPathPackageIndex;
+import org.jetbrains.kotlin.cli.jvm.compiler.EnvironmentConfigFiles;
+import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.kotlin.test.ConfigurationKind;
+import org.jetbrains.kotlin.test.JetTestUtils;
+import org.jetbrains.kotlin.test.TestJdkKind;
+import org.jetbrains.kotlin.utils.PathUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the cost of class lookups with the package index of {@link ClassPath}
+ * against the per-root scan, which CliVirtualFileFinder did before the index was introduced.
+ * The class path consists of the JDK and all jars from ideaSDK/lib, half of the looked up classes don't exist.
+ */
+public class ClassPathLookupBenchmark {
+    private static final int MAX_CLASS_COUNT = 20000;
+    private static final int ITERATIONS = 5;
+
+    public static void main(String[] args) throws Exception {
+        Disposable disposable = new Disposable() {
+            @Override
+            public void dispose() { }
+        };
+
+        try {
+            // VirtualFileManager is only available with an environment
+            JetCoreEnvironment.createForTests(
+                    disposable,
+                    JetTestUtils.compilerConfigurationForTests(ConfigurationKind.JDK_ONLY, TestJdkKind.FULL_JDK),
+                    EnvironmentConfigFiles.JVM_CONFIG_FILES);
+
+            run();
+        }
+        finally {
+            Disposer.dispose(disposable);
+        }
+    }
+
+    private static void run() {
+        List<File> files = new ArrayList<File>(PathUtil.getJdkClassesRoots());
+        File[] sdkJars = new File("ideaSDK/lib").listFiles();
+        if (sdkJars != null) {
+            for (File jar : sdkJars) {
+                if (jar.getName().endsWith(".jar")) {
+                    files.add(jar);
+                }
+            }
+        }
+
+        List<String> names = new ArrayList<String>();
+        for (File file : files) {
+            collectClassNames(PathUtil.jarFileOrDirectoryToVirtualFile(file), "", names);
+        }
+
+        int hitCount = names.size();
+        for (int i = 0; i < hitCount; i++) {
+            names.add(names.get(i) + "Missing");
+        }
+
+        System.out.println("Class path: " + files.size() + " roots, looking up " + names.size() + " classes");
+
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            ClassPath classPath = new ClassPath();
+            for (File file : files) {
+                classPath.add(PathUtil.jarFileOrDirectoryToVirtualFile(file));
+            }
+
+            long start = System.nanoTime();
+            int scanFound = 0;
+            for (String name : names) {
+                if (scanRoots(classPath, name) != null) scanFound++;
+            }
+            long scanTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ClassPathPackageIndex index = classPath.getIndex();
+            int indexFound = 0;
+            for (String name : names) {
+                if (!index.findClassFiles(name, '.').isEmpty()) indexFound++;
+            }
+            long indexTime = System.nanoTime() - start;
+
+            if (scanFound != indexFound) {
+                throw new IllegalStateException("Scan found " + scanFound + " classes, index found " + indexFound);
+            }
+
+            System.out.println(
+                    "Iteration " + iteration + ": root scan " + nanosToMillisString(scanTime) + "ms, " +
+                    "package index " + nanosToMillisString(indexTime) + "ms " +
+                    "(" + index.getListedDirectoryCount() + " directories listed, " + index.getCachedMissCount() + " misses cached)"
+            );
+        }
+    }
+
+    private static void collectClassNames(@NotNull VirtualFile dir, @NotNull String packagePrefix, @NotNull List<String> result) {
+        for (VirtualFile child : dir.getChildren()) {
+            if (result.size() >= MAX_CLASS_COUNT) return;
+
+            String name = child.getName();
+            if (child.isDirectory()) {
+                collectClassNames(child, packagePrefix + name + ".", result);
+            }
+            else if (name.endsWith(".class") && name.indexOf('$') < 0) {
+                result.add(packagePrefix + name.substring(0, name.length() - ".class".length()));
+            }
+        }
+    }
+
+    // The lookup which was done by CliVirtualFileFinder before the package index was introduced
+    @Nullable
+    private static VirtualFile scanRoots(@NotNull ClassPath classPath, @NotNull String qName) {
+        for (VirtualFile root : classPath) {
+            VirtualFile cur = root;
+            String pathRest = qName;
+            while (true) {
+                int index = pathRest.indexOf('.');
+                if (index < 0) break;
+                VirtualFile child = cur.findChild(pathRest.substring(0, index));
+                if (child == null) break;
+                pathRest = pathRest.substring(index + 1);
+                cur = child;
+            }
+            VirtualFile file = cur.findChild(pathRest.replace('.', '$') + ".class");
+            if (file != null && file.isValid()) return file;
+        }
+        return null;
+    }
+
+    @NotNull
+    private static String nanosToMillisString(long nanos) {
+        return String.valueOf(nanos / 1000000);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.load.kotlin;
+
+import com.intellij.openapi.vfs.VirtualFile;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime;
+import org.jetbrains.kotlin.resolve.lazy.KotlinTestWithEnvironment;
+import org.jetbrains.kotlin.test.ConfigurationKind;
+import org.jetbrains.kotlin.utils.PathUtil;
+
+public class KotlinBinaryClassCacheTest extends KotlinTestWithEnvironment {
+    @Override
+    protected JetCoreEnvironment createEnvironment() {
+        return createEnvironmentWithMockJdk(ConfigurationKind.JDK_ONLY);
+    }
+
+    public void testKotlinClassIsReadOnce() {
+        KotlinBinaryClassCache cache = new KotlinBinaryClassCache(64);
+        VirtualFile file = findRuntimeClass("kotlin/jvm/internal/FunctionImpl.class");
+
+        VirtualFileKotlinClass aClass = cache.getOrRead(file);
+        assertNotNull(aClass);
+        assertSame(aClass, cache.getOrRead(file));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testNonKotlinClassIsCached() {
+        KotlinBinaryClassCache cache = new KotlinBinaryClassCache(64);
+        VirtualFile file = findRuntimeClass("kotlin/jvm/internal/Ref.class");
+
+        assertNull(cache.getOrRead(file));
+        assertNull(cache.getOrRead(file));
+
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    public void testLeastRecentlyUsedClassesAreEvicted() {
+        // One entry per segment
+        KotlinBinaryClassCache cache = new KotlinBinaryClassCache(16);
+        VirtualFile[] files = findRuntimeClass("kotlin/jvm/internal").getChildren();
+        assertTrue(files.length > 16);
+
+        for (VirtualFile file : files) {
+            cache.getOrRead(file);
+        }
+        assertEquals(files.length, cache.getMissCount());
+        assertTrue(cache.toString(), cache.getEvictionCount() >= files.length - 16);
+
+        // The last read file is the most recently used entry in its segment
+        cache.getOrRead(files[files.length - 1]);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @NotNull
+    private static VirtualFile findRuntimeClass(@NotNull String relativePath) {
+        VirtualFile root = PathUtil.jarFileOrDirectoryToVirtualFile(ForTestCompileRuntime.runtimeJarForTests());
+        assertNotNull(root);
+        VirtualFile file = root.findFileByRelativePath(relativePath);
+        assertNotNull(relativePath, file);
+        return file;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.preloading;
+
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.kotlin.codegen.forTestCompile.ForTestCompileRuntime;
+import org.jetbrains.kotlin.test.JetTestUtils;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class PreloadedClassArchiveTest extends TestCase {
+    private File jar;
+    private File archive;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        File tmpDir = JetTestUtils.tmpDirForTest(this);
+        jar = new File(tmpDir, "runtime.jar");
+        FileUtil.copy(ForTestCompileRuntime.runtimeJarForTests(), jar);
+        archive = new File(tmpDir, "runtime.archive");
+    }
+
+    public void testArchiveIsCreatedAndReused() throws Exception {
+        List<File> jars = Collections.singletonList(jar);
+        assertNull(PreloadedClassArchive.load(archive, jars));
+
+        ClassLoader fromJars = ClassPreloadingUtils.preloadClasses(jars, 4096, null, null, null, archive);
+        assertTrue(archive.exists());
+
+        Map<String, Object> resources = PreloadedClassArchive.load(archive, jars);
+        assertNotNull(resources);
+        assertTrue(resources.get("kotlin/Unit.class") instanceof ResourceData);
+
+        ClassLoader fromArchive = ClassPreloadingUtils.preloadClasses(jars, 4096, null, null, null, archive);
+        Class<?> unit = fromArchive.loadClass("kotlin.Unit");
+        assertSame(fromArchive, unit.getClassLoader());
+        assertEquals(fromJars.loadClass("kotlin.Unit").getName(), unit.getName());
+        assertNotNull(fromArchive.getResource("kotlin/Unit.class"));
+    }
+
+    public void testStaleArchiveIsIgnored() throws Exception {
+        List<File> jars = Collections.singletonList(jar);
+        ClassPreloadingUtils.preloadClasses(jars, 4096, null, null, null, archive);
+        assertNotNull(PreloadedClassArchive.load(archive, jars));
+
+        assertTrue(jar.setLastModified(jar.lastModified() - 10000));
+        assertNull(PreloadedClassArchive.load(archive, jars));
+
+        assertNull(PreloadedClassArchive.load(archive, Collections.<File>emptyList()));
+    }
+}
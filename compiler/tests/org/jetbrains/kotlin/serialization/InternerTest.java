@@ -0,0 +1,78 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.serialization;
+
+import com.intellij.testFramework.UsefulTestCase;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+public class InternerTest extends UsefulTestCase {
+    public void testIndicesAreAssignedInOrder() {
+        Interner<String> parent = new Interner<String>();
+        assertEquals(0, parent.intern("a"));
+        assertEquals(1, parent.intern("b"));
+        assertEquals(0, parent.intern("a"));
+
+        Interner<String> child = new Interner<String>(parent);
+        assertEquals(1, child.intern("b"));
+        assertEquals(2, child.intern("c"));
+        assertEquals(Arrays.asList("a", "b"), parent.getAllInternedObjects());
+        assertEquals(Collections.singletonList("c"), child.getAllInternedObjects());
+    }
+
+    public void testConcurrentInterning() throws Exception {
+        final Interner<String> interner = new Interner<String>();
+        final int objectCount = 1000;
+        int threadCount = 8;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            List<Future<Map<String, Integer>>> futures = new ArrayList<Future<Map<String, Integer>>>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(new Callable<Map<String, Integer>>() {
+                    @Override
+                    public Map<String, Integer> call() {
+                        Map<String, Integer> result = new HashMap<String, Integer>();
+                        for (int j = 0; j < objectCount; j++) {
+                            String s = String.valueOf(j);
+                            result.put(s, interner.intern(s));
+                        }
+                        return result;
+                    }
+                }));
+            }
+
+            List<Map<String, Integer>> results = new ArrayList<Map<String, Integer>>();
+            for (Future<Map<String, Integer>> future : futures) {
+                results.add(future.get());
+            }
+
+            List<String> all = interner.getAllInternedObjects();
+            for (Map<String, Integer> result : results) {
+                for (Map.Entry<String, Integer> entry : result.entrySet()) {
+                    assertEquals(entry.getKey(), all.get(entry.getValue()));
+                }
+            }
+            assertEquals(objectCount, all.size());
+            assertEquals(objectCount, new HashSet<String>(all).size());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+}
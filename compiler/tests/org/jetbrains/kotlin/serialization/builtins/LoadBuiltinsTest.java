@@ -21,20 +21,28 @@ import com.intellij.util.containers.ContainerUtil;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.builtins.KotlinBuiltIns;
 import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment;
-import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
-import org.jetbrains.kotlin.descriptors.PackageFragmentDescriptor;
+import org.jetbrains.kotlin.descriptors.*;
+import org.jetbrains.kotlin.descriptors.annotations.Annotations;
+import org.jetbrains.kotlin.descriptors.impl.SimpleFunctionDescriptorImpl;
+import org.jetbrains.kotlin.name.Name;
 import org.jetbrains.kotlin.psi.JetFile;
 import org.jetbrains.kotlin.renderer.DescriptorRenderer;
 import org.jetbrains.kotlin.renderer.DescriptorRendererBuilder;
 import org.jetbrains.kotlin.resolve.lazy.KotlinTestWithEnvironment;
 import org.jetbrains.kotlin.resolve.lazy.LazyResolveTestUtil;
 import org.jetbrains.kotlin.resolve.lazy.descriptors.LazyPackageDescriptor;
+import org.jetbrains.kotlin.resolve.scopes.JetScope;
+import org.jetbrains.kotlin.resolve.scopes.JetScopeSelectorUtil;
+import org.jetbrains.kotlin.resolve.scopes.RedeclarationHandler;
+import org.jetbrains.kotlin.resolve.scopes.WritableScope;
+import org.jetbrains.kotlin.resolve.scopes.WritableScopeImpl;
 import org.jetbrains.kotlin.test.ConfigurationKind;
 import org.jetbrains.kotlin.test.JetTestUtils;
 import org.jetbrains.kotlin.test.TestJdkKind;
 import org.jetbrains.kotlin.test.util.RecursiveDescriptorComparator;
 
 import java.io.File;
+import java.util.Collections;
 import java.util.List;
 import java.util.regex.Pattern;
 
@@ -76,6 +84,45 @@ public class LoadBuiltinsTest extends KotlinTestWithEnvironment {
         }
     }
 
+    public void testDeserializedScopesKnowNamesOfTheirMembers() {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+
+        JetScope packageScope = builtIns.getBuiltInsPackageScope();
+        assertFalse(packageScope.definitelyDoesNotContainName(Name.identifier("identityEquals")));
+        assertTrue(packageScope.definitelyDoesNotContainName(Name.identifier("noSuchFunction")));
+
+        JetScope stringScope = builtIns.getString().getDefaultType().getMemberScope();
+        assertFalse(stringScope.definitelyDoesNotContainName(Name.identifier("length")));
+        // Fake override of a member of Any
+        assertFalse(stringScope.definitelyDoesNotContainName(Name.identifier("hashCode")));
+        assertTrue(stringScope.definitelyDoesNotContainName(Name.identifier("noSuchFunction")));
+        assertTrue(stringScope.getFunctions(Name.identifier("noSuchFunction")).isEmpty());
+    }
+
+    public void testWritableScopeDoesNotSkipLocalFunctions() {
+        KotlinBuiltIns builtIns = KotlinBuiltIns.getInstance();
+        JetScope packageScope = builtIns.getBuiltInsPackageScope();
+        Name name = Name.identifier("localFunction");
+        assertTrue(packageScope.definitelyDoesNotContainName(name));
+
+        WritableScopeImpl scope = new WritableScopeImpl(packageScope, packageScope.getContainingDeclaration(),
+                                                        RedeclarationHandler.THROW_EXCEPTION, "With local function");
+        SimpleFunctionDescriptorImpl localFunction = SimpleFunctionDescriptorImpl.create(
+                packageScope.getContainingDeclaration(), Annotations.EMPTY, name, CallableMemberDescriptor.Kind.DECLARATION,
+                SourceElement.NO_SOURCE
+        );
+        localFunction.initialize(null, null, Collections.<TypeParameterDescriptor>emptyList(),
+                                 Collections.<ValueParameterDescriptor>emptyList(), builtIns.getUnitType(), Modality.FINAL,
+                                 Visibilities.LOCAL);
+        scope.addFunctionDescriptor(localFunction);
+        scope.changeLockLevel(WritableScope.LockLevel.READING);
+
+        assertFalse(scope.definitelyDoesNotContainName(name));
+        assertEquals(Collections.singleton(localFunction), JetScopeSelectorUtil.getFromAllScopes(
+                new JetScope[] {scope}, name, JetScopeSelectorUtil.NAMED_FUNCTION_SCOPE_SELECTOR
+        ));
+    }
+
     @NotNull
     private static List<File> allFilesUnder(@NotNull String directory) {
         return FileUtil.findFilesByMask(Pattern.compile(".*\\.kt"), new File(directory));
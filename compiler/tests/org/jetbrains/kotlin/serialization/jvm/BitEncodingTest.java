@@ -16,12 +16,14 @@
 
 package org.jetbrains.kotlin.serialization.jvm;
 
+import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.testFramework.UsefulTestCase;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Random;
 
 import static org.jetbrains.kotlin.serialization.jvm.BitEncoding.decodeBytes;
+import static org.jetbrains.kotlin.serialization.jvm.BitEncoding.decodingStream;
 import static org.jetbrains.kotlin.serialization.jvm.BitEncoding.encodeBytes;
 import static org.junit.Assert.assertArrayEquals;
 
@@ -48,6 +50,9 @@ public class BitEncodingTest extends UsefulTestCase {
         byte[] e = decodeBytes(d);
         assertArrayEquals(message, a, e);
 
+        byte[] f = FileUtil.loadBytes(decodingStream(b));
+        assertArrayEquals(message, a, f);
+
     }
 
     private static void assertStringConformsToJVMS(@NotNull String string) {
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.serialization.jvm;
+
+import com.intellij.testFramework.UsefulTestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.load.kotlin.DeserializedDataCache;
+import org.jetbrains.kotlin.serialization.PackageData;
+import org.jetbrains.kotlin.serialization.ProtoBuf;
+import org.jetbrains.kotlin.serialization.deserialization.NameResolver;
+
+import java.util.Arrays;
+
+public class DeserializedDataCacheTest extends UsefulTestCase {
+    @NotNull
+    private static String[] encodePackage(@NotNull String... strings) {
+        NameResolver nameResolver = new NameResolver(
+                ProtoBuf.StringTable.newBuilder().addAllString(Arrays.asList(strings)).build(),
+                ProtoBuf.QualifiedNameTable.getDefaultInstance()
+        );
+        return BitEncoding.encodeBytes(new PackageData(nameResolver, ProtoBuf.Package.getDefaultInstance()).toBytes());
+    }
+
+    public void testSameDataIsDecodedOnce() {
+        DeserializedDataCache cache = new DeserializedDataCache(10);
+        String[] data = encodePackage("foo");
+
+        PackageData first = cache.getPackageData("lib.jar!/a/APackage.class", data);
+        PackageData second = cache.getPackageData("lib.jar!/a/APackage.class", encodePackage("foo"));
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    public void testChangedDataIsDecodedAgain() {
+        DeserializedDataCache cache = new DeserializedDataCache(10);
+
+        PackageData first = cache.getPackageData("lib.jar!/a/APackage.class", encodePackage("foo"));
+        PackageData second = cache.getPackageData("lib.jar!/a/APackage.class", encodePackage("bar"));
+
+        assertNotSame(first, second);
+        assertEquals("bar", second.getNameResolver().getString(0));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        DeserializedDataCache cache = new DeserializedDataCache(2);
+        String[] data = encodePackage("foo");
+
+        cache.getPackageData("a", data);
+        cache.getPackageData("b", data);
+        cache.getPackageData("a", data);
+        cache.getPackageData("c", data);
+        assertEquals(2, cache.size());
+
+        cache.getPackageData("a", data);
+        assertEquals(2, cache.getHitCount());
+
+        cache.getPackageData("b", data);
+        assertEquals(2, cache.getHitCount());
+    }
+
+    public void testZeroSizeDisablesCache() {
+        DeserializedDataCache cache = new DeserializedDataCache(0);
+        String[] data = encodePackage("foo");
+
+        assertNotSame(cache.getPackageData("a", data), cache.getPackageData("a", data));
+        assertEquals(0, cache.size());
+    }
+}
@@ -22,9 +22,12 @@ import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.builtins.KotlinBuiltIns;
 import org.jetbrains.kotlin.cli.jvm.compiler.JetCoreEnvironment;
+import org.jetbrains.kotlin.descriptors.ClassifierDescriptor;
 import org.jetbrains.kotlin.descriptors.ModuleDescriptor;
 import org.jetbrains.kotlin.descriptors.PackageViewDescriptor;
 import org.jetbrains.kotlin.descriptors.ReceiverParameterDescriptor;
+import org.jetbrains.kotlin.descriptors.TypeParameterDescriptor;
+import org.jetbrains.kotlin.descriptors.annotations.Annotations;
 import org.jetbrains.kotlin.descriptors.impl.ReceiverParameterDescriptorImpl;
 import org.jetbrains.kotlin.di.InjectorForTests;
 import org.jetbrains.kotlin.name.FqName;
@@ -40,6 +43,7 @@ import org.jetbrains.kotlin.test.ConfigurationKind;
 import org.jetbrains.kotlin.test.JetLiteFixture;
 import org.jetbrains.kotlin.test.JetTestUtils;
 import org.jetbrains.kotlin.types.checker.JetTypeChecker;
+import org.jetbrains.kotlin.types.checker.SubtypingCache;
 import org.jetbrains.kotlin.types.expressions.ExpressionTypingServices;
 
 import java.io.File;
@@ -255,6 +259,102 @@ public class JetTypeCheckerTest extends JetLiteFixture {
         assertNotSubtype("Unit", "Int");
     }
 
+    public void testAllSupertypeConstructors() throws Exception {
+        Set<TypeConstructor> allSupertypeConstructors =
+                AbstractClassTypeConstructor.getAllSupertypeConstructors(makeType("List<Int>").getConstructor());
+
+        assertTrue(allSupertypeConstructors.contains(makeType("List<Int>").getConstructor()));
+        assertTrue(allSupertypeConstructors.contains(makeType("Collection<Int>").getConstructor()));
+        assertTrue(allSupertypeConstructors.contains(makeType("Iterable<Int>").getConstructor()));
+        assertTrue(allSupertypeConstructors.contains(makeType("Any").getConstructor()));
+        assertFalse(allSupertypeConstructors.contains(makeType("String").getConstructor()));
+        assertFalse(allSupertypeConstructors.contains(makeType("MutableList<Int>").getConstructor()));
+    }
+
+    public void testSubtypingCache() throws Exception {
+        JetType intType = makeType("Int");
+        JetType anyType = makeType("Any");
+        JetType listOfInt = makeType("List<Int>");
+        JetType collectionOfAny = makeType("Collection<Any>");
+
+        SubtypingCache cache = SubtypingCache.start();
+        assertNotNull(cache);
+        try {
+            assertNull("Nested analysis should reuse the outer cache", SubtypingCache.start());
+
+            for (int i = 0; i < 2; i++) {
+                assertTrue(JetTypeChecker.DEFAULT.isSubtypeOf(intType, anyType));
+                assertFalse(JetTypeChecker.DEFAULT.isSubtypeOf(anyType, intType));
+                assertTrue(JetTypeChecker.DEFAULT.isSubtypeOf(listOfInt, collectionOfAny));
+                assertFalse(JetTypeChecker.DEFAULT.isSubtypeOf(collectionOfAny, listOfInt));
+            }
+            assertTrue(cache.toString(), cache.getHitCount() >= 4);
+        }
+        finally {
+            SubtypingCache.finish(cache);
+        }
+    }
+
+    public void testSubtypingCacheSkipsSupertypesBeingResolved() throws Exception {
+        final List<JetType> supertypes = new ArrayList<JetType>();
+        final boolean[] supertypesFinal = { false };
+        TypeConstructor constructor = new AbstractClassTypeConstructor() {
+            @NotNull
+            @Override
+            public List<TypeParameterDescriptor> getParameters() {
+                return Collections.emptyList();
+            }
+
+            @NotNull
+            @Override
+            public Collection<JetType> getSupertypes() {
+                return supertypes;
+            }
+
+            @Override
+            public boolean isFinal() {
+                return false;
+            }
+
+            @Override
+            public boolean isDenotable() {
+                return true;
+            }
+
+            @Override
+            public ClassifierDescriptor getDeclarationDescriptor() {
+                return null;
+            }
+
+            @NotNull
+            @Override
+            public Annotations getAnnotations() {
+                return Annotations.EMPTY;
+            }
+
+            @Override
+            public boolean areSupertypesFinal() {
+                return supertypesFinal[0];
+            }
+        };
+        JetType type = new JetTypeImpl(Annotations.EMPTY, constructor, false, Collections.<TypeProjection>emptyList(), JetScope.Empty.INSTANCE$);
+        JetType charSequenceType = makeType("CharSequence");
+
+        SubtypingCache cache = SubtypingCache.start();
+        assertNotNull(cache);
+        try {
+            assertFalse(JetTypeChecker.DEFAULT.isSubtypeOf(type, charSequenceType));
+
+            // The result computed before the supertypes were resolved must not be reused
+            supertypes.add(charSequenceType);
+            supertypesFinal[0] = true;
+            assertTrue(JetTypeChecker.DEFAULT.isSubtypeOf(type, charSequenceType));
+        }
+        finally {
+            SubtypingCache.finish(cache);
+        }
+    }
+
     public void testProjections() throws Exception {
         assertSubtype("Base_T<Int>", "Base_T<Int>");
         assertNotSubtype("Base_T<Int>", "Base_T<Any>");
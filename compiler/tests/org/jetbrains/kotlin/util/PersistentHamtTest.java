@@ -0,0 +1,123 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util;
+
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.utils.PersistentHamt;
+
+import java.util.*;
+
+public class PersistentHamtTest extends TestCase {
+    // Keys with few distinct hash codes, to exercise collisions
+    private static class Key {
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 100;
+        }
+
+        @Override
+        public String toString() {
+            return "Key" + id;
+        }
+    }
+
+    public void testRandomModificationsAgreeWithHashMap() {
+        Random random = new Random(42);
+        Map<Key, Integer> expected = new HashMap<Key, Integer>();
+        PersistentHamt<Key, Integer> map = PersistentHamt.empty();
+
+        for (int i = 0; i < 10000; i++) {
+            Key key = new Key(random.nextInt(500));
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            }
+            else {
+                int value = random.nextInt(10);
+                expected.put(key, value);
+                map = map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+
+        assertEquals(expected, map.toMap());
+        for (int id = 0; id < 500; id++) {
+            assertEquals(expected.get(new Key(id)), map.get(new Key(id)));
+        }
+    }
+
+    public void testModificationsDontChangeOriginal() {
+        PersistentHamt<String, String> original = PersistentHamt.<String, String>empty().put("a", "1").put("b", "2");
+        PersistentHamt<String, String> modified = original.put("a", "3").remove("b").put("c", "4");
+
+        assertEquals("1", original.get("a"));
+        assertEquals("2", original.get("b"));
+        assertNull(original.get("c"));
+        assertEquals(2, original.size());
+
+        assertEquals("3", modified.get("a"));
+        assertNull(modified.get("b"));
+        assertEquals("4", modified.get("c"));
+        assertEquals(2, modified.size());
+    }
+
+    public void testNoOpModificationsReturnSameMap() {
+        String value = "value";
+        PersistentHamt<String, String> map = PersistentHamt.<String, String>empty().put("key", value);
+        assertSame(map, map.put("key", value));
+        assertSame(map, map.remove("absent"));
+    }
+
+    public void testDifferencesOfDerivedMaps() {
+        PersistentHamt<Key, Integer> common = PersistentHamt.empty();
+        for (int i = 0; i < 1000; i++) {
+            common = common.put(new Key(i), i);
+        }
+
+        PersistentHamt<Key, Integer> first = common.put(new Key(1), -1).remove(new Key(2)).put(new Key(1001), 1001);
+        PersistentHamt<Key, Integer> second = common.put(new Key(3), -3).put(new Key(1001), 1001);
+
+        final Map<Key, String> differences = new HashMap<Key, String>();
+        first.forEachDifference(second, new PersistentHamt.DifferenceVisitor<Key, Integer>() {
+            @Override
+            public void visit(@NotNull Key key, @Nullable Integer thisValue, @Nullable Integer otherValue) {
+                if (thisValue == null || !thisValue.equals(otherValue)) {
+                    differences.put(key, thisValue + " " + otherValue);
+                }
+            }
+        });
+
+        Map<Key, String> expected = new HashMap<Key, String>();
+        expected.put(new Key(1), "-1 1");
+        expected.put(new Key(2), "null 2");
+        expected.put(new Key(3), "3 -3");
+        assertEquals(expected, differences);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.util.slicedMap;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+public class SlicedMapImplTest extends TestCase {
+    public void testKeyNormalizer() {
+        WritableSlice<String, Integer> LENGTH = Slices.<String, Integer>sliceBuilder()
+                .setKeyNormalizer(new Slices.KeyNormalizer<String>() {
+                    @Override
+                    public String normalize(String key) {
+                        return key.toLowerCase();
+                    }
+                })
+                .setDebugName("LENGTH").build();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        map.put(LENGTH, "Foo", 3);
+
+        assertEquals(3, (int) map.get(LENGTH, "fOO"));
+    }
+
+    public void testSameKeyInDifferentSlices() {
+        WritableSlice<String, Integer> FIRST = Slices.<String, Integer>sliceBuilder().setDebugName("FIRST").build();
+        WritableSlice<String, Integer> SECOND = Slices.<String, Integer>sliceBuilder().setDebugName("SECOND").build();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        map.put(FIRST, "key", 1);
+        map.put(SECOND, "key", 2);
+
+        assertEquals(1, (int) map.get(FIRST, "key"));
+        assertEquals(2, (int) map.get(SECOND, "key"));
+        assertEquals(1, map.getSliceContents(FIRST).size());
+    }
+
+    public void testRawValueVersionSharesStorage() {
+        WritableSlice<String, Integer> SLICE = Slices.<String, Integer>sliceBuilder().setDefaultValue(0).setDebugName("SLICE").build();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        assertEquals(0, (int) map.get(SLICE, "absent"));
+        assertNull(map.get(SLICE.makeRawValueVersion(), "absent"));
+
+        map.put(SLICE, "present", 42);
+        assertEquals(42, (int) map.get(SLICE.makeRawValueVersion(), "present"));
+    }
+
+    public void testSetSliceAndRemove() {
+        RemovableSlice<String, Boolean> FLAG = Slices.createRemovableSetSlice();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        assertFalse(map.get(FLAG, "key"));
+
+        map.put(FLAG, "key", true);
+        assertTrue(map.get(FLAG, "key"));
+
+        assertTrue(map.remove(FLAG, "key"));
+        assertFalse(map.get(FLAG, "key"));
+    }
+
+    public void testCollectiveSliceKeys() {
+        WritableSlice<String, Integer> COLLECTIVE = Slices.createCollectiveSlice();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        map.put(COLLECTIVE, "a", 1);
+        map.put(COLLECTIVE, "b", 2);
+
+        assertEquals(Arrays.asList("a", "b"), map.getKeys(COLLECTIVE));
+    }
+
+    public void testIterationInInsertionOrder() {
+        WritableSlice<String, Integer> FIRST = Slices.<String, Integer>sliceBuilder().setDebugName("FIRST").build();
+        WritableSlice<String, Integer> SECOND = Slices.<String, Integer>sliceBuilder().setDebugName("SECOND").build();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        map.put(FIRST, "a", 1);
+        map.put(SECOND, "b", 2);
+        map.put(FIRST, "c", 3);
+        map.put(SECOND, "d", 4);
+        map.put(FIRST, "a", 1);
+
+        assertEquals(Arrays.asList("FIRST:a=1", "SECOND:b=2", "FIRST:c=3", "SECOND:d=4"), contents(map));
+    }
+
+    public void testRemovalKeepsOrder() {
+        RemovableSlice<String, Boolean> FLAG = Slices.createRemovableSetSlice();
+        WritableSlice<String, Integer> VALUE = Slices.<String, Integer>sliceBuilder().setDebugName("VALUE").build();
+
+        SlicedMapImpl map = SlicedMapImpl.create();
+        map.put(FLAG, "a", true);
+        map.put(VALUE, "b", 1);
+        map.put(FLAG, "c", true);
+        map.remove(FLAG, "a");
+        map.put(FLAG, "a", true);
+
+        Iterator<Map.Entry<SlicedMapKey<?, ?>, ?>> iterator = map.iterator();
+        iterator.next();
+        iterator.remove();
+
+        assertEquals(Arrays.asList(FLAG + ":c=true", FLAG + ":a=true"), contents(map));
+        assertNull(map.get(VALUE, "b"));
+    }
+
+    private static List<String> contents(SlicedMapImpl map) {
+        List<String> contents = new ArrayList<String>();
+        for (Map.Entry<SlicedMapKey<?, ?>, ?> entry : map) {
+            contents.add(entry.getKey().getSlice() + ":" + entry.getKey().getKey() + "=" + entry.getValue());
+        }
+        return contents;
+    }
+}
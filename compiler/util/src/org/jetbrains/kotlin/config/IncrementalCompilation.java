@@ -18,4 +18,8 @@ package org.jetbrains.kotlin.config;
 
 public class IncrementalCompilation {
     public static final boolean ENABLED = "true".equals(System.getProperty("kotlin.incremental.compilation"));
+
+    // Recompile only the files which mention names of the changed declarations instead of all Kotlin files in the chunk
+    public static final boolean MEMBER_LEVEL_DEPENDENCIES =
+            ENABLED && "true".equals(System.getProperty("kotlin.incremental.member.level"));
 }
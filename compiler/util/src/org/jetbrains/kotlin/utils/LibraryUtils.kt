@@ -157,7 +157,7 @@ public object LibraryUtils {
         })
     }
 
-    fun traverseDirectory(dir: File, action: (File, relativePath: String) -> Unit) {
+    public fun traverseDirectory(dir: File, action: (File, relativePath: String) -> Unit) {
         try {
             processDirectory(dir, action)
         }
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Immutable hash map implemented as a hash array mapped trie. Modifications return a new map which shares
+ * all the unchanged nodes with this one, so they take O(log n) time and memory.
+ *
+ * Maps derived from the same map share the subtrees that neither of them has changed, which allows
+ * {@link #forEachDifference(PersistentHamt, DifferenceVisitor)} to skip such subtrees entirely.
+ *
+ * Null keys and values are not permitted.
+ */
+public final class PersistentHamt<K, V> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentHamt<?, ?> EMPTY = new PersistentHamt<Object, Object>(BitmapNode.EMPTY, 0);
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHamt<K, V> empty() {
+        return (PersistentHamt<K, V>) EMPTY;
+    }
+
+    public interface DifferenceVisitor<K, V> {
+        /**
+         * @param thisValue the value in the map on which {@link #forEachDifference} was called, or null if there's no such key
+         * @param otherValue the value in the other map, or null if there's no such key
+         */
+        void visit(@NotNull K key, @Nullable V thisValue, @Nullable V otherValue);
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHamt(@NotNull Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public V get(@NotNull K key) {
+        return (V) root.get(key, key.hashCode(), 0);
+    }
+
+    public boolean containsKey(@NotNull K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return this map if it already contains this very value for the key
+     */
+    @NotNull
+    public PersistentHamt<K, V> put(@NotNull K key, @NotNull V value) {
+        int[] sizeChange = new int[1];
+        Node newRoot = root.put(key, key.hashCode(), value, 0, sizeChange);
+        return newRoot == root ? this : new PersistentHamt<K, V>(newRoot, size + sizeChange[0]);
+    }
+
+    /**
+     * @return this map if it doesn't contain the key
+     */
+    @NotNull
+    public PersistentHamt<K, V> remove(@NotNull K key) {
+        Node newRoot = root.remove(key, key.hashCode(), 0);
+        if (newRoot == root) return this;
+        if (newRoot == null) return empty();
+        return new PersistentHamt<K, V>(newRoot, size - 1);
+    }
+
+    /**
+     * Calls the visitor for each key whose values in this map and in the other map may differ. Keys in subtrees shared
+     * by both maps are not visited, so the amount of work is proportional to the number of modifications made
+     * to the maps since their common ancestor, rather than to their size.
+     */
+    public void forEachDifference(@NotNull PersistentHamt<K, V> other, @NotNull DifferenceVisitor<K, V> visitor) {
+        visitDifferences(root, other.root, 0, visitor);
+    }
+
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Map<K, V> toMap() {
+        Map<K, V> result = new HashMap<K, V>(size * 2);
+        root.collectEntries(result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void visitDifferences(
+            @NotNull Node first,
+            @NotNull Node second,
+            int shift,
+            @NotNull DifferenceVisitor<K, V> visitor
+    ) {
+        if (first == second) return;
+
+        if (first instanceof BitmapNode && second instanceof BitmapNode) {
+            BitmapNode firstNode = (BitmapNode) first;
+            BitmapNode secondNode = (BitmapNode) second;
+            int bits = firstNode.bitmap | secondNode.bitmap;
+            while (bits != 0) {
+                int bit = bits & -bits;
+                bits &= bits - 1;
+
+                int firstIndex = (firstNode.bitmap & bit) != 0 ? firstNode.index(bit) : -1;
+                int secondIndex = (secondNode.bitmap & bit) != 0 ? secondNode.index(bit) : -1;
+                if (firstIndex >= 0 && secondIndex >= 0) {
+                    Object firstKey = firstNode.array[2 * firstIndex];
+                    Object firstValue = firstNode.array[2 * firstIndex + 1];
+                    Object secondKey = secondNode.array[2 * secondIndex];
+                    Object secondValue = secondNode.array[2 * secondIndex + 1];
+                    if (firstKey == secondKey && firstValue == secondValue) continue;
+                    if (firstKey == null && secondKey == null) {
+                        visitDifferences((Node) firstValue, (Node) secondValue, shift + BITS, visitor);
+                        continue;
+                    }
+                }
+
+                Map<Object, Object> firstEntries = new HashMap<Object, Object>();
+                Map<Object, Object> secondEntries = new HashMap<Object, Object>();
+                if (firstIndex >= 0) firstNode.collectSlotEntries(firstIndex, firstEntries);
+                if (secondIndex >= 0) secondNode.collectSlotEntries(secondIndex, secondEntries);
+                visitEntryDifferences(firstEntries, secondEntries, visitor);
+            }
+            return;
+        }
+
+        Map<Object, Object> firstEntries = new HashMap<Object, Object>();
+        Map<Object, Object> secondEntries = new HashMap<Object, Object>();
+        first.collectEntries(firstEntries);
+        second.collectEntries(secondEntries);
+        visitEntryDifferences(firstEntries, secondEntries, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> void visitEntryDifferences(
+            @NotNull Map<Object, Object> first,
+            @NotNull Map<Object, Object> second,
+            @NotNull DifferenceVisitor<K, V> visitor
+    ) {
+        for (Map.Entry<Object, Object> entry : first.entrySet()) {
+            Object secondValue = second.get(entry.getKey());
+            if (secondValue != entry.getValue()) {
+                visitor.visit((K) entry.getKey(), (V) entry.getValue(), (V) secondValue);
+            }
+        }
+        for (Map.Entry<Object, Object> entry : second.entrySet()) {
+            if (!first.containsKey(entry.getKey())) {
+                visitor.visit((K) entry.getKey(), null, (V) entry.getValue());
+            }
+        }
+    }
+
+    private abstract static class Node {
+        @Nullable
+        abstract Object get(@NotNull Object key, int hash, int shift);
+
+        // sizeChange[0] is set to 1 if a new key was added
+        @NotNull
+        abstract Node put(@NotNull Object key, int hash, @NotNull Object value, int shift, @NotNull int[] sizeChange);
+
+        // returns null if the node becomes empty
+        @Nullable
+        abstract Node remove(@NotNull Object key, int hash, int shift);
+
+        abstract void collectEntries(@NotNull Map result);
+    }
+
+    /**
+     * Each set bit of the bitmap corresponds to a pair in the array: either a key and its value,
+     * or null and a child node for the keys whose hash has the same {@link #BITS} bits at this level.
+     */
+    private static class BitmapNode extends Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] array;
+
+        BitmapNode(int bitmap, @NotNull Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Nullable
+        @Override
+        Object get(@NotNull Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return null;
+            int index = index(bit);
+            Object keyOrNull = array[2 * index];
+            Object valueOrNode = array[2 * index + 1];
+            if (keyOrNull == null) return ((Node) valueOrNode).get(key, hash, shift + BITS);
+            return key.equals(keyOrNull) ? valueOrNode : null;
+        }
+
+        @NotNull
+        @Override
+        Node put(@NotNull Object key, int hash, @NotNull Object value, int shift, @NotNull int[] sizeChange) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, 2 * index);
+                newArray[2 * index] = key;
+                newArray[2 * index + 1] = value;
+                System.arraycopy(array, 2 * index, newArray, 2 * index + 2, array.length - 2 * index);
+                sizeChange[0] = 1;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+
+            Object keyOrNull = array[2 * index];
+            Object valueOrNode = array[2 * index + 1];
+            if (keyOrNull == null) {
+                Node node = (Node) valueOrNode;
+                Node newNode = node.put(key, hash, value, shift + BITS, sizeChange);
+                return newNode == node ? this : withSlot(index, null, newNode);
+            }
+            if (key.equals(keyOrNull)) {
+                return value == valueOrNode ? this : withSlot(index, keyOrNull, value);
+            }
+            sizeChange[0] = 1;
+            return withSlot(index, null, createNode(keyOrNull, valueOrNode, key, hash, value, shift + BITS));
+        }
+
+        @Nullable
+        @Override
+        Node remove(@NotNull Object key, int hash, int shift) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) return this;
+            int index = index(bit);
+
+            Object keyOrNull = array[2 * index];
+            if (keyOrNull == null) {
+                Node node = (Node) array[2 * index + 1];
+                Node newNode = node.remove(key, hash, shift + BITS);
+                if (newNode == node) return this;
+                if (newNode != null) return withSlot(index, null, newNode);
+            }
+            else if (!key.equals(keyOrNull)) {
+                return this;
+            }
+
+            if (bitmap == bit) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * index + 2, newArray, 2 * index, newArray.length - 2 * index);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        @NotNull
+        private BitmapNode withSlot(int index, @Nullable Object key, @NotNull Object valueOrNode) {
+            Object[] newArray = array.clone();
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = valueOrNode;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        @SuppressWarnings("unchecked")
+        void collectSlotEntries(int index, @NotNull Map result) {
+            Object keyOrNull = array[2 * index];
+            if (keyOrNull == null) {
+                ((Node) array[2 * index + 1]).collectEntries(result);
+            }
+            else {
+                result.put(keyOrNull, array[2 * index + 1]);
+            }
+        }
+
+        @Override
+        void collectEntries(@NotNull Map result) {
+            for (int i = 0; i < array.length / 2; i++) {
+                collectSlotEntries(i, result);
+            }
+        }
+    }
+
+    /**
+     * Keys with equal hash codes.
+     */
+    private static class CollisionNode extends Node {
+        final int hash;
+        final Object[] array;
+
+        CollisionNode(int hash, @NotNull Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(@NotNull Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) return i;
+            }
+            return -1;
+        }
+
+        @Nullable
+        @Override
+        Object get(@NotNull Object key, int hash, int shift) {
+            if (hash != this.hash) return null;
+            int index = indexOf(key);
+            return index >= 0 ? array[index + 1] : null;
+        }
+
+        @NotNull
+        @Override
+        Node put(@NotNull Object key, int hash, @NotNull Object value, int shift, @NotNull int[] sizeChange) {
+            if (hash != this.hash) {
+                BitmapNode node = new BitmapNode(1 << ((this.hash >>> shift) & MASK), new Object[] {null, this});
+                return node.put(key, hash, value, shift, sizeChange);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (value == array[index + 1]) return this;
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            sizeChange[0] = 1;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Nullable
+        @Override
+        Node remove(@NotNull Object key, int hash, int shift) {
+            if (hash != this.hash) return this;
+            int index = indexOf(key);
+            if (index < 0) return this;
+            if (array.length == 2) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        void collectEntries(@NotNull Map result) {
+            for (int i = 0; i < array.length; i += 2) {
+                result.put(array[i], array[i + 1]);
+            }
+        }
+    }
+
+    @NotNull
+    private static Node createNode(
+            @NotNull Object key1, @NotNull Object value1,
+            @NotNull Object key2, int hash2, @NotNull Object value2,
+            int shift
+    ) {
+        int hash1 = key1.hashCode();
+        if (hash1 == hash2) {
+            return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+        }
+        int[] sizeChange = new int[1];
+        return BitmapNode.EMPTY.put(key1, hash1, value1, shift, sizeChange).put(key2, hash2, value2, shift, sizeChange);
+    }
+}
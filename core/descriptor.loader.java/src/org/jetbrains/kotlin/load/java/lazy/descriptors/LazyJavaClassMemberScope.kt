@@ -64,6 +64,17 @@ public class LazyJavaClassMemberScope(
         result ifEmpty { emptyOrSingletonList(createDefaultConstructor()) }
     }
 
+    // Members which are not declared in the class are fake overrides of members of supertypes.
+    // The answer is memoized, because the same name is usually checked in scopes of all subclasses
+    private val absentNames = c.storageManager.createMemoizedFunction {
+        name: Name ->
+        val index = memberIndex()
+        index.findMethodsByName(name).isEmpty() && index.findFieldByName(name) == null &&
+        getContainingDeclaration().getTypeConstructor().getSupertypes().all { it.getMemberScope().definitelyDoesNotContainName(name) }
+    }
+
+    override fun definitelyDoesNotContainName(name: Name): Boolean = absentNames(name)
+
     override fun computeNonDeclaredFunctions(result: MutableCollection<SimpleFunctionDescriptor>, name: Name) {
         val functionsFromSupertypes = getFunctionsFromSupertypes(name, getContainingDeclaration())
         result.addAll(DescriptorResolverUtils.resolveOverrides(name, functionsFromSupertypes, result, getContainingDeclaration(), c.errorReporter))
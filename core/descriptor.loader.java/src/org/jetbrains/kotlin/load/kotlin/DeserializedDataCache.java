@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.load.kotlin;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.serialization.ClassData;
+import org.jetbrains.kotlin.serialization.PackageData;
+import org.jetbrains.kotlin.serialization.jvm.JvmProtoBufUtil;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of decoded {@link ClassData} and {@link PackageData}, so that the same library classes are not decoded again
+ * by each compilation performed in the same process (e.g. by a compiler daemon or by the build in the IDE).
+ *
+ * Entries are keyed by the location of the class file (e.g. "path/to/library.jar!/foo/Bar.class"). Instead of relying on timestamps,
+ * which are not available for all kinds of locations, a cached entry is only reused if the encoded data of the class is equal
+ * to the one it was decoded from, so a changed class file is never served stale.
+ *
+ * The cache is bounded by the number of entries, least recently used entries are evicted first. The size can be configured with
+ * the {@link #MAX_SIZE_PROPERTY} system property, zero disables the cache.
+ */
+public final class DeserializedDataCache {
+    public static final String MAX_SIZE_PROPERTY = "kotlin.deserialized.data.cache.size";
+
+    private static final int DEFAULT_MAX_SIZE = 4096;
+
+    private static final DeserializedDataCache INSTANCE = new DeserializedDataCache(Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE));
+
+    @NotNull
+    public static DeserializedDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    private static class Entry {
+        private final String[] data;
+        private final Object decoded;
+
+        private Entry(@NotNull String[] data, @NotNull Object decoded) {
+            this.data = data;
+            this.decoded = decoded;
+        }
+    }
+
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+
+    // Guarded by this
+    private long hitCount;
+    private long missCount;
+
+    public DeserializedDataCache(final int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @NotNull
+    public ClassData getClassData(@NotNull String location, @NotNull String[] data) {
+        ClassData cached = get(location, data, ClassData.class);
+        if (cached != null) return cached;
+
+        ClassData classData = JvmProtoBufUtil.readClassDataFrom(data);
+        put(location, data, classData);
+        return classData;
+    }
+
+    @NotNull
+    public PackageData getPackageData(@NotNull String location, @NotNull String[] data) {
+        PackageData cached = get(location, data, PackageData.class);
+        if (cached != null) return cached;
+
+        PackageData packageData = JvmProtoBufUtil.readPackageDataFrom(data);
+        put(location, data, packageData);
+        return packageData;
+    }
+
+    private synchronized <T> T get(@NotNull String location, @NotNull String[] data, @NotNull Class<T> kind) {
+        Entry entry = entries.get(location);
+        if (entry != null && kind.isInstance(entry.decoded) && Arrays.equals(entry.data, data)) {
+            hitCount++;
+            return kind.cast(entry.decoded);
+        }
+
+        missCount++;
+        return null;
+    }
+
+    private synchronized void put(@NotNull String location, @NotNull String[] data, @NotNull Object decoded) {
+        if (maxSize > 0) {
+            entries.put(location, new Entry(data, decoded));
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DeserializedDataCache: " + entries.size() + " entries, " + hitCount + " hits, " + missCount + " misses";
+    }
+}
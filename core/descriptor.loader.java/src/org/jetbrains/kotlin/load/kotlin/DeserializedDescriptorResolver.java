@@ -28,7 +28,6 @@ import org.jetbrains.kotlin.resolve.scopes.JetScope;
 import org.jetbrains.kotlin.serialization.PackageData;
 import org.jetbrains.kotlin.serialization.deserialization.DeserializationComponents;
 import org.jetbrains.kotlin.serialization.deserialization.descriptors.DeserializedPackageMemberScope;
-import org.jetbrains.kotlin.serialization.jvm.JvmProtoBufUtil;
 
 import javax.inject.Inject;
 import java.util.Collection;
@@ -55,7 +54,7 @@ public final class DeserializedDescriptorResolver {
         String[] data = readData(kotlinClass, CLASS);
         if (data != null) {
             return components.getClassDeserializer().deserializeClass(
-                    kotlinClass.getClassId(), JvmProtoBufUtil.readClassDataFrom(data)
+                    kotlinClass.getClassId(), DeserializedDataCache.getInstance().getClassData(kotlinClass.getLocation(), data)
             );
         }
         return null;
@@ -66,7 +65,7 @@ public final class DeserializedDescriptorResolver {
         String[] data = readData(kotlinClass, PACKAGE_FACADE);
         if (data != null) {
             //all classes are included in java scope
-            PackageData packageData = JvmProtoBufUtil.readPackageDataFrom(data);
+            PackageData packageData = DeserializedDataCache.getInstance().getPackageData(kotlinClass.getLocation(), data);
             return new DeserializedPackageMemberScope(
                     descriptor, packageData.getPackageProto(), packageData.getNameResolver(), components,
                     new Function0<Collection<Name>>() {
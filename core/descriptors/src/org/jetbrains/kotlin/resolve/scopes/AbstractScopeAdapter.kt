@@ -22,6 +22,8 @@ import org.jetbrains.kotlin.utils.Printer
 
 /**
  * Introduces a simple wrapper for internal scope.
+ * [definitelyDoesNotContainName] is not delegated, because subclasses may add functions and properties (e.g. writable scopes),
+ * adapters which don't do it should delegate it explicitly.
  */
 public abstract class AbstractScopeAdapter : JetScope {
     protected abstract val workerScope: JetScope
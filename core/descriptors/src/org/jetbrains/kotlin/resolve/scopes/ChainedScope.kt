@@ -45,6 +45,8 @@ public open class ChainedScope(
     override fun getFunctions(name: Name): Set<FunctionDescriptor>
             = getFromAllScopes(scopeChain, name, NAMED_FUNCTION_SCOPE_SELECTOR)
 
+    override fun definitelyDoesNotContainName(name: Name) = scopeChain.all { it.definitelyDoesNotContainName(name) }
+
     override fun getImplicitReceiversHierarchy(): List<ReceiverParameterDescriptor> {
         if (implicitReceiverHierarchy == null) {
             val result = ArrayList<ReceiverParameterDescriptor>()
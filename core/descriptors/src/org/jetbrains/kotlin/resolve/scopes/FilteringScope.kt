@@ -24,6 +24,8 @@ public class FilteringScope(private val workerScope: JetScope, private val predi
 
     override fun getFunctions(name: Name) = workerScope.getFunctions(name).filter(predicate)
 
+    override fun definitelyDoesNotContainName(name: Name) = workerScope.definitelyDoesNotContainName(name)
+
     override fun getContainingDeclaration() = workerScope.getContainingDeclaration()
 
     private fun <D : DeclarationDescriptor> filterDescriptor(descriptor: D?): D?
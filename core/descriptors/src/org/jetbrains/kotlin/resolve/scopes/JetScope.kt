@@ -34,6 +34,13 @@ public trait JetScope {
 
     public fun getFunctions(name: Name): Collection<FunctionDescriptor>
 
+    /**
+     * A fast check for name lookups which miss: true means that both getFunctions(name) and getProperties(name) are empty,
+     * false means nothing (the scope may or may not contain such members). Scopes which know names of their members
+     * should override it, so that composite scopes (see ChainedScope) could skip them without computing the members.
+     */
+    public fun definitelyDoesNotContainName(name: Name): Boolean = false
+
     public fun getContainingDeclaration(): DeclarationDescriptor
 
     public fun getDeclarationsByLabel(labelName: Name): Collection<DeclarationDescriptor>
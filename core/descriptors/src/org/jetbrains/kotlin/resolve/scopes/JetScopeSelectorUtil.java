@@ -110,6 +110,10 @@ public class JetScopeSelectorUtil {
         return null;
     }
 
+    /**
+     * Scopes which definitely don't contain functions and properties with the given name are skipped,
+     * see {@link JetScope#definitelyDoesNotContainName(Name)}
+     */
     @NotNull
     public static <D extends DeclarationDescriptor> Set<D> getFromAllScopes(
             @NotNull JetScope[] scopes,
@@ -118,11 +122,19 @@ public class JetScopeSelectorUtil {
     ) {
         if (scopes.length == 0) return Collections.emptySet();
 
-        Set<D> descriptors = new LinkedHashSet<D>();
+        Set<D> descriptors = null;
         for (JetScope jetScope : scopes) {
-            descriptors.addAll(descriptorsSelector.get(jetScope, name));
+            if (jetScope.definitelyDoesNotContainName(name)) continue;
+
+            Collection<D> fromScope = descriptorsSelector.get(jetScope, name);
+            if (fromScope.isEmpty()) continue;
+
+            if (descriptors == null) {
+                descriptors = new LinkedHashSet<D>();
+            }
+            descriptors.addAll(fromScope);
         }
 
-        return descriptors;
+        return descriptors != null ? descriptors : Collections.<D>emptySet();
     }
 }
@@ -66,6 +66,8 @@ public class SubstitutingScope(private val workerScope: JetScope, private val su
 
     override fun getFunctions(name: Name) = substitute(workerScope.getFunctions(name))
 
+    override fun definitelyDoesNotContainName(name: Name) = workerScope.definitelyDoesNotContainName(name)
+
     override fun getPackage(name: Name) = workerScope.getPackage(name)
 
     override fun getImplicitReceiversHierarchy(): List<ReceiverParameterDescriptor> {
@@ -17,12 +17,83 @@
 package org.jetbrains.kotlin.types;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.kotlin.descriptors.ClassDescriptor;
 import org.jetbrains.kotlin.descriptors.ClassifierDescriptor;
 import org.jetbrains.kotlin.name.FqNameUnsafe;
 import org.jetbrains.kotlin.resolve.DescriptorUtils;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
 public abstract class AbstractClassTypeConstructor implements TypeConstructor {
+    // Only a set built from final supertypes is remembered, see areSupertypesFinal()
+    private volatile Set<TypeConstructor> allSupertypeConstructors = null;
+
+    /**
+     * @return this type constructor and type constructors of all its direct and indirect supertypes,
+     * or null if supertypes of some of them may still change (e.g. they are being resolved on this thread)
+     */
+    @Nullable
+    public Set<TypeConstructor> getAllSupertypeConstructors() {
+        Set<TypeConstructor> result = allSupertypeConstructors;
+        if (result != null) return result;
+
+        Set<TypeConstructor> collected = new HashSet<TypeConstructor>();
+        if (!collectSupertypeConstructors(this, collected)) return null;
+
+        // Several threads may compute the set at the same time, but they'll get equal results
+        result = Collections.unmodifiableSet(collected);
+        allSupertypeConstructors = result;
+        return result;
+    }
+
+    @NotNull
+    public static Set<TypeConstructor> getAllSupertypeConstructors(@NotNull TypeConstructor typeConstructor) {
+        if (typeConstructor instanceof AbstractClassTypeConstructor) {
+            Set<TypeConstructor> result = ((AbstractClassTypeConstructor) typeConstructor).getAllSupertypeConstructors();
+            if (result != null) return result;
+        }
+
+        Set<TypeConstructor> result = new HashSet<TypeConstructor>();
+        collectSupertypeConstructors(typeConstructor, result);
+        return result;
+    }
+
+    /**
+     * @return false if supertypes of some of the collected type constructors may still change
+     */
+    private static boolean collectSupertypeConstructors(@NotNull TypeConstructor typeConstructor, @NotNull Set<TypeConstructor> result) {
+        if (!result.add(typeConstructor)) return true;
+
+        boolean supertypesFinal = true;
+        for (JetType supertype : typeConstructor.getSupertypes()) {
+            TypeConstructor supertypeConstructor = supertype.getConstructor();
+            if (supertypeConstructor instanceof AbstractClassTypeConstructor) {
+                Set<TypeConstructor> computed = ((AbstractClassTypeConstructor) supertypeConstructor).allSupertypeConstructors;
+                if (computed != null) {
+                    result.addAll(computed);
+                    continue;
+                }
+            }
+            supertypesFinal &= collectSupertypeConstructors(supertypeConstructor, result);
+        }
+
+        // Checked after getSupertypes(), which computes the supertypes unless they are already being computed
+        return supertypesFinal &&
+               (!(typeConstructor instanceof AbstractClassTypeConstructor) ||
+                ((AbstractClassTypeConstructor) typeConstructor).areSupertypesFinal());
+    }
+
+    /**
+     * @return false if the result of {@link #getSupertypes()} may still change,
+     * e.g. when the supertypes are being resolved or loops in the type hierarchy are not disconnected yet
+     */
+    public boolean areSupertypesFinal() {
+        return true;
+    }
+
     @Override
     public final int hashCode() {
         return hashCode(this);
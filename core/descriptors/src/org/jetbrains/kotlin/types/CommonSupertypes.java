@@ -192,7 +192,7 @@ public class CommonSupertypes {
 
             if (!notSource.contains(superConstructor)) {
                 result.put(superConstructor, constructorToAllInstances.get(superConstructor));
-                markAll(superConstructor, notSource);
+                notSource.addAll(AbstractClassTypeConstructor.getAllSupertypeConstructors(superConstructor));
             }
         }
 
@@ -312,11 +312,4 @@ public class CommonSupertypes {
             return new TypeProjectionImpl(projectionKind, findCommonSupertype(parameterDescriptor.getUpperBounds(), recursionDepth + 1, maxDepth));
         }
     }
-
-    private static void markAll(@NotNull TypeConstructor typeConstructor, @NotNull Set<TypeConstructor> markerSet) {
-        markerSet.add(typeConstructor);
-        for (JetType type : typeConstructor.getSupertypes()) {
-            markAll(type.getConstructor(), markerSet);
-        }
-    }
 }
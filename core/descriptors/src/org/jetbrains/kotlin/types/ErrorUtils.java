@@ -114,6 +114,11 @@ public class ErrorUtils {
             return Collections.<FunctionDescriptor>singleton(createErrorFunction(this));
         }
 
+        @Override
+        public boolean definitelyDoesNotContainName(@NotNull Name name) {
+            return false;
+        }
+
         @NotNull
         @Override
         public DeclarationDescriptor getContainingDeclaration() {
@@ -194,6 +199,11 @@ public class ErrorUtils {
             throw new IllegalStateException();
         }
 
+        @Override
+        public boolean definitelyDoesNotContainName(@NotNull Name name) {
+            throw new IllegalStateException();
+        }
+
         @NotNull
         @Override
         public DeclarationDescriptor getContainingDeclaration() {
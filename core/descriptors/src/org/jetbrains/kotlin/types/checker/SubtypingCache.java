@@ -0,0 +1,174 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.types.checker;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.types.AbstractClassTypeConstructor;
+import org.jetbrains.kotlin.types.JetType;
+import org.jetbrains.kotlin.types.TypeConstructor;
+import org.jetbrains.kotlin.types.TypeProjection;
+import org.jetbrains.kotlin.types.TypesPackage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Results of subtype checks and of {@link TypeCheckingProcedure#findCorrespondingSupertype} performed by the default type checker
+ * during one analysis. The cache is active on the thread which called {@link #start()} until the matching {@link #finish}.
+ *
+ * Types are compared by identity: this makes lookups cheap (structural equality of types is a type check itself),
+ * and the same type objects are checked over and over again, e.g. by overload resolution.
+ * Flexible and error types are never cached, neither are types of classes whose supertypes are not final yet.
+ */
+public final class SubtypingCache {
+    private static final int MAX_SIZE = 16384;
+
+    private static final ThreadLocal<SubtypingCache> CURRENT = new ThreadLocal<SubtypingCache>();
+
+    private static final Object NO_CORRESPONDING_SUPERTYPE = new Object();
+
+    private static final class TypePair {
+        private final JetType first;
+        private final JetType second;
+
+        private TypePair(@NotNull JetType first, @NotNull JetType second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TypePair)) return false;
+            TypePair other = (TypePair) obj;
+            return first == other.first && second == other.second;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+        }
+    }
+
+    private final Map<TypePair, Boolean> subtypes = new HashMap<TypePair, Boolean>();
+    private final Map<TypePair, Object> correspondingSupertypes = new HashMap<TypePair, Object>();
+
+    private int hitCount;
+    private int missCount;
+
+    private SubtypingCache() {
+    }
+
+    /**
+     * @return a new cache which is now active on the current thread, or null if there's an active cache already
+     */
+    @Nullable
+    public static SubtypingCache start() {
+        if (CURRENT.get() != null) return null;
+
+        SubtypingCache cache = new SubtypingCache();
+        CURRENT.set(cache);
+        return cache;
+    }
+
+    public static void finish(@Nullable SubtypingCache cache) {
+        if (cache == null) return;
+
+        assert CURRENT.get() == cache : "Subtyping cache is finished on a wrong thread or twice";
+        CURRENT.remove();
+    }
+
+    @Nullable
+    static SubtypingCache getCurrent(@NotNull JetType first, @NotNull JetType second) {
+        SubtypingCache cache = CURRENT.get();
+        if (cache == null || !isCacheable(first) || !isCacheable(second)) return null;
+        return cache;
+    }
+
+    private static boolean isCacheable(@NotNull JetType type) {
+        if (type.isError() || TypesPackage.isFlexible(type)) return false;
+
+        // Supertypes of a class which are still being resolved may change, and so may the result of a check.
+        // The check mustn't compute the supertypes, because it may be called while they are being computed
+        TypeConstructor constructor = type.getConstructor();
+        if (constructor instanceof AbstractClassTypeConstructor && !((AbstractClassTypeConstructor) constructor).areSupertypesFinal()) {
+            return false;
+        }
+
+        for (TypeProjection argument : type.getArguments()) {
+            if (!argument.isStarProjection() && !isCacheable(argument.getType())) return false;
+        }
+        return true;
+    }
+
+    @Nullable
+    Boolean getIsSubtype(@NotNull JetType subtype, @NotNull JetType supertype) {
+        return count(subtypes.get(new TypePair(subtype, supertype)));
+    }
+
+    void putIsSubtype(@NotNull JetType subtype, @NotNull JetType supertype, boolean result) {
+        if (subtypes.size() >= MAX_SIZE) {
+            subtypes.clear();
+        }
+        subtypes.put(new TypePair(subtype, supertype), result);
+    }
+
+    /**
+     * @return null if the result is unknown, NO_CORRESPONDING_SUPERTYPE or the corresponding supertype otherwise
+     */
+    @Nullable
+    Object getCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype) {
+        return count(correspondingSupertypes.get(new TypePair(subtype, supertype)));
+    }
+
+    void putCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype, @Nullable JetType result) {
+        if (correspondingSupertypes.size() >= MAX_SIZE) {
+            correspondingSupertypes.clear();
+        }
+        correspondingSupertypes.put(new TypePair(subtype, supertype), result != null ? result : NO_CORRESPONDING_SUPERTYPE);
+    }
+
+    static boolean isNoCorrespondingSupertype(@NotNull Object cached) {
+        return cached == NO_CORRESPONDING_SUPERTYPE;
+    }
+
+    @Nullable
+    private <T> T count(@Nullable T cached) {
+        if (cached != null) {
+            hitCount++;
+        }
+        else {
+            missCount++;
+        }
+        return cached;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public String toString() {
+        int total = hitCount + missCount;
+        return "Subtyping cache: " + hitCount + " hits, " + missCount + " misses" +
+               (total == 0 ? "" : " (" + (100 * hitCount / total) + "% hit rate)");
+    }
+}
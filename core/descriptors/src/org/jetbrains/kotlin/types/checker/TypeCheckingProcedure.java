@@ -23,6 +23,7 @@ import org.jetbrains.kotlin.descriptors.TypeParameterDescriptor;
 import org.jetbrains.kotlin.types.*;
 
 import java.util.List;
+import java.util.Set;
 
 import static org.jetbrains.kotlin.types.Variance.*;
 
@@ -39,10 +40,42 @@ public class TypeCheckingProcedure {
     // as the second parameter, applying the substitution of type arguments to it
     @Nullable
     public static JetType findCorrespondingSupertype(@NotNull JetType subtype, @NotNull JetType supertype, @NotNull TypeCheckingProcedureCallbacks typeCheckingProcedureCallbacks) {
+        // Other callbacks may have side effects or treat type constructors differently
+        SubtypingCache cache = typeCheckingProcedureCallbacks.getClass() == TypeCheckerProcedureCallbacksImpl.class
+                               ? SubtypingCache.getCurrent(subtype, supertype)
+                               : null;
+        if (cache == null) {
+            return doFindCorrespondingSupertype(subtype, supertype, typeCheckingProcedureCallbacks);
+        }
+
+        Object cached = cache.getCorrespondingSupertype(subtype, supertype);
+        if (cached != null) {
+            return SubtypingCache.isNoCorrespondingSupertype(cached) ? null : (JetType) cached;
+        }
+
+        JetType result = doFindCorrespondingSupertype(subtype, supertype, typeCheckingProcedureCallbacks);
+        cache.putCorrespondingSupertype(subtype, supertype, result);
+        return result;
+    }
+
+    @Nullable
+    private static JetType doFindCorrespondingSupertype(
+            @NotNull JetType subtype,
+            @NotNull JetType supertype,
+            @NotNull TypeCheckingProcedureCallbacks typeCheckingProcedureCallbacks
+    ) {
         TypeConstructor constructor = subtype.getConstructor();
         if (typeCheckingProcedureCallbacks.assertEqualTypeConstructors(constructor, supertype.getConstructor())) {
             return subtype;
         }
+        if (constructor instanceof AbstractClassTypeConstructor &&
+            typeCheckingProcedureCallbacks.getClass() == TypeCheckerProcedureCallbacksImpl.class) {
+            Set<TypeConstructor> allSupertypeConstructors = ((AbstractClassTypeConstructor) constructor).getAllSupertypeConstructors();
+            if (allSupertypeConstructors != null && !allSupertypeConstructors.contains(supertype.getConstructor())) {
+                // No need to walk the hierarchy: the supertype isn't there
+                return null;
+            }
+        }
         for (JetType immediateSupertype : constructor.getSupertypes()) {
             JetType correspondingSupertype = findCorrespondingSupertype(immediateSupertype, supertype, typeCheckingProcedureCallbacks);
             if (correspondingSupertype != null) {
@@ -64,8 +97,12 @@ public class TypeCheckingProcedure {
 
     private final TypeCheckingProcedureCallbacks constraints;
 
+    // Only the results of the default procedure don't depend on anything but the types being checked
+    private final boolean cacheable;
+
     public TypeCheckingProcedure(TypeCheckingProcedureCallbacks constraints) {
         this.constraints = constraints;
+        this.cacheable = getClass() == TypeCheckingProcedure.class && constraints.getClass() == TypeCheckerProcedureCallbacksImpl.class;
     }
 
     public boolean equalTypes(@NotNull JetType type1, @NotNull JetType type2) {
@@ -196,7 +233,18 @@ public class TypeCheckingProcedure {
             // recursive invocation for possible chain of representatives
             return isSubtypeOf(subtypeRepresentative, supertypeRepresentative);
         }
-        return isSubtypeOfForRepresentatives(subtype, supertype);
+
+        SubtypingCache cache = cacheable ? SubtypingCache.getCurrent(subtype, supertype) : null;
+        if (cache == null) {
+            return isSubtypeOfForRepresentatives(subtype, supertype);
+        }
+
+        Boolean cached = cache.getIsSubtype(subtype, supertype);
+        if (cached != null) return cached;
+
+        boolean result = isSubtypeOfForRepresentatives(subtype, supertype);
+        cache.putIsSubtype(subtype, supertype, result);
+        return result;
     }
 
     private boolean isSubtypeOfForRepresentatives(JetType subtype, JetType supertype) {
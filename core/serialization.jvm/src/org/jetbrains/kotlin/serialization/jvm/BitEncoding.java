@@ -18,6 +18,7 @@ package org.jetbrains.kotlin.serialization.jvm;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -113,14 +114,19 @@ public class BitEncoding {
      * a byte array of not more than MAX_UTF8_INFO_LENGTH. Each byte, except those which are 0x0, occupies exactly one byte in the constant
      * pool table. Zero bytes occupy two bytes in the table each.
      *
-     * When strings are constructed from the array of bytes here, they are encoded in the platform's default encoding. This is fine: the
-     * conversion to the Modified UTF-8 (which here would be equivalent to replacing each 0x0 with 0xc0 0x80) will happen later by ASM, when
-     * it writes these strings to the bytecode
+     * All bytes are in the range 0x0..0x7f here, so each of them is converted to the char with the same code, without decoding them with
+     * a charset. The conversion to the Modified UTF-8 (which here would be equivalent to replacing each 0x0 with 0xc0 0x80) will happen
+     * later by ASM, when it writes these strings to the bytecode
      */
     @NotNull
     private static String[] splitBytesToStringArray(@NotNull byte[] data) {
         List<String> result = new ArrayList<String>();
 
+        char[] chars = new char[data.length];
+        for (int i = 0, n = data.length; i < n; i++) {
+            chars[i] = (char) data[i];
+        }
+
         // The offset where the currently processed string starts
         int off = 0;
 
@@ -132,7 +138,7 @@ public class BitEncoding {
             // is at most MAX here: non-zero bytes occupy 1 byte and zero bytes occupy 2 bytes, so we couldn't jump over more than one byte
             if (len >= MAX_UTF8_INFO_LENGTH - 1) {
                 assert len <= MAX_UTF8_INFO_LENGTH : "Produced strings cannot contain more than " + MAX_UTF8_INFO_LENGTH + " bytes: " + len;
-                result.add(new String(data, off, i - off));
+                result.add(new String(chars, off, i - off));
                 off = i;
                 len = 0;
             }
@@ -146,7 +152,7 @@ public class BitEncoding {
         }
 
         if (len >= 0) {
-            result.add(new String(data, off, data.length - off));
+            result.add(new String(chars, off, data.length - off));
         }
 
         return result.toArray(new String[result.size()]);
@@ -163,6 +169,69 @@ public class BitEncoding {
         return decode7to8(bytes);
     }
 
+    /**
+     * Returns a stream of bytes encoded by {@link BitEncoding#encodeBytes(byte[])}, which are decoded as they are read. Unlike
+     * {@link #decodeBytes(String[])}, the whole data is never copied into byte arrays, which saves two copies of it when the data is parsed
+     * right away, e.g. by protobuf.
+     */
+    @NotNull
+    public static InputStream decodingStream(@NotNull String[] data) {
+        return new DecodingInputStream(data);
+    }
+
+    private static class DecodingInputStream extends InputStream {
+        private final String[] data;
+        private int stringIndex = 0;
+        private int charIndex = 0;
+
+        // Bits which are read from the input, but not yet returned, least significant bits come first (see decode7to8())
+        private int bits = 0;
+        private int bitCount = 0;
+
+        public DecodingInputStream(@NotNull String[] data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() {
+            while (bitCount < 8) {
+                int next = next7Bits();
+                if (next < 0) return -1;
+
+                bits |= next << bitCount;
+                bitCount += 7;
+            }
+
+            int result = bits & 0xff;
+            bits >>>= 8;
+            bitCount -= 8;
+            return result;
+        }
+
+        @Override
+        public int read(@NotNull byte[] b, int off, int len) {
+            if (len == 0) return 0;
+
+            for (int i = 0; i < len; i++) {
+                int next = read();
+                if (next < 0) return i == 0 ? -1 : i;
+                b[off + i] = (byte) next;
+            }
+            return len;
+        }
+
+        private int next7Bits() {
+            while (stringIndex < data.length && charIndex == data[stringIndex].length()) {
+                stringIndex++;
+                charIndex = 0;
+            }
+            if (stringIndex == data.length) return -1;
+
+            // The inverse of addModuloByte(bytes, 1) in encodeBytes
+            return (data[stringIndex].charAt(charIndex++) + 0x7f) & 0x7f;
+        }
+    }
+
     /**
      * Combines the array of strings resulted from encodeBytes() into one long byte array
      */
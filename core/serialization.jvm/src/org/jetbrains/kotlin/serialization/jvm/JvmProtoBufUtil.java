@@ -22,28 +22,35 @@ import org.jetbrains.kotlin.serialization.ClassData;
 import org.jetbrains.kotlin.serialization.PackageData;
 
 public class JvmProtoBufUtil {
+    private static final ExtensionRegistryLite EXTENSION_REGISTRY;
+
+    static {
+        ExtensionRegistryLite registry = ExtensionRegistryLite.newInstance();
+        JvmProtoBuf.registerAllExtensions(registry);
+        EXTENSION_REGISTRY = registry.getUnmodifiable();
+    }
+
     private JvmProtoBufUtil() {
     }
 
     @NotNull
     public static ExtensionRegistryLite getExtensionRegistry() {
-        ExtensionRegistryLite registry = ExtensionRegistryLite.newInstance();
-        JvmProtoBuf.registerAllExtensions(registry);
-        return registry;
+        return EXTENSION_REGISTRY;
     }
 
     @NotNull
     public static ClassData readClassDataFrom(@NotNull String[] encodedData) {
-        return ClassData.read(BitEncoding.decodeBytes(encodedData), getExtensionRegistry());
+        // Members are parsed lazily right from the decoded array, so it's kept instead of being decoded as a stream
+        return ClassData.read(BitEncoding.decodeBytes(encodedData), EXTENSION_REGISTRY);
     }
 
     @NotNull
     public static PackageData readPackageDataFrom(@NotNull String[] encodedData) {
-        return readPackageDataFrom(BitEncoding.decodeBytes(encodedData));
+        return PackageData.read(BitEncoding.decodingStream(encodedData), EXTENSION_REGISTRY);
     }
 
     @NotNull
     public static PackageData readPackageDataFrom(@NotNull byte[] data) {
-        return PackageData.read(data, getExtensionRegistry());
+        return PackageData.read(data, EXTENSION_REGISTRY);
     }
 }
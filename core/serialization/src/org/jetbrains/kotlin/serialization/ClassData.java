@@ -16,58 +16,133 @@
 
 package org.jetbrains.kotlin.serialization;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.serialization.deserialization.NameResolver;
 import org.jetbrains.kotlin.utils.UtilsPackage;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public final class ClassData {
+    private static final int MEMBER_TAG = (ProtoBuf.Class.MEMBER_FIELD_NUMBER << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    /**
+     * Members of the class are not parsed here, only their positions in {@code bytes} are recorded, see {@link MemberProtos}.
+     * Neither the data nor the members are copied, so the array should not be modified afterwards
+     */
     @NotNull
     public static ClassData read(@NotNull byte[] bytes, @NotNull ExtensionRegistryLite registry) {
         try {
             ByteArrayInputStream in = new ByteArrayInputStream(bytes);
             NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
-            ProtoBuf.Class classProto = ProtoBuf.Class.parseFrom(in, registry);
-            return new ClassData(nameResolver, classProto);
+            int offset = bytes.length - in.available();
+
+            CodedInputStream input = CodedInputStream.newInstance(bytes, offset, bytes.length - offset);
+            ProtoBuf.Class.Builder withoutMembers = ProtoBuf.Class.newBuilder();
+            List<Integer> memberOffsets = new ArrayList<Integer>();
+            List<Integer> memberLengths = new ArrayList<Integer>();
+            // Merging consecutive fields one run at a time is equivalent to parsing them all at once
+            int runStart = offset;
+            while (true) {
+                int fieldStart = offset + input.getTotalBytesRead();
+                int tag = input.readTag();
+                if (tag == 0) {
+                    mergeRun(withoutMembers, bytes, runStart, fieldStart, registry);
+                    break;
+                }
+
+                if (tag == MEMBER_TAG) {
+                    mergeRun(withoutMembers, bytes, runStart, fieldStart, registry);
+                    int length = input.readRawVarint32();
+                    memberOffsets.add(offset + input.getTotalBytesRead());
+                    memberLengths.add(length);
+                    input.skipRawBytes(length);
+                    runStart = offset + input.getTotalBytesRead();
+                }
+                else {
+                    input.skipField(tag);
+                }
+            }
+
+            return new ClassData(nameResolver, withoutMembers.build(), MemberProtos.read(bytes, memberOffsets, memberLengths, registry));
         }
         catch (IOException e) {
             throw UtilsPackage.rethrow(e);
         }
     }
 
+    private static void mergeRun(
+            @NotNull ProtoBuf.Class.Builder builder,
+            @NotNull byte[] bytes,
+            int start,
+            int end,
+            @NotNull ExtensionRegistryLite registry
+    ) throws IOException {
+        if (end > start) {
+            builder.mergeFrom(bytes, start, end - start, registry);
+        }
+    }
+
     private final NameResolver nameResolver;
 
-    private final ProtoBuf.Class classProto;
+    private final ProtoBuf.Class classProtoWithoutMembers;
+
+    private final MemberProtos memberProtos;
+
+    private volatile ProtoBuf.Class classProto;
 
     public ClassData(@NotNull NameResolver nameResolver, @NotNull ProtoBuf.Class classProto) {
         this.nameResolver = nameResolver;
+        this.classProtoWithoutMembers = classProto;
+        this.memberProtos = MemberProtos.of(classProto.getMemberList());
         this.classProto = classProto;
     }
 
+    private ClassData(@NotNull NameResolver nameResolver, @NotNull ProtoBuf.Class classProtoWithoutMembers, @NotNull MemberProtos memberProtos) {
+        this.nameResolver = nameResolver;
+        this.classProtoWithoutMembers = classProtoWithoutMembers;
+        this.memberProtos = memberProtos;
+    }
+
     @NotNull
     public NameResolver getNameResolver() {
         return nameResolver;
     }
 
+    /**
+     * @return the complete class proto, all members of which are parsed on the first call if the data was read lazily.
+     * Deserializer should use {@link #getClassProtoWithoutMembers()} and {@link #getMemberProtos()} instead
+     */
     @NotNull
     public ProtoBuf.Class getClassProto() {
-        return classProto;
+        ProtoBuf.Class result = classProto;
+        if (result == null) {
+            result = ProtoBuf.Class.newBuilder(classProtoWithoutMembers).addAllMember(memberProtos.getAll()).build();
+            classProto = result;
+        }
+        return result;
+    }
+
+    /**
+     * @return the class proto, which may or may not contain members: they should be obtained from {@link #getMemberProtos()}
+     */
+    @NotNull
+    public ProtoBuf.Class getClassProtoWithoutMembers() {
+        return classProtoWithoutMembers;
+    }
+
+    @NotNull
+    public MemberProtos getMemberProtos() {
+        return memberProtos;
     }
 
     @NotNull
     public byte[] toBytes() {
-        try {
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            NameSerializationUtil.serializeNameResolver(result, nameResolver);
-            classProto.writeTo(result);
-            return result.toByteArray();
-        }
-        catch (IOException e) {
-            throw UtilsPackage.rethrow(e);
-        }
+        return NameSerializationUtil.serializeWithNameResolver(nameResolver, getClassProto());
     }
 }
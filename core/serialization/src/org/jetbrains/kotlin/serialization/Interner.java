@@ -16,36 +16,51 @@
 
 package org.jetbrains.kotlin.serialization;
 
-import kotlin.Function1;
-import kotlin.KotlinPackage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Assigns consecutive indices to objects in the order they're interned for the first time.
+ *
+ * The interner is thread-safe: lookups of already interned objects don't lock, new objects are added under the lock.
+ * However, indices are deterministic only if the interner is filled by one thread at a time. Serialization of independent
+ * classes in parallel satisfies this, because each class is serialized with its own {@link StringTable}.
+ *
+ * A child interner continues the indices of its parent as they were at the moment the child was created.
+ */
 public final class Interner<T> {
     private final Interner<T> parent;
     private final int firstIndex;
-    private final Map<T, Integer> interned = new HashMap<T, Integer>();
+    private final ConcurrentMap<T, Integer> interned = new ConcurrentHashMap<T, Integer>();
+    // Guarded by this, objects in the order of their indices
+    private final List<T> objects = new ArrayList<T>();
 
     public Interner(Interner<T> parent) {
         this.parent = parent;
-        this.firstIndex = parent != null ? parent.interned.size() + parent.firstIndex : 0;
+        this.firstIndex = parent != null ? parent.size() + parent.firstIndex : 0;
     }
 
     public Interner() {
         this(null);
     }
 
+    private synchronized int size() {
+        return objects.size();
+    }
+
     @Nullable
     private Integer find(@NotNull T obj) {
-        assert parent == null || parent.interned.size() + parent.firstIndex == firstIndex :
-                "Parent changed in parallel with child: indexes will be wrong";
         if (parent != null) {
             Integer index = parent.find(obj);
-            if (index != null) return index;
+            if (index != null) {
+                assert index < firstIndex : "Parent changed in parallel with child: indexes will be wrong";
+                return index;
+            }
         }
         return interned.get(obj);
     }
@@ -54,18 +69,19 @@ public final class Interner<T> {
         Integer index = find(obj);
         if (index != null) return index;
 
-        index = firstIndex + interned.size();
-        interned.put(obj, index);
-        return index;
+        synchronized (this) {
+            index = interned.get(obj);
+            if (index != null) return index;
+
+            index = firstIndex + objects.size();
+            objects.add(obj);
+            interned.put(obj, index);
+            return index;
+        }
     }
 
     @NotNull
-    public List<T> getAllInternedObjects() {
-        return KotlinPackage.toSortedListBy(interned.keySet(), new Function1<T, Integer>() {
-            @Override
-            public Integer invoke(T key) {
-                return interned.get(key);
-            }
-        });
+    public synchronized List<T> getAllInternedObjects() {
+        return new ArrayList<T>(objects);
     }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.serialization;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.utils.UtilsPackage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Callable members of a class. The name, flags and presence of a receiver type of each member are known without parsing
+ * the member itself, which is enough to find the members with the given name. If members were read from bytes
+ * (see {@link #read(byte[], List, List, ExtensionRegistryLite)}), each one is parsed only when it's requested by {@link #get(int)}.
+ */
+public abstract class MemberProtos {
+    @NotNull
+    public static MemberProtos of(@NotNull List<ProtoBuf.Callable> members) {
+        return new Parsed(members);
+    }
+
+    /**
+     * @param offsets positions of serialized {@link ProtoBuf.Callable} messages in {@code bytes}, which are not copied
+     * @param lengths sizes of those messages
+     */
+    @NotNull
+    public static MemberProtos read(
+            @NotNull byte[] bytes,
+            @NotNull List<Integer> offsets,
+            @NotNull List<Integer> lengths,
+            @NotNull ExtensionRegistryLite registry
+    ) throws IOException {
+        return new Lazy(bytes, offsets, lengths, registry);
+    }
+
+    public abstract int size();
+
+    /**
+     * @return id of the member's name in the string table
+     */
+    public abstract int getName(int index);
+
+    public abstract int getFlags(int index);
+
+    public abstract boolean hasReceiverType(int index);
+
+    @NotNull
+    public abstract ProtoBuf.Callable get(int index);
+
+    @NotNull
+    public List<ProtoBuf.Callable> getAll() {
+        List<ProtoBuf.Callable> result = new ArrayList<ProtoBuf.Callable>(size());
+        for (int i = 0; i < size(); i++) {
+            result.add(get(i));
+        }
+        return result;
+    }
+
+    private static class Parsed extends MemberProtos {
+        private final List<ProtoBuf.Callable> members;
+
+        public Parsed(@NotNull List<ProtoBuf.Callable> members) {
+            this.members = members;
+        }
+
+        @Override
+        public int size() {
+            return members.size();
+        }
+
+        @Override
+        public int getName(int index) {
+            return members.get(index).getName();
+        }
+
+        @Override
+        public int getFlags(int index) {
+            return members.get(index).getFlags();
+        }
+
+        @Override
+        public boolean hasReceiverType(int index) {
+            return members.get(index).hasReceiverType();
+        }
+
+        @NotNull
+        @Override
+        public ProtoBuf.Callable get(int index) {
+            return members.get(index);
+        }
+
+        @NotNull
+        @Override
+        public List<ProtoBuf.Callable> getAll() {
+            return members;
+        }
+    }
+
+    private static class Lazy extends MemberProtos {
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final ExtensionRegistryLite registry;
+        private final int[] names;
+        private final int[] flags;
+        private final boolean[] hasReceiverType;
+        // Messages are immutable, so racing threads may parse the same member, but will never see a partially constructed one
+        private final AtomicReferenceArray<ProtoBuf.Callable> parsed;
+
+        public Lazy(
+                @NotNull byte[] bytes,
+                @NotNull List<Integer> offsets,
+                @NotNull List<Integer> lengths,
+                @NotNull ExtensionRegistryLite registry
+        ) throws IOException {
+            this.bytes = bytes;
+            this.registry = registry;
+
+            int size = offsets.size();
+            this.offsets = new int[size];
+            this.lengths = new int[size];
+            this.names = new int[size];
+            this.flags = new int[size];
+            this.hasReceiverType = new boolean[size];
+            this.parsed = new AtomicReferenceArray<ProtoBuf.Callable>(size);
+
+            for (int i = 0; i < size; i++) {
+                this.offsets[i] = offsets.get(i);
+                this.lengths[i] = lengths.get(i);
+                scanHeader(i);
+            }
+        }
+
+        private void scanHeader(int index) throws IOException {
+            CodedInputStream input = CodedInputStream.newInstance(bytes, offsets[index], lengths[index]);
+            boolean hasName = false;
+            while (true) {
+                int tag = input.readTag();
+                if (tag == 0) break;
+
+                switch (tag >>> 3) {
+                    case ProtoBuf.Callable.FLAGS_FIELD_NUMBER:
+                        flags[index] = input.readInt32();
+                        break;
+                    case ProtoBuf.Callable.NAME_FIELD_NUMBER:
+                        names[index] = input.readInt32();
+                        hasName = true;
+                        break;
+                    case ProtoBuf.Callable.RECEIVER_TYPE_FIELD_NUMBER:
+                        hasReceiverType[index] = true;
+                        input.skipField(tag);
+                        break;
+                    default:
+                        input.skipField(tag);
+                }
+            }
+
+            if (!hasName) {
+                throw new InvalidProtocolBufferException("Callable member without a name");
+            }
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public int getName(int index) {
+            return names[index];
+        }
+
+        @Override
+        public int getFlags(int index) {
+            return flags[index];
+        }
+
+        @Override
+        public boolean hasReceiverType(int index) {
+            return hasReceiverType[index];
+        }
+
+        @NotNull
+        @Override
+        public ProtoBuf.Callable get(int index) {
+            ProtoBuf.Callable member = parsed.get(index);
+            if (member == null) {
+                try {
+                    member = ProtoBuf.Callable.PARSER.parseFrom(bytes, offsets[index], lengths[index], registry);
+                }
+                catch (IOException e) {
+                    throw UtilsPackage.rethrow(e);
+                }
+                parsed.set(index, member);
+            }
+            return member;
+        }
+    }
+}
@@ -16,6 +16,8 @@
 
 package org.jetbrains.kotlin.serialization;
 
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.MessageLite;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.kotlin.serialization.deserialization.NameResolver;
 import org.jetbrains.kotlin.utils.UtilsPackage;
@@ -40,6 +42,35 @@ public class NameSerializationUtil {
         }
     }
 
+    /**
+     * Serializes the name resolver (in the same format as {@link #serializeNameResolver}) followed by the message into a byte array
+     * of the exact size, without copying the data through intermediate buffers
+     */
+    @NotNull
+    public static byte[] serializeWithNameResolver(@NotNull NameResolver nameResolver, @NotNull MessageLite message) {
+        ProtoBuf.StringTable stringTable = nameResolver.getStringTable();
+        ProtoBuf.QualifiedNameTable qualifiedNameTable = nameResolver.getQualifiedNameTable();
+        int stringTableSize = stringTable.getSerializedSize();
+        int qualifiedNameTableSize = qualifiedNameTable.getSerializedSize();
+
+        byte[] result = new byte[CodedOutputStream.computeRawVarint32Size(stringTableSize) + stringTableSize +
+                                 CodedOutputStream.computeRawVarint32Size(qualifiedNameTableSize) + qualifiedNameTableSize +
+                                 message.getSerializedSize()];
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(result);
+            out.writeRawVarint32(stringTableSize);
+            stringTable.writeTo(out);
+            out.writeRawVarint32(qualifiedNameTableSize);
+            qualifiedNameTable.writeTo(out);
+            message.writeTo(out);
+            out.checkNoSpaceLeft();
+        }
+        catch (IOException e) {
+            throw UtilsPackage.rethrow(e);
+        }
+        return result;
+    }
+
     public static void serializeNameResolver(@NotNull OutputStream out, @NotNull NameResolver nameResolver) {
         serializeStringTable(out, nameResolver.getStringTable(), nameResolver.getQualifiedNameTable());
     }
@@ -22,14 +22,18 @@ import org.jetbrains.kotlin.serialization.deserialization.NameResolver;
 import org.jetbrains.kotlin.utils.UtilsPackage;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
 public final class PackageData {
     @NotNull
     public static PackageData read(@NotNull byte[] bytes, @NotNull ExtensionRegistryLite registry) {
+        return read(new ByteArrayInputStream(bytes), registry);
+    }
+
+    @NotNull
+    public static PackageData read(@NotNull InputStream in, @NotNull ExtensionRegistryLite registry) {
         try {
-            ByteArrayInputStream in = new ByteArrayInputStream(bytes);
             NameResolver nameResolver = NameSerializationUtil.deserializeNameResolver(in);
             ProtoBuf.Package packageProto = ProtoBuf.Package.parseFrom(in, registry);
             return new PackageData(nameResolver, packageProto);
@@ -60,14 +64,6 @@ public final class PackageData {
 
     @NotNull
     public byte[] toBytes() {
-        try {
-            ByteArrayOutputStream result = new ByteArrayOutputStream();
-            NameSerializationUtil.serializeNameResolver(result, nameResolver);
-            packageProto.writeTo(result);
-            return result.toByteArray();
-        }
-        catch (IOException e) {
-            throw UtilsPackage.rethrow(e);
-        }
+        return NameSerializationUtil.serializeWithNameResolver(nameResolver, packageProto);
     }
 }
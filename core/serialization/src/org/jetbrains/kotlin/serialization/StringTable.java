@@ -30,6 +30,10 @@ import java.util.List;
 
 import static org.jetbrains.kotlin.serialization.ProtoBuf.QualifiedNameTable.QualifiedName;
 
+/**
+ * Strings and qualified names used in the serialized metadata of a class or a package. The table is thread-safe, but indices
+ * are deterministic only if it's filled by one thread at a time, see {@link Interner}
+ */
 public class StringTable {
     private static final class FqNameProto {
         public final QualifiedName.Builder fqName;
@@ -40,7 +40,9 @@ public class ClassDeserializer(private val components: DeserializationComponents
             components.createContext(fragments.single(), classData.getNameResolver())
         }
 
-        return DeserializedClassDescriptor(outerContext, classData.getClassProto(), classData.getNameResolver())
+        return DeserializedClassDescriptor(
+                outerContext, classData.getClassProtoWithoutMembers(), classData.getMemberProtos(), classData.getNameResolver()
+        )
     }
 
     private data class ClassKey(val classId: ClassId, classData: ClassData?) {
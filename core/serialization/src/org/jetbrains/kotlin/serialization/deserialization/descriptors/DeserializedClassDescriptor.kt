@@ -27,6 +27,7 @@ import org.jetbrains.kotlin.resolve.scopes.DescriptorKindFilter
 import org.jetbrains.kotlin.resolve.scopes.JetScope
 import org.jetbrains.kotlin.resolve.scopes.StaticScopeForKotlinClass
 import org.jetbrains.kotlin.serialization.Flags
+import org.jetbrains.kotlin.serialization.MemberProtos
 import org.jetbrains.kotlin.serialization.ProtoBuf
 import org.jetbrains.kotlin.serialization.deserialization
 import org.jetbrains.kotlin.serialization.deserialization.DeserializationContext
@@ -39,9 +40,11 @@ import java.util.ArrayList
 import java.util.HashSet
 import java.util.LinkedHashSet
 
+// Members of classProto are not used (and may be absent), members are taken from memberProtos to be parsed on demand
 public class DeserializedClassDescriptor(
         outerContext: DeserializationContext,
         val classProto: ProtoBuf.Class,
+        private val memberProtos: MemberProtos,
         nameResolver: NameResolver
 ) : ClassDescriptor, AbstractClassDescriptor(
         outerContext.storageManager,
@@ -170,7 +173,7 @@ public class DeserializedClassDescriptor(
         override fun toString() = getName().toString()
     }
 
-    private inner class DeserializedClassMemberScope : DeserializedMemberScope(c, classProto.getMemberList()) {
+    private inner class DeserializedClassMemberScope : DeserializedMemberScope(c, memberProtos) {
         private val classDescriptor: DeserializedClassDescriptor get() = this@DeserializedClassDescriptor
         private val allDescriptors = c.storageManager.createLazyValue {
             computeDescriptors(DescriptorKindFilter.ALL, JetScope.ALL_NAME_FILTER)
@@ -179,6 +182,10 @@ public class DeserializedClassDescriptor(
         override fun getDescriptors(kindFilter: DescriptorKindFilter,
                                     nameFilter: (Name) -> Boolean): Collection<DeclarationDescriptor> = allDescriptors()
 
+        // Non-declared members are fake overrides of members of supertypes
+        override fun definitelyDoesNotContainNonDeclaredName(name: Name) =
+                classDescriptor.getTypeConstructor().getSupertypes().all { it.getMemberScope().definitelyDoesNotContainName(name) }
+
         override fun computeNonDeclaredFunctions(name: Name, functions: MutableCollection<FunctionDescriptor>) {
             val fromSupertypes = ArrayList<FunctionDescriptor>()
             for (supertype in classDescriptor.getTypeConstructor().getSupertypes()) {
@@ -307,7 +314,10 @@ public class DeserializedClassDescriptor(
             }
 
             val nameResolver = c.nameResolver
-            return classProto.getMemberList().mapTo(result) { nameResolver.getName(it.getName()) }
+            for (index in 0..memberProtos.size() - 1) {
+                result.add(nameResolver.getName(memberProtos.getName(index)))
+            }
+            return result
         }
 
         fun all(): Collection<ClassDescriptor> {
@@ -17,6 +17,7 @@
 package org.jetbrains.kotlin.serialization.deserialization.descriptors
 
 import org.jetbrains.kotlin.serialization.Flags
+import org.jetbrains.kotlin.serialization.MemberProtos
 import org.jetbrains.kotlin.serialization.ProtoBuf
 import org.jetbrains.kotlin.descriptors.*
 import org.jetbrains.kotlin.name.Name
@@ -30,7 +31,7 @@ import java.util.*
 
 public abstract class DeserializedMemberScope protected(
         protected val c: DeserializationContext,
-        membersList: Collection<ProtoBuf.Callable>
+        membersList: MemberProtos
 ) : JetScope {
 
     private data class ProtoKey(val name: Name, val kind: Kind, val isExtension: Boolean)
@@ -44,40 +45,46 @@ public abstract class DeserializedMemberScope protected(
         }
     }
 
+    private val filteredMembers =
+            c.storageManager.createLazyValue { filteredMemberProtos(membersList) }
     private val membersProtos =
-            c.storageManager.createLazyValue { groupByKey(filteredMemberProtos(membersList)) }
+            c.storageManager.createLazyValue { groupByKey(filteredMembers()) }
+    private val declaredNames =
+            c.storageManager.createLazyValue { membersProtos().keySet().mapTo(HashSet<Name>()) { it.name } }
     private val functions =
             c.storageManager.createMemoizedFunction<Name, Collection<FunctionDescriptor>> { computeFunctions(it) }
     private val properties =
             c.storageManager.createMemoizedFunction<Name, Collection<VariableDescriptor>> { computeProperties(it) }
 
-    protected open fun filteredMemberProtos(allMemberProtos: Collection<ProtoBuf.Callable>): Collection<ProtoBuf.Callable> = allMemberProtos
+    protected open fun filteredMemberProtos(allMemberProtos: MemberProtos): MemberProtos = allMemberProtos
 
-    private fun groupByKey(membersList: Collection<ProtoBuf.Callable>): Map<ProtoKey, List<ProtoBuf.Callable>> {
-        val map = LinkedHashMap<ProtoKey, MutableList<ProtoBuf.Callable>>()
-        for (memberProto in membersList) {
+    // Indices of members are grouped instead of members themselves, so that only members with the requested name are parsed
+    private fun groupByKey(membersList: MemberProtos): Map<ProtoKey, List<Int>> {
+        val map = LinkedHashMap<ProtoKey, MutableList<Int>>()
+        for (index in 0..membersList.size() - 1) {
             val key = ProtoKey(
-                    c.nameResolver.getName(memberProto.getName()),
-                    Flags.CALLABLE_KIND[memberProto.getFlags()].toKind(),
-                    memberProto.hasReceiverType()
+                    c.nameResolver.getName(membersList.getName(index)),
+                    Flags.CALLABLE_KIND[membersList.getFlags(index)].toKind(),
+                    membersList.hasReceiverType(index)
             )
             var protos = map[key]
             if (protos == null) {
                 protos = ArrayList(1)
                 map.put(key, protos)
             }
-            protos!!.add(memberProto)
+            protos!!.add(index)
         }
         return map
     }
 
     private fun <D : CallableMemberDescriptor> computeMembers(name: Name, kind: Kind): LinkedHashSet<D> {
-        val memberProtos = membersProtos()[ProtoKey(name, kind, isExtension = false)].orEmpty() +
-                           membersProtos()[ProtoKey(name, kind, isExtension = true)].orEmpty()
+        val memberIndices = membersProtos()[ProtoKey(name, kind, isExtension = false)].orEmpty() +
+                            membersProtos()[ProtoKey(name, kind, isExtension = true)].orEmpty()
 
+        val members = filteredMembers()
         [suppress("UNCHECKED_CAST")]
-        return memberProtos.mapTo(LinkedHashSet<D>()) { memberProto ->
-            c.memberDeserializer.loadCallable(memberProto) as D
+        return memberIndices.mapTo(LinkedHashSet<D>()) { index ->
+            c.memberDeserializer.loadCallable(members.get(index)) as D
         }
     }
 
@@ -92,6 +99,14 @@ public abstract class DeserializedMemberScope protected(
 
     override fun getFunctions(name: Name): Collection<FunctionDescriptor> = functions(name)
 
+    override fun definitelyDoesNotContainName(name: Name): Boolean =
+            name !in declaredNames() && definitelyDoesNotContainNonDeclaredName(name)
+
+    /**
+     * @return true if neither computeNonDeclaredFunctions nor computeNonDeclaredProperties can add a member with the given name
+     */
+    protected abstract fun definitelyDoesNotContainNonDeclaredName(name: Name): Boolean
+
     private fun computeProperties(name: Name): Collection<VariableDescriptor> {
         val descriptors = computeMembers<PropertyDescriptor>(name, Kind.PROPERTY)
         computeNonDeclaredProperties(name, descriptors)
@@ -16,6 +16,7 @@
 
 package org.jetbrains.kotlin.serialization.deserialization.descriptors
 
+import org.jetbrains.kotlin.serialization.MemberProtos
 import org.jetbrains.kotlin.serialization.ProtoBuf
 import org.jetbrains.kotlin.serialization.deserialization.DeserializationComponents
 import org.jetbrains.kotlin.descriptors.DeclarationDescriptor
@@ -33,7 +34,7 @@ public open class DeserializedPackageMemberScope(
         nameResolver: NameResolver,
         components: DeserializationComponents,
         classNames: () -> Collection<Name>
-) : DeserializedMemberScope(components.createContext(packageDescriptor, nameResolver), proto.getMemberList()) {
+) : DeserializedMemberScope(components.createContext(packageDescriptor, nameResolver), MemberProtos.of(proto.getMemberList())) {
 
     private val packageFqName = packageDescriptor.fqName
     private val classNames = c.storageManager.createLazyValue(classNames)
@@ -51,6 +52,8 @@ public open class DeserializedPackageMemberScope(
         }
     }
 
+    override fun definitelyDoesNotContainNonDeclaredName(name: Name) = true
+
     override fun addNonDeclaredDescriptors(result: MutableCollection<DeclarationDescriptor>) {
         // Do nothing
     }
@@ -152,7 +152,7 @@ public class KotlinBuilder : ModuleLevelBuilder(BuilderCategory.SOURCE_PROCESSOR
         }
         else {
             val generatedClasses = generatedFiles as List<GeneratedJvmClass>
-            recompilationDecision = updateKotlinIncrementalCache(compilationErrors, incrementalCaches, generatedClasses)
+            recompilationDecision = updateKotlinIncrementalCache(compilationErrors, incrementalCaches, filesToCompile, generatedClasses)
             updateJavaMappings(chunk, compilationErrors, context, dirtyFilesHolder, filesToCompile, generatedClasses)
         }
 
@@ -182,8 +182,11 @@ public class KotlinBuilder : ModuleLevelBuilder(BuilderCategory.SOURCE_PROCESSOR
                     }
                 }
                 RECOMPILE_OTHER_KOTLIN_IN_CHUNK -> {
+                    val caches = chunk.getTargets().map { incrementalCaches[it]!! }
+                    val changedNames = getChangedNames(caches)
                     FSOperations.markDirty(context, chunk, { file ->
-                        KotlinSourceFileCollector.isKotlinSourceFile(file) && file !in allCompiledFiles
+                        KotlinSourceFileCollector.isKotlinSourceFile(file) && file !in allCompiledFiles &&
+                        (changedNames == null || referencesAnyOf(file, changedNames, caches))
                     })
                 }
             }
@@ -348,6 +351,7 @@ public class KotlinBuilder : ModuleLevelBuilder(BuilderCategory.SOURCE_PROCESSOR
     private fun updateKotlinIncrementalCache(
             compilationErrors: Boolean,
             incrementalCaches: Map<ModuleBuildTarget, IncrementalCacheImpl>,
+            filesToCompile: MultiMap<ModuleBuildTarget, File>,
             generatedClasses: List<GeneratedJvmClass>
     ): IncrementalCacheImpl.RecompilationDecision {
         if (!IncrementalCompilation.ENABLED) {
@@ -355,22 +359,57 @@ public class KotlinBuilder : ModuleLevelBuilder(BuilderCategory.SOURCE_PROCESSOR
         }
 
         var recompilationDecision = DO_NOTHING
-        for (generatedClass in generatedClasses) {
-            val newDecision = incrementalCaches[generatedClass.target]!!.saveFileToCache(generatedClass.sourceFiles, generatedClass.outputClass)
-            recompilationDecision = recompilationDecision.merge(newDecision)
-        }
+        incrementalCaches.values().forEach { it.startBatch() }
+        try {
+            for ((target, cache) in incrementalCaches) {
+                filesToCompile[target].forEach { cache.saveReferencedNames(it) }
+            }
 
-        if (!compilationErrors) {
-            incrementalCaches.values().forEach {
-                val newDecision = it.clearCacheForRemovedClasses()
+            for (generatedClass in generatedClasses) {
+                val newDecision = incrementalCaches[generatedClass.target]!!.saveFileToCache(generatedClass.sourceFiles, generatedClass.outputClass)
                 recompilationDecision = recompilationDecision.merge(newDecision)
             }
+
+            if (!compilationErrors) {
+                incrementalCaches.values().forEach {
+                    val newDecision = it.clearCacheForRemovedClasses()
+                    recompilationDecision = recompilationDecision.merge(newDecision)
+                }
+            }
+        }
+        finally {
+            incrementalCaches.values().forEach { it.flushBatch() }
+        }
+
+        if (LOG.isDebugEnabled()) {
+            for ((target, cache) in incrementalCaches) {
+                LOG.debug("Incremental cache of $target: " + cache.getMetrics().join("; "))
+            }
         }
 
         return recompilationDecision
     }
 
-    // if null is returned, nothing was done
+    // Null means that changes can't be described by names, so every file depending on the changed classes is recompiled
+    private fun getChangedNames(caches: Collection<IncrementalCacheImpl>): Set<String>? {
+        if (!IncrementalCompilation.MEMBER_LEVEL_DEPENDENCIES) return null
+
+        val result = HashSet<String>()
+        for (cache in caches) {
+            result.addAll(cache.getChangedNames() ?: return null)
+        }
+        return result
+    }
+
+    private fun referencesAnyOf(file: File, names: Set<String>, caches: Collection<IncrementalCacheImpl>): Boolean {
+        for (cache in caches) {
+            val referencedNames = cache.getReferencedNames(file) ?: continue
+            return referencedNames.any { it in names }
+        }
+        // The file was compiled before its referenced names were tracked
+        return true
+    }
+
     private fun compileToJs(chunk: ModuleChunk,
                             commonArguments: CommonCompilerArguments,
                             environment: CompilerEnvironment,
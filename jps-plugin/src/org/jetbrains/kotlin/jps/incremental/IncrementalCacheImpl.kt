@@ -48,6 +48,11 @@ import java.util.ArrayList
 import org.jetbrains.annotations.TestOnly
 import org.jetbrains.kotlin.utils.Printer
 import java.io.DataInputStream
+import java.util.LinkedHashMap
+import java.util.LinkedHashSet
+import java.util.HashSet
+import org.jetbrains.kotlin.config.IncrementalCompilation
+import com.intellij.openapi.util.io.FileUtil
 
 val INLINE_ANNOTATION_DESC = "Lkotlin/inline;"
 
@@ -59,6 +64,7 @@ class CacheFormatVersion(targetDataRoot: File) {
         // Change this when incremental cache format changes
         private val INCREMENTAL_CACHE_OWN_VERSION = 2
         private val CACHE_FORMAT_VERSION: Int = INCREMENTAL_CACHE_OWN_VERSION * 1000000 + JvmAbi.VERSION
+        private val INCOMPATIBLE_VERSION = -1
         val FORMAT_VERSION_FILE_PATH: String = "$CACHE_DIRECTORY_NAME/format-version.txt"
     }
 
@@ -72,10 +78,22 @@ class CacheFormatVersion(targetDataRoot: File) {
 
     fun saveIfNeeded() {
         if (!file.exists()) {
-            file.writeText(CACHE_FORMAT_VERSION.toString())
+            save()
         }
     }
 
+    fun save() {
+        file.writeText(CACHE_FORMAT_VERSION.toString())
+    }
+
+    /**
+     * Makes [isIncompatible] return true until the next [save], so that the caches are rebuilt
+     * if the process dies while they are in an inconsistent state
+     */
+    fun markIncompatible() {
+        file.writeText(INCOMPATIBLE_VERSION.toString())
+    }
+
     fun clean() {
         file.delete()
     }
@@ -89,6 +107,7 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         val PACKAGE_PARTS = "package-parts.tab"
         val SOURCE_TO_CLASSES = "source-to-classes.tab"
         val DIRTY_OUTPUT_CLASSES = "dirty-output-classes.tab"
+        val SOURCE_TO_REFERENCED_NAMES = "source-to-referenced-names.tab"
     }
 
     private val baseDir = File(targetDataRoot, CACHE_DIRECTORY_NAME)
@@ -98,8 +117,13 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
     private val packagePartMap = PackagePartMap()
     private val sourceToClassesMap = SourceToClassesMap()
     private val dirtyOutputClassesMap = DirtyOutputClassesMap()
+    private val sourceToReferencedNamesMap = SourceToReferencedNamesMap()
+
+    private val maps = listOf(protoMap, constantsMap, inlineFunctionsMap, packagePartMap, sourceToClassesMap, dirtyOutputClassesMap,
+                              sourceToReferencedNamesMap)
 
-    private val maps = listOf(protoMap, constantsMap, inlineFunctionsMap, packagePartMap, sourceToClassesMap, dirtyOutputClassesMap)
+    // Names of declarations whose signatures have changed since the last startBatch(), null if unknown
+    private var changedNames: MutableSet<String>? = HashSet()
 
     private val cacheFormatVersion = CacheFormatVersion(targetDataRoot)
 
@@ -114,9 +138,39 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
             classes.forEach { dirtyOutputClassesMap.markDirty(it.getInternalName()) }
 
             sourceToClassesMap.clearOutputsForSource(sourceFile)
+            sourceToReferencedNamesMap.remove(sourceFile)
         }
     }
 
+    /**
+     * Remembers the names mentioned in the source file, see [getChangedNames]
+     */
+    public fun saveReferencedNames(sourceFile: File) {
+        if (IncrementalCompilation.MEMBER_LEVEL_DEPENDENCIES) {
+            sourceToReferencedNamesMap.put(sourceFile, collectReferencedNames(sourceFile.readText()))
+        }
+    }
+
+    /**
+     * @return names saved by [saveReferencedNames] for the source file, or null if they are unknown
+     */
+    public fun getReferencedNames(sourceFile: File): Collection<String>? = sourceToReferencedNamesMap[sourceFile]
+
+    /**
+     * @return names of declarations whose signatures have changed since the last [startBatch], or null if some change
+     * can't be expressed in terms of names and all files that depend on the changed classes should be recompiled
+     */
+    public fun getChangedNames(): Set<String>? = changedNames
+
+    private fun registerProtoChange(changes: Set<String>?): Boolean {
+        if (changes == null) {
+            changedNames = null
+            return true
+        }
+        changedNames?.addAll(changes)
+        return changes.isNotEmpty()
+    }
+
     private fun getRecompilationDecision(protoChanged: Boolean, constantsChanged: Boolean, inlinesChanged: Boolean) =
             when {
                 inlinesChanged -> RECOMPILE_ALL_IN_CHUNK_AND_DEPENDANTS
@@ -138,13 +192,13 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         return when {
             header.isCompatiblePackageFacadeKind() ->
                 getRecompilationDecision(
-                        protoChanged = protoMap.put(className, BitEncoding.decodeBytes(header.annotationData)),
+                        protoChanged = registerProtoChange(protoMap.put(className, BitEncoding.decodeBytes(header.annotationData), true)),
                         constantsChanged = false,
                         inlinesChanged = false
                 )
             header.isCompatibleClassKind() ->
                 getRecompilationDecision(
-                        protoChanged = protoMap.put(className, BitEncoding.decodeBytes(header.annotationData)),
+                        protoChanged = registerProtoChange(protoMap.put(className, BitEncoding.decodeBytes(header.annotationData), false)),
                         constantsChanged = constantsMap.process(className, fileBytes),
                         inlinesChanged = inlineFunctionsMap.process(className, fileBytes)
                 )
@@ -178,6 +232,12 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
 
             recompilationDecision = recompilationDecision.merge(newDecision)
 
+            if (internalClassName in protoMap) {
+                // Usages of a removed class or package member may be anywhere, even if they don't mention its name
+                // (e.g. an overridden member of a removed supertype)
+                changedNames = null
+            }
+
             protoMap.remove(className)
             packagePartMap.remove(className)
             constantsMap.remove(className)
@@ -195,6 +255,37 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         return protoMap[JvmClassName.byFqNameWithoutInnerClasses(PackageClassUtils.getPackageClassFqName(FqName(fqName)))]
     }
 
+    /**
+     * Starts staging updates of all maps in memory, so that repeated updates of the same key within a chunk
+     * (e.g. a class marked dirty and then compiled again) reach the disk at most once, on [flushBatch]
+     */
+    public fun startBatch() {
+        changedNames = HashSet()
+        maps.forEach { it.startBatch() }
+    }
+
+    public fun flushBatch() {
+        maps.forEach { it.flushBatch() }
+    }
+
+    /**
+     * Rewrites all maps from scratch, dropping the space occupied by overwritten and removed values
+     */
+    public fun compact() {
+        compact(maps)
+    }
+
+    private fun compact(mapsToCompact: List<BasicMap<*>>) {
+        if (mapsToCompact.isEmpty()) return
+
+        // Files of a map are replaced one by one, so the cache is consistent again only when all of them are in place
+        cacheFormatVersion.markIncompatible()
+        mapsToCompact.forEach { it.compact() }
+        cacheFormatVersion.save()
+    }
+
+    public fun getMetrics(): List<IncrementalCacheMapMetrics> = maps.map { it.metrics }
+
     override fun flush(memoryCachesOnly: Boolean) {
         maps.forEach { it.flush(memoryCachesOnly) }
     }
@@ -205,26 +296,205 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
     }
 
     public override fun close() {
-        maps.forEach { it.close () }
+        maps.forEach { it.flushBatch() }
+        compact(maps.filter { it.needsCompaction() })
+        maps.forEach { it.close() }
     }
 
-    private abstract class BasicMap<V> {
-        protected var storage: PersistentHashMap<String, V> = createMap()
+    private abstract class BasicMap<V>(private val baseFile: File) {
+        private var storage: PersistentHashMap<String, V> = createMap(baseFile)
 
-        protected abstract fun createMap(): PersistentHashMap<String, V>
+        // Keys with a live value, read once on the first modification in this session and kept up to date afterwards,
+        // so that stale records are counted without probing the storage. Null if nothing has been modified yet
+        private var liveKeys: MutableSet<String>? = null
 
-        public fun contains(key: String): Boolean = storage.containsMapping(key)
+        // Staged updates: key -> new value or REMOVED, applied to the storage by flushBatch()
+        private var batch: LinkedHashMap<String, Any>? = null
+
+        public val metrics: IncrementalCacheMapMetrics = IncrementalCacheMapMetrics(javaClass.getSimpleName())
+
+        protected abstract fun createMap(baseFile: File): PersistentHashMap<String, V>
+
+        protected val inBatch: Boolean
+            get() = batch != null
+
+        public fun contains(key: String): Boolean {
+            val staged = batch?.get(key)
+            if (staged != null) return staged !== REMOVED
+
+            val start = System.nanoTime()
+            val result = storage.containsMapping(key)
+            metrics.registerRead(System.nanoTime() - start)
+            return result
+        }
+
+        protected fun read(key: String): V? {
+            val staged = batch?.get(key)
+            if (staged != null) {
+                [suppress("UNCHECKED_CAST")]
+                return if (staged === REMOVED) null else staged as V
+            }
+
+            val start = System.nanoTime()
+            val result = storage[key]
+            metrics.registerRead(System.nanoTime() - start)
+            return result
+        }
+
+        protected fun write(key: String, value: V) {
+            val currentBatch = batch
+            if (currentBatch != null) {
+                currentBatch[key] = value
+            }
+            else {
+                writeToStorage(key, value)
+            }
+        }
+
+        protected fun delete(key: String) {
+            val currentBatch = batch
+            if (currentBatch != null) {
+                currentBatch[key] = REMOVED
+            }
+            else {
+                deleteFromStorage(key)
+            }
+        }
+
+        protected fun keys(): Collection<String> {
+            val start = System.nanoTime()
+            val result = LinkedHashSet(storage.getAllKeysWithExistingMapping())
+            metrics.registerRead(System.nanoTime() - start)
+
+            val currentBatch = batch ?: return result
+            for ((key, value) in currentBatch) {
+                if (value === REMOVED) {
+                    result.remove(key)
+                }
+                else {
+                    result.add(key)
+                }
+            }
+            return result
+        }
+
+        protected fun appendToStorage(key: String, appender: (DataOutput) -> Unit) {
+            registerWrite(key)
+            val start = System.nanoTime()
+            storage.appendData(key, appender)
+            metrics.registerWrite(System.nanoTime() - start)
+        }
+
+        private fun writeToStorage(key: String, value: V) {
+            registerWrite(key)
+            val start = System.nanoTime()
+            storage.put(key, value)
+            metrics.registerWrite(System.nanoTime() - start)
+        }
+
+        private fun deleteFromStorage(key: String) {
+            // Removal of an entry leaves its value behind as a stale record
+            if (getLiveKeys().remove(key)) {
+                metrics.registerGarbageRecord()
+            }
+            val start = System.nanoTime()
+            storage.remove(key)
+            metrics.registerRemove(System.nanoTime() - start)
+        }
+
+        // Every write leaves a stale record behind unless it adds a new entry
+        private fun registerWrite(key: String) {
+            if (!getLiveKeys().add(key)) {
+                metrics.registerGarbageRecord()
+            }
+        }
+
+        private fun getLiveKeys(): MutableSet<String> {
+            val keys = liveKeys ?: HashSet(storage.getAllKeysWithExistingMapping())
+            liveKeys = keys
+            return keys
+        }
+
+        public fun startBatch() {
+            if (batch == null) {
+                batch = LinkedHashMap()
+            }
+        }
+
+        public fun flushBatch() {
+            val currentBatch = batch ?: return
+            batch = null
+
+            for ((key, value) in currentBatch) {
+                if (value === REMOVED) {
+                    deleteFromStorage(key)
+                }
+                else {
+                    [suppress("UNCHECKED_CAST")]
+                    writeToStorage(key, value as V)
+                }
+            }
+        }
+
+        /**
+         * PersistentHashMap never reuses the space of overwritten and removed values, so the map is rewritten
+         * when there were more of them during this session than there are live entries
+         */
+        public fun needsCompaction(): Boolean {
+            val entryCount = liveKeys?.size() ?: return false
+            val garbageRecords = metrics.garbageRecords
+            return garbageRecords >= MIN_GARBAGE_RECORDS_TO_COMPACT && garbageRecords >= entryCount
+        }
+
+        /**
+         * Copies live entries to a new map and replaces the files of the storage with its files,
+         * the caller is responsible for marking the cache incompatible while the files are being replaced
+         */
+        public fun compact() {
+            flushBatch()
+
+            val start = System.nanoTime()
+            val compactedFile = File(baseFile.getParentFile(), COMPACTED_MAP_PREFIX + baseFile.getName())
+            PersistentHashMap.deleteFilesStartingWith(compactedFile)
+
+            val compacted = createMap(compactedFile)
+            try {
+                for (key in storage.getAllKeysWithExistingMapping()) {
+                    val value = storage[key]
+                    if (value != null) {
+                        compacted.put(key, value)
+                    }
+                }
+            }
+            finally {
+                compacted.close()
+            }
+
+            storage.close()
+            PersistentHashMap.deleteFilesStartingWith(baseFile)
+            val files = baseFile.getParentFile()?.listFiles().orEmpty()
+            for (file in files.filter { it.getName().startsWith(compactedFile.getName()) }) {
+                FileUtil.rename(file, File(baseFile.getParentFile(), file.getName().removePrefix(COMPACTED_MAP_PREFIX)))
+            }
+            storage = createMap(baseFile)
+
+            metrics.registerCompaction(System.nanoTime() - start)
+        }
 
         public fun clean() {
+            batch = null
+
             try {
                 storage.close()
             }
             catch (ignored: IOException) {
             }
 
-            PersistentHashMap.deleteFilesStartingWith(storage.getBaseFile()!!)
+            PersistentHashMap.deleteFilesStartingWith(baseFile)
+            liveKeys = null
+            metrics.registerClean()
             try {
-                storage = createMap()
+                storage = createMap(baseFile)
             }
             catch (ignored: IOException) {
             }
@@ -237,12 +507,23 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
                 }
             }
             else {
+                if (inBatch) {
+                    flushBatch()
+                    startBatch()
+                }
                 storage.force()
+                metrics.registerFileSize(storageFileSize())
             }
         }
 
         public fun close() {
             storage.close()
+            metrics.registerFileSize(storageFileSize())
+        }
+
+        private fun storageFileSize(): Long {
+            val files = baseFile.getParentFile()?.listFiles() ?: return 0
+            return files.filter { it.getName().startsWith(baseFile.getName()) }.fold(0L) { size, file -> size + file.length() }
         }
 
         TestOnly
@@ -266,29 +547,32 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         protected abstract fun dumpValue(value: V): String
     }
 
-    private inner class ProtoMap : BasicMap<ByteArray>() {
-        override fun createMap(): PersistentHashMap<String, ByteArray> = PersistentHashMap(
-                File(baseDir, PROTO_MAP),
+    private inner class ProtoMap : BasicMap<ByteArray>(File(baseDir, PROTO_MAP)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, ByteArray> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 ByteArrayExternalizer
         )
 
-        public fun put(className: JvmClassName, data: ByteArray): Boolean {
+        /**
+         * @return names of the changed declarations, see [difference]
+         */
+        public fun put(className: JvmClassName, data: ByteArray, isPackageFacade: Boolean): Set<String>? {
             val key = className.getInternalName()
-            val oldData = storage[key]
+            val oldData = read(key)
             if (Arrays.equals(data, oldData)) {
-                return false
+                return setOf()
             }
-            storage.put(key, data)
-            return true
+            write(key, data)
+            return if (IncrementalCompilation.MEMBER_LEVEL_DEPENDENCIES) difference(className, isPackageFacade, oldData, data) else null
         }
 
         public fun get(className: JvmClassName): ByteArray? {
-            return storage[className.getInternalName()]
+            return read(className.getInternalName())
         }
 
         public fun remove(className: JvmClassName) {
-            storage.remove(className.getInternalName())
+            delete(className.getInternalName())
         }
 
         override fun dumpValue(value: ByteArray): String {
@@ -296,9 +580,9 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         }
     }
 
-    private inner class ConstantsMap : BasicMap<Map<String, Any>>() {
-        override fun createMap(): PersistentHashMap<String, Map<String, Any>> = PersistentHashMap(
-                File(baseDir, CONSTANTS_MAP),
+    private inner class ConstantsMap : BasicMap<Map<String, Any>>(File(baseDir, CONSTANTS_MAP)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, Map<String, Any>> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 ConstantsMapExternalizer
         )
@@ -326,15 +610,15 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         private fun put(className: JvmClassName, constantsMap: Map<String, Any>?): Boolean {
             val key = className.getInternalName()
 
-            val oldMap = storage[key]
+            val oldMap = read(key)
             if (oldMap == constantsMap) {
                 return false
             }
             if (constantsMap != null) {
-                storage.put(key, constantsMap)
+                write(key, constantsMap)
             }
             else {
-                storage.remove(key)
+                delete(key)
             }
             return true
         }
@@ -415,9 +699,9 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         }
     }
 
-    private inner class InlineFunctionsMap : BasicMap<Map<String, Long>>() {
-        override fun createMap(): PersistentHashMap<String, Map<String, Long>> = PersistentHashMap(
-                File(baseDir, INLINE_FUNCTIONS),
+    private inner class InlineFunctionsMap : BasicMap<Map<String, Long>>(File(baseDir, INLINE_FUNCTIONS)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, Map<String, Long>> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 InlineFunctionsMapExternalizer
         )
@@ -461,15 +745,15 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
         private fun put(className: JvmClassName, inlineFunctionsMap: Map<String, Long>?): Boolean {
             val key = className.getInternalName()
 
-            val oldMap = storage[key]
+            val oldMap = read(key)
             if (oldMap == inlineFunctionsMap) {
                 return false
             }
             if (inlineFunctionsMap != null) {
-                storage.put(key, inlineFunctionsMap)
+                write(key, inlineFunctionsMap)
             }
             else {
-                storage.remove(key)
+                delete(key)
             }
             return true
         }
@@ -517,76 +801,104 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
 
     }
 
-    private inner class PackagePartMap : BasicMap<Boolean>() {
-        override fun createMap(): PersistentHashMap<String, Boolean> = PersistentHashMap(
-                File(baseDir, PACKAGE_PARTS),
+    private inner class PackagePartMap : BasicMap<Boolean>(File(baseDir, PACKAGE_PARTS)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, Boolean> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 BooleanDataDescriptor.INSTANCE
         )
 
         public fun addPackagePart(className: JvmClassName) {
-            storage.put(className.getInternalName(), true)
+            write(className.getInternalName(), true)
         }
 
         public fun remove(className: JvmClassName) {
-            storage.remove(className.getInternalName())
+            delete(className.getInternalName())
         }
 
         public fun isPackagePart(className: JvmClassName): Boolean {
-            return storage.containsMapping(className.getInternalName())
+            return contains(className.getInternalName())
         }
 
         override fun dumpValue(value: Boolean) = ""
     }
 
-    private inner class SourceToClassesMap : BasicMap<List<String>>() {
-        override fun createMap(): PersistentHashMap<String, List<String>> = PersistentHashMap(
-                File(baseDir, SOURCE_TO_CLASSES),
+    private inner class SourceToClassesMap : BasicMap<List<String>>(File(baseDir, SOURCE_TO_CLASSES)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, List<String>> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 StringListExternalizer
         )
 
         public fun clearOutputsForSource(sourceFile: File) {
-            storage.remove(sourceFile.getAbsolutePath())
+            delete(sourceFile.getAbsolutePath())
         }
 
         public fun addSourceToClass(sourceFile: File, className: JvmClassName) {
-            storage.appendData(sourceFile.getAbsolutePath(), { out -> IOUtil.writeUTF(out, className.getInternalName()) })
+            val key = sourceFile.getAbsolutePath()
+            if (inBatch) {
+                write(key, read(key).orEmpty() + className.getInternalName())
+            }
+            else {
+                appendToStorage(key, { out -> IOUtil.writeUTF(out, className.getInternalName()) })
+            }
         }
 
         public fun get(sourceFile: File): Collection<JvmClassName> {
-            return storage[sourceFile.getAbsolutePath()].orEmpty().map { JvmClassName.byInternalName(it) }
+            return read(sourceFile.getAbsolutePath()).orEmpty().map { JvmClassName.byInternalName(it) }
         }
 
         override fun dumpValue(value: List<String>) = value.toString()
     }
 
-    private inner class DirtyOutputClassesMap : BasicMap<Boolean>() {
-        override fun createMap(): PersistentHashMap<String, Boolean> = PersistentHashMap(
-                File(baseDir, DIRTY_OUTPUT_CLASSES),
+    private inner class DirtyOutputClassesMap : BasicMap<Boolean>(File(baseDir, DIRTY_OUTPUT_CLASSES)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, Boolean> = PersistentHashMap(
+                baseFile,
                 EnumeratorStringDescriptor(),
                 BooleanDataDescriptor.INSTANCE
         )
 
         public fun markDirty(className: String) {
-            storage.put(className, true)
+            write(className, true)
         }
 
         public fun notDirty(className: String) {
-            storage.remove(className)
+            delete(className)
         }
 
         public fun getDirtyOutputClasses(): Collection<String> {
-            return storage.getAllKeysWithExistingMapping()
+            return keys()
         }
 
         public fun clear() {
-            storage.getAllKeysWithExistingMapping().forEach { storage.remove(it) }
+            keys().forEach { delete(it) }
         }
 
         override fun dumpValue(value: Boolean) = ""
     }
 
+    private inner class SourceToReferencedNamesMap : BasicMap<List<String>>(File(baseDir, SOURCE_TO_REFERENCED_NAMES)) {
+        override fun createMap(baseFile: File): PersistentHashMap<String, List<String>> = PersistentHashMap(
+                baseFile,
+                EnumeratorStringDescriptor(),
+                StringListExternalizer
+        )
+
+        public fun put(sourceFile: File, names: List<String>) {
+            write(sourceFile.getAbsolutePath(), names)
+        }
+
+        public fun get(sourceFile: File): List<String>? {
+            return read(sourceFile.getAbsolutePath())
+        }
+
+        public fun remove(sourceFile: File) {
+            delete(sourceFile.getAbsolutePath())
+        }
+
+        override fun dumpValue(value: List<String>) = value.toString()
+    }
+
     enum class RecompilationDecision {
         DO_NOTHING
         RECOMPILE_OTHER_KOTLIN_IN_CHUNK
@@ -599,6 +911,79 @@ public class IncrementalCacheImpl(targetDataRoot: File) : StorageOwner, Incremen
     }
 }
 
+public class IncrementalCacheMapMetrics(public val name: String) {
+    public var reads: Int = 0
+        private set
+    public var writes: Int = 0
+        private set
+    public var removes: Int = 0
+        private set
+    // Overwritten and removed values, which keep occupying space in the storage until it's compacted
+    public var garbageRecords: Int = 0
+        private set
+    public var nanos: Long = 0
+        private set
+    public var compactions: Int = 0
+        private set
+    public var fileSize: Long = 0
+        private set
+
+    fun registerRead(time: Long) {
+        reads++
+        nanos += time
+    }
+
+    fun registerWrite(time: Long) {
+        writes++
+        nanos += time
+    }
+
+    fun registerRemove(time: Long) {
+        removes++
+        nanos += time
+    }
+
+    fun registerGarbageRecord() {
+        garbageRecords++
+    }
+
+    fun registerFileSize(size: Long) {
+        fileSize = size
+    }
+
+    fun registerClean() {
+        garbageRecords = 0
+    }
+
+    fun registerCompaction(time: Long) {
+        compactions++
+        garbageRecords = 0
+        nanos += time
+    }
+
+    override fun toString() =
+            "$name: $reads reads, $writes writes, $removes removes, $compactions compactions, " +
+            "${nanos / 1000000} ms, $fileSize bytes on disk"
+}
+
+private val REMOVED = Any()
+
+private val IDENTIFIER_PATTERN = "`[^`\\r\\n]+`|[\\p{L}_][\\p{L}\\p{N}_]*".toRegex()
+
+// Over-approximates the set of names referenced in a source file: comments and string literals are not skipped
+private fun collectReferencedNames(text: String): List<String> {
+    val result = HashSet<String>()
+    val matcher = IDENTIFIER_PATTERN.matcher(text)
+    while (matcher.find()) {
+        result.add(matcher.group().trim("`"))
+    }
+    return result.sort()
+}
+
+private val MIN_GARBAGE_RECORDS_TO_COMPACT = 1000
+
+private val COMPACTED_MAP_PREFIX = "compacted-"
+
 private val storageProvider = object : StorageProvider<IncrementalCacheImpl>() {
     override fun createStorage(targetDataDir: File): IncrementalCacheImpl {
         return IncrementalCacheImpl(targetDataDir)
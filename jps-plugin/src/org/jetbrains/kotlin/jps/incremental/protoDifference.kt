@@ -0,0 +1,272 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.jps.incremental
+
+import org.jetbrains.kotlin.resolve.jvm.JvmClassName
+import org.jetbrains.kotlin.serialization.ClassData
+import org.jetbrains.kotlin.serialization.Flags
+import org.jetbrains.kotlin.serialization.ProtoBuf
+import org.jetbrains.kotlin.serialization.deserialization.NameResolver
+import org.jetbrains.kotlin.serialization.jvm.JvmProtoBuf
+import org.jetbrains.kotlin.serialization.jvm.JvmProtoBufUtil
+import java.util.HashMap
+import java.util.HashSet
+
+// Names which may be used in the source without being mentioned explicitly, e.g. "a + b" calls "plus".
+// Names referenced by a source file are collected by a textual scan, which can't see such uses
+private val CONVENTION_NAME_PATTERN = (
+        "plus|minus|times|div|mod|rangeTo|inc|dec|not|get|set|invoke|contains|iterator|next|hasNext|compareTo|equals|" +
+        "propertyDelegated|" +
+        "plusAssign|minusAssign|timesAssign|divAssign|modAssign|component\\d+"
+).toRegex()
+
+/**
+ * Compares two versions of the serialized descriptors of a package facade or a class.
+ *
+ * @return simple names of declarations whose signatures visible to other source files have changed:
+ * a source file which mentions none of them doesn't need to be recompiled because of this change.
+ * Null if the difference can't be expressed in terms of names (e.g. the supertypes of a class have changed,
+ * or a change of a member affects subclasses which don't mention it)
+ */
+fun difference(className: JvmClassName, isPackageFacade: Boolean, oldData: ByteArray?, newData: ByteArray): Set<String>? {
+    try {
+        val result = if (isPackageFacade) packageDifference(oldData, newData) else classDifference(className, oldData, newData)
+        return if (result == null || result.any { CONVENTION_NAME_PATTERN.matcher(it).matches() }) null else result
+    }
+    catch (e: RuntimeException) {
+        // Data of an incompatible format: don't try to be smart
+        return null
+    }
+}
+
+private fun packageDifference(oldData: ByteArray?, newData: ByteArray): Set<String>? {
+    val newPackage = JvmProtoBufUtil.readPackageDataFrom(newData)
+    val newMembers = ProtoRenderer(newPackage.getNameResolver()).members(newPackage.getPackageProto().getMemberList())
+    if (oldData == null) return newMembers.keySet()
+
+    val oldPackage = JvmProtoBufUtil.readPackageDataFrom(oldData)
+    val oldMembers = ProtoRenderer(oldPackage.getNameResolver()).members(oldPackage.getPackageProto().getMemberList())
+
+    // Private top-level declarations are visible in the whole package, so they are compared as well
+    return changedKeys(oldMembers, newMembers)
+}
+
+private fun classDifference(className: JvmClassName, oldData: ByteArray?, newData: ByteArray): Set<String>? {
+    val simpleName = className.getInternalName().substringAfterLast('/').substringAfterLast('$')
+
+    val newClass = ClassData.read(newData, JvmProtoBufUtil.getExtensionRegistry())
+    if (oldData == null) return setOf(simpleName)
+
+    val oldClass = ClassData.read(oldData, JvmProtoBufUtil.getExtensionRegistry())
+
+    val oldRenderer = ProtoRenderer(oldClass.getNameResolver())
+    val newRenderer = ProtoRenderer(newClass.getNameResolver())
+    val oldProto = oldClass.getClassProto()
+    val newProto = newClass.getClassProto()
+
+    if (oldRenderer.classHeader(oldProto) != newRenderer.classHeader(newProto)) return null
+
+    // Subclasses depend on the modality and visibility of inherited members without mentioning their names,
+    // e.g. a class implementing a trait gets a delegate to every trait member with a body
+    val isInheritable = Flags.MODALITY.get(newProto.getFlags()) != ProtoBuf.Modality.FINAL
+    if (inheritanceChanged(oldRenderer.inheritanceModifiers(oldProto.getMemberList()),
+                           newRenderer.inheritanceModifiers(newProto.getMemberList()),
+                           isInheritable)) return null
+
+    val result = HashSet<String>()
+
+    if (oldRenderer.constructors(oldProto) != newRenderer.constructors(newProto)) {
+        result.add(simpleName)
+    }
+
+    result.addAll(symmetricDifference(oldRenderer.names(oldProto.getNestedClassNameList()),
+                                      newRenderer.names(newProto.getNestedClassNameList())))
+    result.addAll(symmetricDifference(oldRenderer.names(oldProto.getEnumEntryList()),
+                                      newRenderer.names(newProto.getEnumEntryList())))
+
+    val oldMembers = oldRenderer.members(oldProto.getMemberList().filter { !it.isPrivate() })
+    val newMembers = newRenderer.members(newProto.getMemberList().filter { !it.isPrivate() })
+    result.addAll(changedKeys(oldMembers, newMembers))
+
+    return result
+}
+
+private fun inheritanceChanged(
+        old: Map<String, Pair<ProtoBuf.Modality, ProtoBuf.Visibility>>,
+        new: Map<String, Pair<ProtoBuf.Modality, ProtoBuf.Visibility>>,
+        isInheritable: Boolean
+): Boolean {
+    return old.keySet().union(new.keySet()).any {
+        val oldModifiers = old[it]
+        val newModifiers = new[it]
+        if (oldModifiers != null && newModifiers != null) {
+            oldModifiers != newModifiers
+        }
+        else {
+            // An added or removed member of a trait or an open class is inherited by subclasses which don't mention it
+            val (modality, visibility) = (oldModifiers ?: newModifiers)!!
+            modality == ProtoBuf.Modality.ABSTRACT || (isInheritable && !visibility.isPrivate())
+        }
+    }
+}
+
+private fun ProtoBuf.Callable.isPrivate(): Boolean = Flags.VISIBILITY.get(getFlags()).isPrivate()
+
+private fun ProtoBuf.Visibility.isPrivate(): Boolean = this == ProtoBuf.Visibility.PRIVATE || this == ProtoBuf.Visibility.PRIVATE_TO_THIS
+
+private fun <K, V> changedKeys(old: Map<K, V>, new: Map<K, V>): Set<K> {
+    return old.keySet().union(new.keySet()).filterTo(HashSet<K>()) { old[it] != new[it] }
+}
+
+private fun <T> symmetricDifference(old: Set<T>, new: Set<T>): Set<T> = old.subtract(new).union(new.subtract(old))
+
+/**
+ * Renders protos to strings which don't depend on the order of names in the name tables,
+ * so that the protos of the same declaration from different compilations can be compared
+ */
+private class ProtoRenderer(private val nameResolver: NameResolver) {
+    fun names(ids: List<Int>): Set<String> = ids.mapTo(HashSet<String>()) { nameResolver.getString(it) }
+
+    fun classHeader(proto: ProtoBuf.Class): String {
+        return StringBuilder {
+            append(proto.getFlags()).append(" ")
+            append(nameResolver.getClassId(proto.getFqName()))
+            proto.getTypeParameterList().map { typeParameter(it) }.joinTo(this, prefix = "<", postfix = ">")
+            proto.getSupertypeList().map { type(it) }.joinTo(this, prefix = " : ")
+            if (proto.hasCompanionObjectName()) {
+                append(" companion ").append(nameResolver.getString(proto.getCompanionObjectName()))
+            }
+        }.toString()
+    }
+
+    fun constructors(proto: ProtoBuf.Class): List<String> {
+        val result = proto.getSecondaryConstructorList().map { callable(it) }.sort()
+        if (!proto.hasPrimaryConstructor()) return result
+
+        val primary = proto.getPrimaryConstructor()
+        return result + ("primary " + if (primary.hasData()) callable(primary.getData()) else "default")
+    }
+
+    fun members(protos: Collection<ProtoBuf.Callable>): Map<String, List<String>> {
+        val result = HashMap<String, MutableList<String>>()
+        for (proto in protos) {
+            result.getOrPut(nameResolver.getString(proto.getName())) { arrayListOf() }.add(callable(proto))
+        }
+        // Overloads are compared regardless of their order in the proto
+        return result.mapValues { it.getValue().sort() }
+    }
+
+    /**
+     * @return modality and visibility of members by their Kotlin signatures
+     */
+    fun inheritanceModifiers(protos: Collection<ProtoBuf.Callable>): Map<String, Pair<ProtoBuf.Modality, ProtoBuf.Visibility>> {
+        val result = HashMap<String, Pair<ProtoBuf.Modality, ProtoBuf.Visibility>>()
+        for (proto in protos) {
+            result[signature(proto)] = Pair(Flags.MODALITY.get(proto.getFlags()), Flags.VISIBILITY.get(proto.getFlags()))
+        }
+        return result
+    }
+
+    private fun callable(proto: ProtoBuf.Callable): String {
+        return StringBuilder {
+            append(proto.getFlags())
+            if (proto.hasGetterFlags()) append(" get ").append(proto.getGetterFlags())
+            if (proto.hasSetterFlags()) append(" set ").append(proto.getSetterFlags())
+            append(signature(proto))
+
+            if (proto.hasExtension(JvmProtoBuf.methodSignature)) {
+                append(" method ").append(methodSignature(proto.getExtension(JvmProtoBuf.methodSignature)))
+            }
+            if (proto.hasExtension(JvmProtoBuf.propertySignature)) {
+                append(" property ").append(propertySignature(proto.getExtension(JvmProtoBuf.propertySignature)))
+            }
+            if (proto.hasExtension(JvmProtoBuf.implClassName)) {
+                append(" in ").append(nameResolver.getString(proto.getExtension(JvmProtoBuf.implClassName)))
+            }
+        }.toString()
+    }
+
+    // JVM signatures are not included, because they may depend on the visibility
+    private fun signature(proto: ProtoBuf.Callable): String {
+        return StringBuilder {
+            proto.getTypeParameterList().map { typeParameter(it) }.joinTo(this, prefix = " <", postfix = ">")
+            if (proto.hasReceiverType()) append(" ").append(type(proto.getReceiverType())).append(".")
+            append(" ").append(nameResolver.getString(proto.getName()))
+            proto.getValueParameterList().map { valueParameter(it) }.joinTo(this, prefix = "(", postfix = ")")
+            append(": ").append(type(proto.getReturnType()))
+        }.toString()
+    }
+
+    private fun valueParameter(proto: ProtoBuf.Callable.ValueParameter): String {
+        val vararg = if (proto.hasVarargElementType()) "vararg " + type(proto.getVarargElementType()) + " " else ""
+        return "${proto.getFlags()} $vararg${nameResolver.getString(proto.getName())}: ${type(proto.getType())}"
+    }
+
+    private fun typeParameter(proto: ProtoBuf.TypeParameter): String {
+        return StringBuilder {
+            append("#").append(proto.getId()).append(" ")
+            if (proto.getReified()) append("reified ")
+            append(proto.getVariance()).append(" ")
+            append(nameResolver.getString(proto.getName()))
+            proto.getUpperBoundList().map { type(it) }.joinTo(this, prefix = " : ")
+        }.toString()
+    }
+
+    private fun type(proto: ProtoBuf.Type): String {
+        return StringBuilder {
+            val constructor = proto.getConstructor()
+            when (constructor.getKind()) {
+                ProtoBuf.Type.Constructor.Kind.CLASS -> append(nameResolver.getClassId(constructor.getId()))
+                else -> append("#").append(constructor.getId())
+            }
+            if (proto.getArgumentCount() > 0) {
+                proto.getArgumentList().map {
+                    if (it.hasType()) "${it.getProjection()} ${type(it.getType())}" else "*"
+                }.joinTo(this, prefix = "<", postfix = ">")
+            }
+            if (proto.getNullable()) append("?")
+            if (proto.hasFlexibleTypeCapabilitiesId()) {
+                append(" ").append(nameResolver.getString(proto.getFlexibleTypeCapabilitiesId()))
+            }
+            if (proto.hasFlexibleUpperBound()) append("..").append(type(proto.getFlexibleUpperBound()))
+        }.toString()
+    }
+
+    private fun methodSignature(proto: JvmProtoBuf.JvmMethodSignature): String {
+        return nameResolver.getString(proto.getName()) +
+               proto.getParameterTypeList().map { jvmType(it) }.joinToString(prefix = "(", postfix = ")") +
+               jvmType(proto.getReturnType())
+    }
+
+    private fun propertySignature(proto: JvmProtoBuf.JvmPropertySignature): String {
+        return StringBuilder {
+            if (proto.hasField()) {
+                val field = proto.getField()
+                append("field ").append(nameResolver.getString(field.getName())).append(":").append(jvmType(field.getType()))
+                if (field.getIsStaticInOuter()) append(" static in outer")
+            }
+            if (proto.hasSyntheticMethod()) append(" synthetic ").append(methodSignature(proto.getSyntheticMethod()))
+            if (proto.hasGetter()) append(" getter ").append(methodSignature(proto.getGetter()))
+            if (proto.hasSetter()) append(" setter ").append(methodSignature(proto.getSetter()))
+        }.toString()
+    }
+
+    private fun jvmType(proto: JvmProtoBuf.JvmType): String {
+        val element = if (proto.hasClassFqName()) nameResolver.getFqName(proto.getClassFqName()).asString() else proto.getPrimitiveType().name()
+        return element + "[]".repeat(proto.getArrayDimension())
+    }
+}
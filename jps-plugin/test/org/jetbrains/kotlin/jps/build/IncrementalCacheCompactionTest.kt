@@ -0,0 +1,79 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.kotlin.jps.build
+
+import com.intellij.openapi.util.io.FileUtil
+import org.jetbrains.jps.builders.impl.BuildDataPathsImpl
+import org.jetbrains.jps.builders.java.JavaModuleBuildTargetType
+import org.jetbrains.kotlin.jps.incremental.CacheFormatVersion
+import org.jetbrains.kotlin.jps.incremental.IncrementalCacheImpl
+import java.io.File
+import kotlin.test.assertEquals
+import kotlin.test.assertFalse
+import kotlin.test.assertNotEquals
+
+public class IncrementalCacheCompactionTest : AbstractIncrementalJpsTest() {
+    fun testClassSignatureChanged() {
+        doTest("jps-plugin/testData/incremental/pureKotlin/classSignatureChanged/")
+    }
+
+    fun testPackageFileRemoved() {
+        doTest("jps-plugin/testData/incremental/pureKotlin/packageFileRemoved/")
+    }
+
+    // Checks a copy of the cache, so that the following make works with the original one
+    override fun performAdditionalModifications() {
+        val storageForTargetType = BuildDataPathsImpl(myDataStorageRoot).getTargetTypeDataRoot(JavaModuleBuildTargetType.PRODUCTION)
+        val targetDataRoot = FileUtil.createTempDirectory("kotlin-cache", null)
+        FileUtil.copyDir(File(storageForTargetType, "module"), targetDataRoot)
+
+        val sources = workDir.walkTopDown().filter { it.getName().endsWith(".kt") }.toList()
+
+        var compactedDump = ""
+        val cache = IncrementalCacheImpl(targetDataRoot)
+        try {
+            val initialDump = cache.dump()
+
+            cache.startBatch()
+            cache.markOutputClassesDirty(sources)
+            assertEquals(initialDump, cache.dump(), "Batched updates shouldn't reach the storage before flushBatch()")
+
+            cache.flushBatch()
+            val dumpAfterFlush = cache.dump()
+            assertNotEquals(initialDump, dumpAfterFlush, "Batched updates should reach the storage on flushBatch()")
+
+            cache.compact()
+            compactedDump = cache.dump()
+            assertEquals(dumpAfterFlush, compactedDump, "Compaction shouldn't change the contents of the cache")
+            assertFalse(CacheFormatVersion(targetDataRoot).isIncompatible(), "Cache should be compatible after compaction")
+        }
+        finally {
+            cache.close()
+        }
+
+        val reopenedCache = IncrementalCacheImpl(targetDataRoot)
+        try {
+            assertEquals(compactedDump, reopenedCache.dump(), "Compacted cache should be readable after reopening")
+        }
+        finally {
+            reopenedCache.close()
+        }
+
+        FileUtil.delete(targetDataRoot)
+    }
+}
@@ -291,6 +291,18 @@ public class IncrementalJpsTestGenerated extends AbstractIncrementalJpsTest {
             doTest(fileName);
         }
 
+        @TestMetadata("memberModalityChanged")
+        public void testMemberModalityChanged() throws Exception {
+            String fileName = JetTestUtils.navigationMetadata("jps-plugin/testData/incremental/pureKotlin/memberModalityChanged/");
+            doTest(fileName);
+        }
+
+        @TestMetadata("memberVisibilityChanged")
+        public void testMemberVisibilityChanged() throws Exception {
+            String fileName = JetTestUtils.navigationMetadata("jps-plugin/testData/incremental/pureKotlin/memberVisibilityChanged/");
+            doTest(fileName);
+        }
+
         @TestMetadata("moveClass")
         public void testMoveClass() throws Exception {
             String fileName = JetTestUtils.navigationMetadata("jps-plugin/testData/incremental/pureKotlin/moveClass/");
@@ -435,6 +447,18 @@ public class IncrementalJpsTestGenerated extends AbstractIncrementalJpsTest {
             doTest(fileName);
         }
 
+        @TestMetadata("traitMemberGainedBody")
+        public void testTraitMemberGainedBody() throws Exception {
+            String fileName = JetTestUtils.navigationMetadata("jps-plugin/testData/incremental/pureKotlin/traitMemberGainedBody/");
+            doTest(fileName);
+        }
+
+        @TestMetadata("traitMemberWithBodyAdded")
+        public void testTraitMemberWithBodyAdded() throws Exception {
+            String fileName = JetTestUtils.navigationMetadata("jps-plugin/testData/incremental/pureKotlin/traitMemberWithBodyAdded/");
+            doTest(fileName);
+        }
+
     }
 
     @TestMetadata("jps-plugin/testData/incremental/withJava")
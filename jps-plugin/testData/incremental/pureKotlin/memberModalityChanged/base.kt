@@ -0,0 +1,5 @@
+package test
+
+abstract class Base {
+    open fun foo(): Int = 1
+}
@@ -0,0 +1,3 @@
+package test
+
+abstract class Sub : Base()
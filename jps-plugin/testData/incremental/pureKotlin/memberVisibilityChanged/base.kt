@@ -0,0 +1,5 @@
+package test
+
+open class Base {
+    protected open fun foo(): Int = 1
+}
@@ -0,0 +1,4 @@
+package test
+
+// Gets a delegate to Base$$TImpl.foo without mentioning it
+abstract class AbstractImpl : Base
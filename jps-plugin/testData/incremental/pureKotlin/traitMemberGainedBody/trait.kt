@@ -0,0 +1,5 @@
+package test
+
+trait Base {
+    fun foo(): Int
+}
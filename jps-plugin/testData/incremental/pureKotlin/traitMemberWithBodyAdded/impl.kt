@@ -0,0 +1,4 @@
+package test
+
+// Gets a delegate to Base$$TImpl.bar without mentioning it
+class Impl : Base
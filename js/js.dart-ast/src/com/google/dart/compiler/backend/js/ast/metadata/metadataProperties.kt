@@ -32,5 +32,7 @@ public var JsInvocation.psiElement: PsiElement? by MetadataProperty(default = nu
 
 public var JsFunction.isLocal: Boolean by MetadataProperty(default = false)
 
+public var JsFunction.descriptor: CallableDescriptor? by MetadataProperty(default = null)
+
 public var JsParameter.hasDefaultValue: Boolean by MetadataProperty(default = false)
 
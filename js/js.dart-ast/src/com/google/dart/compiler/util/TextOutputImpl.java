@@ -4,15 +4,21 @@
 
 package com.google.dart.compiler.util;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Arrays;
 
 public class TextOutputImpl implements TextOutput {
+    // Buffered text is written out at the first line end after the buffer grows beyond this size
+    private static final int FLUSH_THRESHOLD = 8192;
+
     private final boolean compact;
     private int identLevel = 0;
     private final static int indentGranularity = 2;
     private char[][] indents = new char[][] {new char[0]};
     private boolean justNewlined;
     private final StringBuilder out;
+    private final Writer writer;
     private int position = 0;
     private int line = 0;
     private int column = 0;
@@ -28,15 +34,40 @@ public class TextOutputImpl implements TextOutput {
     }
 
     public TextOutputImpl(boolean compact) {
+        this(compact, null);
+    }
+
+    /**
+     * Creates an output, that writes text to the given writer as it is printed instead of keeping it in memory.
+     * {@link #flush()} should be called after the last text is printed.
+     */
+    public TextOutputImpl(Writer writer) {
+        this(false, writer);
+    }
+
+    private TextOutputImpl(boolean compact, Writer writer) {
         this.compact = compact;
+        this.writer = writer;
         out = new StringBuilder();
     }
 
     @Override
     public String toString() {
+        assert writer == null : "Text is written to the writer";
         return out.toString();
     }
 
+    /**
+     * Writes text, that is buffered yet, to the writer and flushes it.
+     */
+    public void flush() throws IOException {
+        if (writer == null) return;
+
+        writer.append(out);
+        out.setLength(0);
+        writer.flush();
+    }
+
     @Override
     public int getPosition() {
         return position;
@@ -81,6 +112,15 @@ public class TextOutputImpl implements TextOutput {
         if (outListener != null) {
             outListener.newLined();
         }
+        if (writer != null && out.length() > FLUSH_THRESHOLD) {
+            try {
+                writer.append(out);
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            out.setLength(0);
+        }
     }
 
     @Override
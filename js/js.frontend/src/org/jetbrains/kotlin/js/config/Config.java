@@ -41,6 +41,8 @@ import java.util.List;
 public abstract class Config {
     private final boolean inlineEnabled;
 
+    private final boolean removeUnusedDeclarations;
+
     @NotNull
     private final Project project;
     @NotNull
@@ -67,12 +69,24 @@ public abstract class Config {
             @NotNull EcmaVersion ecmaVersion,
             boolean sourcemap,
             boolean inlineEnabled
+    ) {
+        this(project, moduleId, ecmaVersion, sourcemap, inlineEnabled, false);
+    }
+
+    public Config(
+            @NotNull Project project,
+            @NotNull String moduleId,
+            @NotNull EcmaVersion ecmaVersion,
+            boolean sourcemap,
+            boolean inlineEnabled,
+            boolean removeUnusedDeclarations
     ) {
         this.project = project;
         this.target = ecmaVersion;
         this.moduleId = moduleId;
         this.sourcemap = sourcemap;
         this.inlineEnabled = inlineEnabled;
+        this.removeUnusedDeclarations = removeUnusedDeclarations;
     }
 
     public boolean isSourcemap() {
@@ -83,6 +97,10 @@ public abstract class Config {
         return inlineEnabled;
     }
 
+    public boolean isRemoveUnusedDeclarations() {
+        return removeUnusedDeclarations;
+    }
+
     @NotNull
     public Project getProject() {
         return project;
@@ -63,7 +63,19 @@ public class LibrarySourcesConfig extends Config {
             boolean sourcemap,
             boolean inlineEnabled
     ) {
-        super(project, moduleId, ecmaVersion, sourcemap, inlineEnabled);
+        this(project, moduleId, files, ecmaVersion, sourcemap, inlineEnabled, false);
+    }
+
+    public LibrarySourcesConfig(
+            @NotNull Project project,
+            @NotNull String moduleId,
+            @NotNull List<String> files,
+            @NotNull EcmaVersion ecmaVersion,
+            boolean sourcemap,
+            boolean inlineEnabled,
+            boolean removeUnusedDeclarations
+    ) {
+        super(project, moduleId, ecmaVersion, sourcemap, inlineEnabled, removeUnusedDeclarations);
         this.files = files;
     }
 
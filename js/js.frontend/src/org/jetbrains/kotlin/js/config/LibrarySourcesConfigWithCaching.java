@@ -42,7 +42,19 @@ public class LibrarySourcesConfigWithCaching extends LibrarySourcesConfig {
             boolean inlineEnabled,
             boolean isUnitTestConfig
     ) {
-        super(project, moduleId, JS_STDLIB, ecmaVersion, sourcemap, inlineEnabled);
+        this(project, moduleId, ecmaVersion, sourcemap, inlineEnabled, isUnitTestConfig, false);
+    }
+
+    public LibrarySourcesConfigWithCaching(
+            @NotNull Project project,
+            @NotNull String moduleId,
+            @NotNull EcmaVersion ecmaVersion,
+            boolean sourcemap,
+            boolean inlineEnabled,
+            boolean isUnitTestConfig,
+            boolean removeUnusedDeclarations
+    ) {
+        super(project, moduleId, JS_STDLIB, ecmaVersion, sourcemap, inlineEnabled, removeUnusedDeclarations);
         this.isUnitTestConfig = isUnitTestConfig;
     }
 
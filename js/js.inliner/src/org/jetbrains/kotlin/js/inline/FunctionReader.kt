@@ -20,7 +20,6 @@ import com.google.dart.compiler.backend.js.ast.*
 import com.google.dart.compiler.backend.js.ast.metadata.inlineStrategy
 import com.google.dart.compiler.common.SourceInfoImpl
 import com.google.gwt.dev.js.JsAstMapper
-import com.google.gwt.dev.js.ThrowExceptionOnErrorReporter
 import com.google.gwt.dev.js.parserExceptions.AbortParsingException
 import com.google.gwt.dev.js.parserExceptions.JsParserException
 import com.google.gwt.dev.js.rhino.ErrorReporter
@@ -46,48 +45,27 @@ import java.io.*
 import java.net.URL
 import org.jetbrains.kotlin.js.parser.*
 
-// TODO: add hash checksum to defineModule?
-/**
- * Matches string like Kotlin.defineModule("stdlib", _)
- * Kotlin, _ can be renamed by minifier, quotes type can be changed too (" to ')
- */
-private val DEFINE_MODULE_PATTERN = "(\\w+)\\.defineModule\\(\\s*(['\"])(\\w+)\\2\\s*,\\s*(\\w+)\\s*\\)".toRegex()
-
 public class FunctionReader(private val context: TranslationContext) {
     /**
-     * Maps module name to .js file content, that contains this module definition.
-     * One file can contain more than one module definition.
-     */
-    private val moduleJsDefinition = hashMapOf<String, String>()
-
-    /**
-     * Maps module name to variable, that is used to call functions inside module.
-     * The default variable is _, but it can be renamed by minifier.
+     * Maps module name to .js file, that contains this module definition.
      */
-    private val moduleRootVariable = hashMapOf<String, String>()
+    private val moduleJsDefinition = hashMapOf<String, LibraryJsFile>()
 
     /**
-     * Maps moduleName to kotlin object variable.
-     * The default variable is Kotlin, but it can be renamed by minifier.
+     * Maps module name to its definition, which tells how module and kotlin object variables are named in its file.
      */
-    private val moduleKotlinVariable = hashMapOf<String, String>();
+    private val moduleDefinitions = hashMapOf<String, ModuleDefinition>();
 
     {
         val config = context.getConfig() as LibrarySourcesConfig
         val libs = config.getLibraries().map { File(it) }
-        val files = LibraryUtils.readJsFiles(libs.map { it.getPath() }.toList())
+        val files = LibraryJsFileCache.get(libs.map { it.getPath() }.toList())
 
         for (file in files) {
-            val matcher = DEFINE_MODULE_PATTERN.matcher(file)
-
-            while (matcher.find()) {
-                val moduleName = matcher.group(3)
-                val moduleVariable = matcher.group(4)
-                val kotlinVariable = matcher.group(1)
-                assert(moduleName !in moduleJsDefinition) { "Module is defined in more, than one file" }
-                moduleJsDefinition[moduleName] = file
-                moduleRootVariable[moduleName] = moduleVariable
-                moduleKotlinVariable[moduleName] = kotlinVariable
+            for (module in file.modules) {
+                assert(module.name !in moduleJsDefinition) { "Module is defined in more, than one file" }
+                moduleJsDefinition[module.name] = file
+                moduleDefinitions[module.name] = module
             }
         }
     }
@@ -115,32 +93,22 @@ public class FunctionReader(private val context: TranslationContext) {
         return function
     }
 
-    private fun readFunctionFromSource(descriptor: CallableDescriptor, source: String): JsFunction? {
-        val tag = Namer.getFunctionTag(descriptor)
-        val index = source.indexOf(tag)
-        if (index < 0) return null
-
-        // + 1 for closing quote
-        var offset = index + tag.length() + 1
-        while (offset < source.length() && source.charAt(offset).isWhitespaceOrComma) {
-            offset++
-        }
+    private fun readFunctionFromSource(descriptor: CallableDescriptor, file: LibraryJsFile): JsFunction? {
+        val function = file.getFunction(Namer.getFunctionTag(descriptor))
+        if (function == null) return null
 
-        val function = parseFunction(source, offset, ThrowExceptionOnErrorReporter, JsRootScope(JsProgram("<inline>")))
         val moduleName = getExternalModuleName(descriptor)!!
         val moduleNameLiteral = context.program().getStringLiteral(moduleName)
         val moduleReference =  context.namer().getModuleReference(moduleNameLiteral)
 
-        val replacements = hashMapOf(moduleRootVariable[moduleName] to moduleReference,
-                                     moduleKotlinVariable[moduleName] to Namer.KOTLIN_OBJECT_REF)
+        val module = moduleDefinitions[moduleName]!!
+        val replacements = hashMapOf(module.rootVariable to moduleReference,
+                                     module.kotlinVariable to Namer.KOTLIN_OBJECT_REF)
         replaceExternalNames(function, replacements)
         return function
     }
 }
 
-private val Char.isWhitespaceOrComma: Boolean
-    get() = this == ',' || this.isWhitespace()
-
 private fun JsFunction.markInlineArguments(descriptor: CallableDescriptor) {
     val params = descriptor.getValueParameters()
     val paramsJs = getParameters()
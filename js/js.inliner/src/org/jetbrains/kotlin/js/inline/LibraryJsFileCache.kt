@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.js.inline
+
+import com.google.dart.compiler.backend.js.ast.JsFunction
+import com.google.dart.compiler.backend.js.ast.JsProgram
+import com.google.dart.compiler.backend.js.ast.JsRootScope
+import com.google.gwt.dev.js.ThrowExceptionOnErrorReporter
+import com.google.gwt.dev.js.rhino.Node
+import com.intellij.util.containers.ContainerUtil
+import org.jetbrains.kotlin.js.parser.mapFunction
+import org.jetbrains.kotlin.js.parser.parseFunctionNode
+import org.jetbrains.kotlin.utils.LibraryUtils
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Matches string like Kotlin.defineModule("stdlib", _)
+ * Kotlin, _ can be renamed by minifier, quotes type can be changed too (" to ')
+ */
+private val DEFINE_MODULE_PATTERN = "(\\w+)\\.defineModule\\(\\s*(['\"])(\\w+)\\2\\s*,\\s*(\\w+)\\s*\\)".toRegex()
+
+/**
+ * Library .js files already scanned by [FunctionReader], shared by all translations in this process.
+ *
+ * Jars and .js files are identified by their path, length and modification time, so neither an unchanged library is read again,
+ * nor an updated one is served from the cache. Files in library directories are identified the same way one by one.
+ * Scanned files are softly referenced, and are collected when memory is low.
+ */
+object LibraryJsFileCache {
+    private val files = ContainerUtil.createConcurrentSoftValueMap<LibraryFileKey, List<LibraryJsFile>>()
+
+    public fun get(libraries: List<String>): List<LibraryJsFile> {
+        val result = arrayListOf<LibraryJsFile>()
+        for (library in libraries.map { File(it) }.filter { it.exists() }) {
+            if (library.isDirectory()) {
+                LibraryUtils.traverseDirectory(library) { (file, path) ->
+                    result.addAll(get(file))
+                }
+            }
+            else {
+                result.addAll(get(library))
+            }
+        }
+        return result
+    }
+
+    private fun get(file: File): List<LibraryJsFile> {
+        val key = LibraryFileKey(file.getAbsolutePath(), file.length(), file.lastModified())
+        val cached = files[key]
+        if (cached != null) return cached
+
+        val scanned = LibraryUtils.readJsFiles(listOf(file.getPath())).map { LibraryJsFile(it) }
+        files[key] = scanned
+        return scanned
+    }
+}
+
+private data class LibraryFileKey(val path: String, val length: Long, val lastModified: Long)
+
+class ModuleDefinition(
+        val name: String,
+        /**
+         * The variable, that is used to call functions inside module.
+         * The default variable is _, but it can be renamed by minifier.
+         */
+        val rootVariable: String,
+        /**
+         * The kotlin object variable.
+         * The default variable is Kotlin, but it can be renamed by minifier.
+         */
+        val kotlinVariable: String
+)
+
+class LibraryJsFile(private val content: String) {
+    /**
+     * One file can contain more than one module definition.
+     */
+    val modules: List<ModuleDefinition> = findModuleDefinitions(content)
+
+    /**
+     * Maps function tag to the parsed function. Parsed functions are never handed out, only mapped to a new AST on each request
+     */
+    private val functions = ConcurrentHashMap<String, ParsedFunction>()
+
+    /**
+     * Returns the function with the given tag. The function is parsed once, but every call returns a new AST with its own names
+     * and scopes, so that it can be freely modified by a caller
+     */
+    public fun getFunction(tag: String): JsFunction? {
+        val node = functions.getOrPut(tag) { ParsedFunction(parse(tag)) }.node
+        if (node == null) return null
+
+        return mapFunction(node, JsRootScope(JsProgram("<inline>")))
+    }
+
+    private fun parse(tag: String): Node? {
+        val offset = findFunctionOffset(tag)
+        if (offset < 0) return null
+
+        return parseFunctionNode(content, offset, ThrowExceptionOnErrorReporter)
+    }
+
+    private fun findFunctionOffset(tag: String): Int {
+        val index = content.indexOf(tag)
+        if (index < 0) return -1
+
+        // + 1 for closing quote
+        var offset = index + tag.length() + 1
+        while (offset < content.length() && content.charAt(offset).isWhitespaceOrComma) {
+            offset++
+        }
+        return offset
+    }
+}
+
+/**
+ * Null [node] means that there is no function with the tag in the file
+ */
+private class ParsedFunction(val node: Node?)
+
+private fun findModuleDefinitions(content: String): List<ModuleDefinition> {
+    val modules = arrayListOf<ModuleDefinition>()
+    val matcher = DEFINE_MODULE_PATTERN.matcher(content)
+    while (matcher.find()) {
+        modules.add(ModuleDefinition(name = matcher.group(3), rootVariable = matcher.group(4), kotlinVariable = matcher.group(1)))
+    }
+    return modules
+}
+
+private val Char.isWhitespaceOrComma: Boolean
+    get() = this == ',' || this.isWhitespace()
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.js.inline.clean
+
+import com.google.dart.compiler.backend.js.JsToStringGenerationVisitor
+import com.google.dart.compiler.backend.js.ast.*
+import com.google.dart.compiler.backend.js.ast.metadata.descriptor
+import com.google.dart.compiler.util.TextOutputImpl
+import org.jetbrains.kotlin.js.inline.util.toIdentitySet
+import org.jetbrains.kotlin.resolve.descriptorUtil.isEffectivelyPublicApi
+
+import java.util.ArrayDeque
+import java.util.HashMap
+import java.util.HashSet
+
+public class RemovedDeclarations(public val count: Int, public val bytes: Int)
+
+/**
+ * Removes declarations of functions, that are not a part of public API
+ * and are not reachable from the rest of the program:
+ *  _.foo.bar = { f: function() { ... } }
+ *
+ * Everything, that is not removable (main call, public declarations, etc.), is a root.
+ * Functions are matched to references by name, so a function is kept
+ * whenever there is a property access or a string with the same name.
+ * Functions, that override something, are never removed,
+ * because they can be called from library code.
+ */
+public fun removeUnusedDeclarations(program: JsProgram): RemovedDeclarations {
+    val candidates = with(RemovableDeclarationsCollector()) {
+        accept(program)
+        declarations
+    }
+
+    val reachable = HashSet<String>()
+    val queue = ArrayDeque<String>()
+    val nameCollector = ReferencedNameCollector(candidates.values().flatMap { it }.toIdentitySet()) {
+        if (reachable.add(it)) {
+            queue.add(it)
+        }
+    }
+
+    nameCollector.accept(program)
+    while (!queue.isEmpty()) {
+        candidates[queue.poll()]?.forEach { nameCollector.accept(it.getValueExpr()) }
+    }
+
+    val removable = candidates.filterKeys { it !in reachable }.values().flatMap { it }.toIdentitySet()
+
+    // Nested declarations are removed together with an enclosing one, so they are counted and measured only once
+    var count = 0
+    var bytes = 0
+    NodeRemover(javaClass<JsPropertyInitializer>()) {
+        val isRemovable = it in removable
+        if (isRemovable) {
+            count++
+            bytes += sizeInBytes(it)
+        }
+        isRemovable
+    }.accept(program)
+
+    return RemovedDeclarations(count, bytes)
+}
+
+private fun sizeInBytes(node: JsNode): Int {
+    val output = TextOutputImpl()
+    node.accept(JsToStringGenerationVisitor(output))
+    return output.toString().toByteArray("UTF-8").size()
+}
+
+private class RemovableDeclarationsCollector : RecursiveJsVisitor() {
+    public val declarations: MutableMap<String, MutableList<JsPropertyInitializer>> = HashMap()
+
+    override fun visitPropertyInitializer(x: JsPropertyInitializer) {
+        val label = x.getLabelExpr()
+        val descriptor = (x.getValueExpr() as? JsFunction)?.descriptor
+
+        if (label is JsNameRef && descriptor != null &&
+            !descriptor.isEffectivelyPublicApi && descriptor.getOverriddenDescriptors().isEmpty()) {
+            declarations.getOrPut(label.getIdent()) { arrayListOf() }.add(x)
+        }
+
+        super.visitPropertyInitializer(x)
+    }
+}
+
+private class ReferencedNameCollector(
+        private val skipped: Set<JsPropertyInitializer>,
+        private val onReference: (String) -> Unit
+) : RecursiveJsVisitor() {
+
+    override fun visitPropertyInitializer(x: JsPropertyInitializer) {
+        if (x in skipped) return
+
+        super.visitPropertyInitializer(x)
+    }
+
+    override fun visitNameRef(nameRef: JsNameRef) {
+        onReference(nameRef.getIdent())
+        super.visitNameRef(nameRef)
+    }
+
+    override fun visitString(x: JsStringLiteral) {
+        onReference(x.getValue())
+    }
+}
@@ -34,10 +34,20 @@ public fun parse(code: String, reporter: ErrorReporter, scope: JsScope): List<Js
 }
 
 public fun parseFunction(code: String, offset: Int, reporter: ErrorReporter, scope: JsScope): JsFunction =
+        mapFunction(parseFunctionNode(code, offset, reporter), scope)
+
+/**
+ * Parses a function without mapping it to JS AST. The node is not modified by [mapFunction],
+ * so it can be mapped many times, each time getting new names and scopes
+ */
+public fun parseFunctionNode(code: String, offset: Int, reporter: ErrorReporter): Node =
         parse(code, offset, reporter, insideFunction = false) {
             addObserver(FunctionParsingObserver())
             primaryExpr(it)
-        }.toJsAst(scope, JsAstMapper::mapFunction)
+        }
+
+public fun mapFunction(node: Node, scope: JsScope): JsFunction =
+        node.toJsAst(scope, JsAstMapper::mapFunction)
 
 private class FunctionParsingObserver : Observer {
     var functionsStarted = 0
@@ -43,6 +43,7 @@ import org.jetbrains.kotlin.js.config.LibrarySourcesConfigWithCaching;
 import org.jetbrains.kotlin.js.facade.K2JSTranslator;
 import org.jetbrains.kotlin.js.facade.MainCallParameters;
 import org.jetbrains.kotlin.js.facade.TranslationResult;
+import org.jetbrains.kotlin.js.inline.clean.RemovedDeclarations;
 import org.jetbrains.kotlin.js.test.rhino.RhinoResultChecker;
 import org.jetbrains.kotlin.js.test.utils.JsTestUtils;
 import org.jetbrains.kotlin.js.translate.context.Namer;
@@ -183,6 +184,7 @@ public abstract class BasicTest extends KotlinTestWithEnvironment {
 
         TranslationResult.Success successResult = (TranslationResult.Success) translationResult;
         processJsProgram(successResult.getProgram());
+        processRemovedDeclarations(successResult.getRemovedDeclarations());
 
         OutputFileCollection outputFiles = successResult.getOutputFiles(outputFile, getOutputPrefixFile(), getOutputPostfixFile());
         File outputDir = outputFile.getParentFile();
@@ -206,8 +208,14 @@ public abstract class BasicTest extends KotlinTestWithEnvironment {
         return false;
     }
 
+    protected boolean shouldRemoveUnusedDeclarations() {
+        return false;
+    }
+
     protected void processJsProgram(@NotNull JsProgram program) throws Exception { }
 
+    protected void processRemovedDeclarations(@Nullable RemovedDeclarations removedDeclarations) throws Exception { }
+
     protected void runRhinoTests(
             @NotNull String testName,
             @NotNull Iterable<EcmaVersion> ecmaVersions,
@@ -281,10 +289,12 @@ public abstract class BasicTest extends KotlinTestWithEnvironment {
     @NotNull
     private Config createConfig(@NotNull Project project, @NotNull String moduleId, @NotNull EcmaVersion ecmaVersion, @Nullable List<String> libraries) {
         if (libraries == null) {
-            return new LibrarySourcesConfigWithCaching(project, moduleId, ecmaVersion, shouldGenerateSourceMap(), IS_INLINE_ENABLED, shouldBeTranslateAsUnitTestClass());
+            return new LibrarySourcesConfigWithCaching(project, moduleId, ecmaVersion, shouldGenerateSourceMap(), IS_INLINE_ENABLED,
+                                                       shouldBeTranslateAsUnitTestClass(), shouldRemoveUnusedDeclarations());
         }
         else {
-            return new LibrarySourcesConfig(project, moduleId, librariesWithJsStdlib(libraries), ecmaVersion, shouldGenerateSourceMap(), IS_INLINE_ENABLED);
+            return new LibrarySourcesConfig(project, moduleId, librariesWithJsStdlib(libraries), ecmaVersion, shouldGenerateSourceMap(),
+                                            IS_INLINE_ENABLED, shouldRemoveUnusedDeclarations());
         }
     }
 
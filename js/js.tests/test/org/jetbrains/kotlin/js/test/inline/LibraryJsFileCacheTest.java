@@ -0,0 +1,100 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jetbrains.kotlin.js.test.inline;
+
+import com.google.dart.compiler.backend.js.ast.JsFunction;
+import com.google.dart.compiler.backend.js.ast.JsName;
+import com.google.dart.compiler.backend.js.ast.metadata.MetadataPackage;
+import com.intellij.openapi.util.io.FileUtil;
+import junit.framework.TestCase;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.kotlin.js.inline.LibraryJsFile;
+import org.jetbrains.kotlin.js.inline.LibraryJsFileCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public final class LibraryJsFileCacheTest extends TestCase {
+    private static final String TAG = "moduleA.foo_za3lpa$";
+
+    public void testUnchangedFileIsScannedOnce() throws Exception {
+        File library = createLibrary(createContent("moduleA"));
+
+        List<LibraryJsFile> files = LibraryJsFileCache.INSTANCE$.get(Collections.singletonList(library.getPath()));
+        List<LibraryJsFile> sameFiles = LibraryJsFileCache.INSTANCE$.get(Collections.singletonList(library.getPath()));
+
+        assertEquals(1, files.size());
+        assertSame(files.get(0), sameFiles.get(0));
+    }
+
+    public void testChangedFileWithSameLengthIsScannedAgain() throws Exception {
+        File library = createLibrary(createContent("moduleA"));
+        LibraryJsFile file = LibraryJsFileCache.INSTANCE$.get(Collections.singletonList(library.getPath())).get(0);
+
+        long lastModified = library.lastModified();
+        FileUtil.writeToFile(library, createContent("moduleB"));
+        assertTrue(library.setLastModified(lastModified + 2000));
+        LibraryJsFile changedFile = LibraryJsFileCache.INSTANCE$.get(Collections.singletonList(library.getPath())).get(0);
+
+        assertNotSame(file, changedFile);
+        assertEquals("moduleA", file.getModules().get(0).getName());
+        assertEquals("moduleB", changedFile.getModules().get(0).getName());
+    }
+
+    public void testFunctionsAreIndependentCopies() throws Exception {
+        LibraryJsFile file = new LibraryJsFile(createContent("moduleA"));
+
+        JsFunction function = file.getFunction(TAG);
+        assertNotNull(function);
+        JsName parameterName = function.getParameters().get(0).getName();
+        MetadataPackage.setStaticRef(parameterName, function);
+        function.getBody().getStatements().clear();
+
+        JsFunction otherFunction = file.getFunction(TAG);
+        assertNotNull(otherFunction);
+        assertNotSame(function, otherFunction);
+        assertFalse(otherFunction.getBody().getStatements().isEmpty());
+
+        JsName otherParameterName = otherFunction.getParameters().get(0).getName();
+        assertNotSame(parameterName, otherParameterName);
+        assertNull(MetadataPackage.getStaticRef(otherParameterName));
+        assertNotSame(function.getScope(), otherFunction.getScope());
+    }
+
+    public void testMissingFunction() throws Exception {
+        LibraryJsFile file = new LibraryJsFile(createContent("moduleA"));
+        assertNull(file.getFunction("moduleA.bar_za3lpa$"));
+    }
+
+    @NotNull
+    private static File createLibrary(@NotNull String content) throws IOException {
+        File library = FileUtil.createTempFile("library", ".js", true);
+        FileUtil.writeToFile(library, content);
+        return library;
+    }
+
+    @NotNull
+    private static String createContent(@NotNull String moduleName) {
+        return "Kotlin.defineModule('" + moduleName + "', _);\n" +
+               "_.foo = Kotlin.defineInlineFunction('" + TAG + "', function (x) {\n" +
+               "    var y = x + 1;\n" +
+               "    return y;\n" +
+               "});\n";
+    }
+}
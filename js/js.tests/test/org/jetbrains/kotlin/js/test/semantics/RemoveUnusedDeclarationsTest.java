@@ -0,0 +1,83 @@
+/*
+ * Copyright 2010-2015 JetBrains s.r.o.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.jetbrains.kotlin.js.test.semantics;
+
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.kotlin.js.inline.clean.RemovedDeclarations;
+import org.jetbrains.kotlin.js.test.SingleFileTranslationTest;
+
+public final class RemoveUnusedDeclarationsTest extends SingleFileTranslationTest {
+    private RemovedDeclarations removedDeclarations;
+
+    public RemoveUnusedDeclarationsTest() {
+        super("removeUnusedDeclarations/");
+    }
+
+    @Override
+    protected boolean shouldRemoveUnusedDeclarations() {
+        return true;
+    }
+
+    @Override
+    protected void processRemovedDeclarations(@Nullable RemovedDeclarations removedDeclarations) throws Exception {
+        this.removedDeclarations = removedDeclarations;
+    }
+
+    public void testUsedFromString() throws Exception {
+        checkFooBoxIsOk();
+        checkRemoved(0);
+    }
+
+    public void testUsedFromPropertyAccess() throws Exception {
+        checkFooBoxIsOk();
+        checkRemoved(0);
+    }
+
+    public void testUsedFromInlineFunction() throws Exception {
+        checkFooBoxIsOk();
+        // Only the inline function itself, its body is already inlined into the call site
+        checkRemoved(1);
+    }
+
+    public void testInternalOverride() throws Exception {
+        checkFooBoxIsOk();
+        checkRemoved(0);
+    }
+
+    public void testNestedPrivateClasses() throws Exception {
+        checkFooBoxIsOk();
+        checkRemoved(1);
+    }
+
+    public void testUnusedDeclarations() throws Exception {
+        checkFooBoxIsOk();
+        // The member of the local object is removed together with the enclosing function
+        checkRemoved(2);
+    }
+
+    private void checkRemoved(int expectedCount) {
+        assertNotNull(removedDeclarations);
+        assertEquals(expectedCount, removedDeclarations.getCount());
+        if (expectedCount == 0) {
+            assertEquals(0, removedDeclarations.getBytes());
+        }
+        else {
+            assertTrue(removedDeclarations.getBytes() > 0);
+        }
+    }
+}
@@ -25,6 +25,7 @@ import org.jetbrains.kotlin.js.analyzer.JsAnalysisResult;
 import org.jetbrains.kotlin.js.config.Config;
 import org.jetbrains.kotlin.js.facade.exceptions.TranslationException;
 import org.jetbrains.kotlin.js.inline.JsInliner;
+import org.jetbrains.kotlin.js.inline.clean.RemovedDeclarations;
 import org.jetbrains.kotlin.js.translate.context.TranslationContext;
 import org.jetbrains.kotlin.js.translate.general.Translation;
 import org.jetbrains.kotlin.psi.JetFile;
@@ -34,6 +35,7 @@ import org.jetbrains.kotlin.resolve.diagnostics.Diagnostics;
 import java.util.List;
 
 import static org.jetbrains.kotlin.diagnostics.DiagnosticUtils.hasError;
+import static org.jetbrains.kotlin.js.inline.clean.CleanPackage.removeUnusedDeclarations;
 
 /**
  * An entry point of translator.
@@ -79,6 +81,11 @@ public final class K2JSTranslator {
         JsProgram program = JsInliner.process(context);
         if (hasError(diagnostics)) return new TranslationResult.Fail(diagnostics);
 
-        return new TranslationResult.Success(config, files, program, diagnostics);
+        RemovedDeclarations removedDeclarations = null;
+        if (config.isRemoveUnusedDeclarations()) {
+            removedDeclarations = removeUnusedDeclarations(program);
+        }
+
+        return new TranslationResult.Success(config, files, program, diagnostics, removedDeclarations);
     }
 }
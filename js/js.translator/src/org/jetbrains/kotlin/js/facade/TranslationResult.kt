@@ -27,7 +27,13 @@ import org.jetbrains.kotlin.backend.common.output.OutputFileCollection
 import org.jetbrains.kotlin.js.sourceMap.JsSourceGenerationVisitor
 import org.jetbrains.kotlin.js.sourceMap.SourceMap3Builder
 import com.google.dart.compiler.util.TextOutput
+import java.io.BufferedWriter
 import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.OutputStreamWriter
+import java.io.Writer
+import com.intellij.openapi.util.io.FileUtil
 import org.jetbrains.kotlin.utils.fileUtils.readTextOrEmpty
 import com.intellij.util.containers.ContainerUtil
 import org.jetbrains.kotlin.psi.JetFile
@@ -36,6 +42,7 @@ import com.intellij.openapi.vfs.VfsUtilCore
 import org.jetbrains.kotlin.backend.common.output.SimpleOutputFile
 import com.intellij.openapi.util.text.StringUtil
 import org.jetbrains.kotlin.backend.common.output.SimpleOutputFileCollection
+import org.jetbrains.kotlin.js.inline.clean.RemovedDeclarations
 
 public abstract class TranslationResult protected (public val diagnostics: Diagnostics) {
 
@@ -45,8 +52,20 @@ public abstract class TranslationResult protected (public val diagnostics: Diagn
             private val config: Config,
             private val files: List<JetFile>,
             public val program: JsProgram,
-            diagnostics: Diagnostics
+            diagnostics: Diagnostics,
+            public val removedDeclarations: RemovedDeclarations?
     ) : TranslationResult(diagnostics) {
+        public val sourceFiles: List<File> by Delegates.lazy {
+            files.map {
+                val virtualFile = it.getOriginalFile().getVirtualFile()
+
+                when {
+                    virtualFile == null -> File(it.getName())
+                    else -> VfsUtilCore.virtualToIoFile(virtualFile)
+                }
+            }
+        }
+
         public fun getCode(): String = getCode(TextOutputImpl(), sourceMapBuilder = null)
 
         public fun getOutputFiles(outputFile: File, outputPrefixFile: File?, outputPostfixFile: File?): OutputFileCollection {
@@ -59,14 +78,6 @@ public abstract class TranslationResult protected (public val diagnostics: Diagn
             val code = getCode(output, sourceMapBuilder)
             val prefix = outputPrefixFile?.readTextOrEmpty() ?: ""
             val postfix = outputPostfixFile?.readTextOrEmpty() ?: ""
-            val sourceFiles = files.map {
-                val virtualFile = it.getOriginalFile().getVirtualFile()
-
-                when {
-                    virtualFile == null -> File(it.getName())
-                    else -> VfsUtilCore.virtualToIoFile(virtualFile)
-                }
-            }
 
             val jsFile = SimpleOutputFile(sourceFiles, outputFile.getName(), prefix + code + postfix)
             val outputFiles = arrayListOf(jsFile)
@@ -80,6 +91,55 @@ public abstract class TranslationResult protected (public val diagnostics: Diagn
             return SimpleOutputFileCollection(outputFiles)
         }
 
+        /**
+         * Writes code and source map to files while they are generated, so that they are never kept in memory as a whole.
+         * Returns written files. Nothing is left on disk if writing fails.
+         */
+        throws(javaClass<IOException>())
+        public fun writeOutputFiles(outputFile: File, outputPrefixFile: File?, outputPostfixFile: File?): List<File> {
+            val prefix = outputPrefixFile?.readTextOrEmpty() ?: ""
+            val postfix = outputPostfixFile?.readTextOrEmpty() ?: ""
+            val sourceMapFile = if (config.isSourcemap()) File(outputFile.getParentFile(), outputFile.getName() + ".map") else null
+            val writtenFiles = listOf(outputFile, sourceMapFile).filterNotNull()
+
+            try {
+                createWriter(outputFile).use { writer ->
+                    writer.write(prefix)
+                    val output = TextOutputImpl(writer)
+
+                    if (sourceMapFile != null) {
+                        createWriter(sourceMapFile).use { sourceMapWriter ->
+                            val sourceMapBuilder = SourceMap3Builder(outputFile, output, SourceMapBuilderConsumer(), sourceMapWriter)
+                            sourceMapBuilder.skipLinesAtBeginning(StringUtil.getLineBreakCount(prefix))
+                            program.accept(JsSourceGenerationVisitor(output, sourceMapBuilder))
+                            sourceMapBuilder.finish()
+                        }
+                    }
+                    else {
+                        program.accept(JsSourceGenerationVisitor(output, null))
+                    }
+
+                    output.flush()
+                    writer.write(postfix)
+                }
+            }
+            catch (e: Throwable) {
+                // Truncated files are worse than no files at all
+                writtenFiles.forEach { it.delete() }
+
+                // The output and the source map builder write while the program is being visited, so they wrap I/O errors
+                val cause = e.getCause()
+                throw if (e is RuntimeException && cause is IOException) cause else e
+            }
+
+            return writtenFiles
+        }
+
+        private fun createWriter(file: File): Writer {
+            FileUtil.createParentDirs(file)
+            return BufferedWriter(OutputStreamWriter(FileOutputStream(file), "UTF-8"))
+        }
+
         private fun getCode(output: TextOutput, sourceMapBuilder: SourceMapBuilder?): String {
             program.accept(JsSourceGenerationVisitor(output, sourceMapBuilder))
             return output.toString()
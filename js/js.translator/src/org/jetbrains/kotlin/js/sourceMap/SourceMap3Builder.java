@@ -21,13 +21,23 @@ import com.google.dart.compiler.util.TextOutput;
 import com.intellij.openapi.util.text.StringUtil;
 import com.intellij.util.PairConsumer;
 import gnu.trove.TObjectIntHashMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SourceMap3Builder implements SourceMapBuilder {
-    private final StringBuilder out = new StringBuilder(8192);
+    // Buffered mappings are written out at the first line end after the buffer grows beyond this size
+    private static final int FLUSH_THRESHOLD = 8192;
+
+    private final StringBuilder out = new StringBuilder(FLUSH_THRESHOLD);
+    @Nullable
+    private final Writer writer;
+    private boolean mappingsWritten;
     private final File generatedFile;
     private final TextOutput textOutput;
     private final PairConsumer<SourceMapBuilder, Object> sourceInfoConsumer;
@@ -51,9 +61,24 @@ public class SourceMap3Builder implements SourceMapBuilder {
     private int previousSourceColumn;
 
     public SourceMap3Builder(File generatedFile, TextOutput textOutput, PairConsumer<SourceMapBuilder, Object> sourceInfoConsumer) {
+        this(generatedFile, textOutput, sourceInfoConsumer, null);
+    }
+
+    /**
+     * Creates a builder, that writes the source map to the given writer as mappings are added instead of keeping it in memory.
+     * {@link #finish()} should be called instead of {@link #build()} after the last mapping is added.
+     * Since sources are known only at the end, they follow mappings in the written source map.
+     */
+    public SourceMap3Builder(
+            File generatedFile,
+            TextOutput textOutput,
+            PairConsumer<SourceMapBuilder, Object> sourceInfoConsumer,
+            @Nullable Writer writer
+    ) {
         this.generatedFile = generatedFile;
         this.textOutput = textOutput;
         this.sourceInfoConsumer = sourceInfoConsumer;
+        this.writer = writer;
     }
 
     @Override
@@ -63,6 +88,7 @@ public class SourceMap3Builder implements SourceMapBuilder {
 
     @Override
     public String build() {
+        assert writer == null : "Source map is written to the writer";
         StringBuilder sb = new StringBuilder(out.length() + (128 * orderedSources.size()));
         sb.append("{\"version\":3,\"file\":\"").append(generatedFile.getName()).append('"').append(',');
         appendSources(sb);
@@ -73,6 +99,30 @@ public class SourceMap3Builder implements SourceMapBuilder {
         return sb.toString();
     }
 
+    /**
+     * Writes the rest of the source map to the writer and flushes it.
+     */
+    public void finish() throws IOException {
+        assert writer != null : "Source map is not written to a writer";
+
+        writeMappings(writer);
+        StringBuilder sb = new StringBuilder(128 * orderedSources.size());
+        sb.append("\",");
+        appendSources(sb);
+        sb.append(",\"names\":[]}");
+        writer.append(sb);
+        writer.flush();
+    }
+
+    private void writeMappings(@NotNull Writer writer) throws IOException {
+        if (!mappingsWritten) {
+            writer.append("{\"version\":3,\"file\":\"").append(generatedFile.getName()).append("\",\"mappings\":\"");
+            mappingsWritten = true;
+        }
+        writer.append(out);
+        out.setLength(0);
+    }
+
     private void appendSources(StringBuilder sb) {
         boolean isNotFirst = false;
         sb.append('"').append("sources").append("\":[");
@@ -92,10 +142,20 @@ public class SourceMap3Builder implements SourceMapBuilder {
     public void newLine() {
         out.append(';');
         previousGeneratedColumn = -1;
+
+        if (writer != null && out.length() > FLUSH_THRESHOLD) {
+            try {
+                writeMappings(writer);
+            }
+            catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
     }
 
     @Override
     public void skipLinesAtBeginning(int count) {
+        assert !mappingsWritten : "Lines should be skipped before mappings are written";
         out.insert(0, StringUtil.repeatSymbol(';', count));
     }
 
@@ -97,6 +97,7 @@ public final class FunctionTranslator extends AbstractTranslator {
     public JsPropertyInitializer translateAsMethod() {
         JsName functionName = context().getNameForDescriptor(descriptor);
         generateFunctionObject();
+        MetadataPackage.setDescriptor(functionObject, descriptor);
 
         if (shouldBeInlined(descriptor) && getIsEffectivelyPublicApi(descriptor)) {
             InlineMetadata metadata = InlineMetadata.compose(functionObject, descriptor);
@@ -0,0 +1,13 @@
+package foo
+
+internal abstract class Base {
+    internal abstract fun text(): String
+
+    override fun toString(): String = text()
+}
+
+private class Derived : Base() {
+    internal override fun text(): String = "OK"
+}
+
+fun box(): String = "${Derived()}"
@@ -0,0 +1,13 @@
+package foo
+
+private class Outer {
+    private class Inner {
+        fun value(): String = "OK"
+
+        fun unused(): String = "fail"
+    }
+
+    fun value(): String = Inner().value()
+}
+
+fun box(): String = Outer().value()
@@ -0,0 +1,12 @@
+package foo
+
+private fun unused(): Int {
+    val o = object {
+        fun nested(): Int = 1
+    }
+    return o.nested()
+}
+
+private fun alsoUnused(): Int = 2
+
+fun box(): String = "OK"
@@ -0,0 +1,7 @@
+package foo
+
+private fun compute(): String = "OK"
+
+private inline fun wrapper(): String = compute()
+
+fun box(): String = wrapper()
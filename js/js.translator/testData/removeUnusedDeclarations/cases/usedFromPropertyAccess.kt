@@ -0,0 +1,8 @@
+package foo
+
+private fun secret(): String = "OK"
+
+fun box(): String {
+    val pkg: dynamic = eval("Kotlin.modules.JS_TESTS.foo")
+    return pkg.secret()
+}
@@ -0,0 +1,8 @@
+package foo
+
+private fun secret(): String = "OK"
+
+fun box(): String {
+    val name = "secret"
+    return eval("Kotlin.modules.JS_TESTS.foo.$name()") as String
+}